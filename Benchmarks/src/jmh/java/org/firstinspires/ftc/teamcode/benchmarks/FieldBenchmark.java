@@ -0,0 +1,64 @@
+package org.firstinspires.ftc.teamcode.benchmarks;
+
+import org.firstinspires.ftc.teamcode.iLQR.Field;
+import org.firstinspires.ftc.teamcode.iLQR.FieldCostTable;
+import org.firstinspires.ftc.teamcode.iLQR.Obstacle;
+import org.firstinspires.ftc.teamcode.iLQR.Point2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Obstacle cost queries along a pass across the field, exact versus the precomputed table
+ */
+@State(Scope.Thread)
+public class FieldBenchmark {
+
+    @Param({"7", "60"})
+    public int obstacleCount;
+
+    private Field field;
+    private FieldCostTable table;
+    private final double[] xs = new double[256];
+    private final double[] ys = new double[256];
+    private final double[] q = new double[2];
+    private final double[] Q = new double[4];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        ArrayList<Obstacle> obstacles = new ArrayList<>();
+        for (int i = 0; i < obstacleCount; i++) {
+            obstacles.add(new Obstacle(new Point2D(random.nextDouble() * 144, random.nextDouble() * 144), 2 + random.nextDouble() * 7, 50, 2));
+        }
+        field = new Field(obstacles);
+        table = new FieldCostTable(field, 1);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = 144.0 * i / xs.length;
+            ys[i] = 72 + 50 * Math.sin(xs[i] / 20);
+        }
+    }
+
+    @Benchmark
+    public double exactDerivatives() {
+        double sum = 0;
+        for (int i = 0; i < xs.length; i++) {
+            sum += field.ObstacleCostDerivatives(xs[i], ys[i], q, 0, Q, 0) + Q[1];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tableDerivatives() {
+        double sum = 0;
+        for (int i = 0; i < xs.length; i++) {
+            sum += table.ObstacleCostDerivatives(xs[i], ys[i], q, 0, Q, 0) + Q[1];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+package org.firstinspires.ftc.teamcode.benchmarks;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataResponse;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+import org.firstinspires.ftc.teamcode.RobotClasses.MecanumDrivetrain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Drivetrain running against stubbed hardware, encoders count up as if the robot drives in an arc
+ */
+@State(Scope.Thread)
+public class MecanumDrivetrainBenchmark {
+
+    private MecanumDrivetrain drivetrain;
+    private LynxGetBulkInputDataResponse bulkData;
+    private double phase = 0;
+
+    @Setup
+    public void setup() {
+        LinearOpMode opMode = new LinearOpMode();
+        LynxModule module = new LynxModule();
+        opMode.hardwareMap.put("Drivetrain Hub", module);
+        opMode.hardwareMap.put("motorFrontRight", new StubMotor());
+        opMode.hardwareMap.put("motorFrontLeft", new StubMotor());
+        opMode.hardwareMap.put("motorBackRight", new StubMotor());
+        opMode.hardwareMap.put("motorBackLeft", new StubMotor());
+
+        drivetrain = new MecanumDrivetrain(opMode, 9, 111, 0, true);
+        bulkData = module.bulkInputData;
+    }
+
+    @Benchmark
+    public double updatePose() {
+        bulkData.encoders[3] -= 12;
+        bulkData.encoders[0] += 10;
+        bulkData.encoders[2] -= 3;
+        drivetrain.updatePose();
+        return drivetrain.x;
+    }
+
+    @Benchmark
+    public void setControls() {
+        // Vary Controls so the Motor Power Cache Does Not Skip Every Write
+        phase += 0.1;
+        drivetrain.setControls(Math.sin(phase), Math.cos(phase), 0.2);
+    }
+
+    @Benchmark
+    public void setTargetPoint() {
+        phase += 0.1;
+        drivetrain.setTargetPoint(20 + Math.sin(phase), 30, Math.PI/2);
+    }
+
+    private static class StubMotor implements DcMotorEx {
+        private double power;
+
+        @Override public void setMode(RunMode mode) {}
+        @Override public void setDirection(Direction direction) {}
+        @Override public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {}
+        @Override public void setTargetPosition(int position) {}
+        @Override public void setTargetPositionTolerance(int tolerance) {}
+        @Override public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {}
+        @Override public void setPositionPIDFCoefficients(double p) {}
+        @Override public void setPower(double power) {this.power = power;}
+        @Override public double getPower() {return power;}
+    }
+}
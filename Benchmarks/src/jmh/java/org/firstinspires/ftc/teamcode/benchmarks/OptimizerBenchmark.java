@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.benchmarks;
+
+import org.ejml.simple.SimpleMatrix;
+import org.firstinspires.ftc.teamcode.iLQR.Optimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same problem as iLQRAutotest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class OptimizerBenchmark {
+
+    private final double timestep = 0.02;
+    private final double seconds = 3;
+    private Optimizer optimizer;
+    private SimpleMatrix startx;
+    private SimpleMatrix finalx;
+
+    @Setup
+    public void setup() {
+        SimpleMatrix A = SimpleMatrix.identity(2);
+        SimpleMatrix B = SimpleMatrix.identity(2).scale(timestep);
+        optimizer = new Optimizer(A, B, timestep);
+        startx = new SimpleMatrix(new double[][] {{9}, {111}});
+        finalx = new SimpleMatrix(new double[][] {{20}, {30}});
+    }
+
+    @Benchmark
+    public Object[] optimizePath() {
+        return optimizer.optimizePath(startx, finalx, seconds);
+    }
+}
@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.teamcode.benchmarks;
+
+import org.firstinspires.ftc.teamcode.Splines.Path;
+import org.firstinspires.ftc.teamcode.Splines.Pose;
+import org.firstinspires.ftc.teamcode.Splines.Waypoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Path from the first skystone segment of fiveBlockRed
+ */
+@State(Scope.Thread)
+public class PathBenchmark {
+
+    private ArrayList<Waypoint> waypoints;
+    private Path path;
+    private Pose pose = new Pose(0, 0, 0);
+    private double time = 0;
+
+    @Setup
+    public void setup() {
+        Waypoint[] skystone1PathWaypoints = new Waypoint[] {
+                new Waypoint(9, 111, 0, 20, 100, 0, 0),
+                new Waypoint(28, 118, Math.PI/6, 20, 10, 0, 0.75),
+                new Waypoint(45, 128, Math.PI/4, 10, -20, 0, 1.5)
+        };
+        waypoints = new ArrayList<>(Arrays.asList(skystone1PathWaypoints));
+        path = new Path(waypoints);
+    }
+
+    private double nextTime() {
+        time += 0.01;
+        if (time > 1.5) time = 0;
+        return time;
+    }
+
+    @Benchmark
+    public Path construct() {
+        return new Path(waypoints);
+    }
+
+    @Benchmark
+    public Pose getRobotPose() {
+        return path.getRobotPose(nextTime());
+    }
+
+    @Benchmark
+    public Pose getRobotPoseInto() {
+        return path.getRobotPose(nextTime(), pose);
+    }
+}
@@ -0,0 +1,52 @@
+package org.firstinspires.ftc.teamcode.benchmarks;
+
+import org.firstinspires.ftc.teamcode.Splines.Spline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class SplineBenchmark {
+
+    private Spline spline;
+    private double time = 0;
+    private double[] times = new double[150];
+    private double[] positions = new double[150];
+    private double[] velocities = new double[150];
+
+    @Setup
+    public void setup() {
+        spline = new Spline(9, 20, 0, 30, 0, 0, 1.5);
+        for (int i = 0; i < times.length; i++) {
+            times[i] = i * 0.01;
+        }
+    }
+
+    private double nextTime() {
+        time += 0.01;
+        if (time > 1.5) time = 0;
+        return time;
+    }
+
+    @Benchmark
+    public Spline construct() {
+        return new Spline(9, 20, 0, 30, 0, 0, 1.5);
+    }
+
+    @Benchmark
+    public double position() {
+        return spline.position(nextTime());
+    }
+
+    @Benchmark
+    public double velocity() {
+        return spline.velocity(nextTime());
+    }
+
+    @Benchmark
+    public double[] evaluate() {
+        spline.evaluate(times, positions, velocities);
+        return positions;
+    }
+}
@@ -0,0 +1,130 @@
+package org.firstinspires.ftc.teamcode.benchmarks.sim;
+
+import org.firstinspires.ftc.teamcode.RobotClasses.MecanumDrivetrain;
+
+/**
+ * Rigid body mecanum chassis driven by four {@linkplain SimMotor}s, with three dead wheel pods
+ * <p>Body velocity is forward, left and counter clockwise. Wheel forces come from the motor torques
+ * and are mapped onto the body by the same mixing MecanumDrivetrain.setControls inverts, with
+ * strafing losing some force to the rollers. Pose is in field inches like the robot code's.
+ */
+class MecanumSim {
+
+    // Chassis
+    private static final double MASS = 15; // kg
+    private static final double YAW_INERTIA = 0.55; // kg m^2
+    private static final double WHEEL_LEVER = 0.32; // Half Track Plus Half Wheelbase, m
+    private static final double WHEEL_RADIUS = 0.048; // m
+    private static final double STRAFE_EFFICIENCY = 0.8;
+    private static final double ROLLING_DRAG = 0.5; // 1/s
+    private static final double HALF_SIZE = 9; // in
+    private static final double FIELD_SIZE = 144; // in
+
+    // Drive Motors, 19.2:1 at 312 rpm
+    static final double TICKS_PER_REVOLUTION = 537.6;
+    static final double FREE_TICKS_PER_SECOND = 312 / 60.0 * TICKS_PER_REVOLUTION;
+    private static final double STALL_TORQUE = 2.42; // N m
+    private static final double RADIANS_PER_TICK = 2 * Math.PI / TICKS_PER_REVOLUTION;
+
+    // Dead Wheels, as MecanumDrivetrain Reads Them
+    private static final double INCHES_PER_POD_TICK = 0.00300622055 * 2;
+    private static final double POD_HORIZONTAL_OFFSET = 3.165;
+
+    private static final double METERS_TO_INCHES = 39.3701;
+
+    // Wheel Order is Front Right, Back Right, Front Left, Back Left
+    private final SimMotor[] wheels;
+    private static final double[] mount = {-1, -1, 1, 1}; // Right Motors are Mirrored
+    private static final double[] strafe = {1, -1, -1, 1};
+    private static final double[] turn = {1, 1, -1, -1};
+
+    // Pose, Field Inches and Radians
+    double x, y, theta;
+
+    // Body Velocity, m/s and rad/s
+    double vx, vy, omega;
+
+    // Pod Travel, Inches
+    private double pod1, pod2, pod3;
+
+    MecanumSim(SimMotor frontRight, SimMotor backRight, SimMotor frontLeft, SimMotor backLeft) {
+        wheels = new SimMotor[] {frontRight, backRight, frontLeft, backLeft};
+    }
+
+    void setPose(double x, double y, double theta) {
+        this.x = x;
+        this.y = y;
+        this.theta = theta;
+    }
+
+    void step(double dt, double batteryVoltage) {
+        // Wheels Turn With the Chassis
+        double fx = 0, fy = 0, torque = 0;
+        for (int i = 0; i < 4; i++) {
+            double groundSpeed = vx + strafe[i] * vy + turn[i] * WHEEL_LEVER * omega;
+            SimMotor wheel = wheels[i];
+            wheel.velocity = mount[i] * groundSpeed / WHEEL_RADIUS / RADIANS_PER_TICK;
+            wheel.position += wheel.velocity * dt;
+
+            double force = mount[i] * STALL_TORQUE * wheel.torque(batteryVoltage) / WHEEL_RADIUS;
+            fx += force;
+            fy += strafe[i] * force;
+            torque += turn[i] * WHEEL_LEVER * force;
+        }
+
+        vx += (fx / MASS - ROLLING_DRAG * vx) * dt;
+        vy += (STRAFE_EFFICIENCY * fy / MASS - ROLLING_DRAG * vy) * dt;
+        omega += (torque / YAW_INERTIA - ROLLING_DRAG * omega) * dt;
+
+        // Move on the Field, Stopping at the Walls
+        double forward = vx * dt * METERS_TO_INCHES;
+        double left = vy * dt * METERS_TO_INCHES;
+        double deltaTheta = omega * dt;
+        double heading = theta + deltaTheta / 2;
+        double cos = Math.cos(heading), sin = Math.sin(heading);
+        double newX = clampToField(x + forward * cos - left * sin);
+        double newY = clampToField(y + forward * sin + left * cos);
+        if (newX != x + forward * cos - left * sin || newY != y + forward * sin + left * cos) {
+            double dx = newX - x, dy = newY - y;
+            forward = dx * cos + dy * sin;
+            left = dy * cos - dx * sin;
+            vx = forward / dt / METERS_TO_INCHES;
+            vy = left / dt / METERS_TO_INCHES;
+        }
+        x = newX;
+        y = newY;
+        theta += deltaTheta;
+
+        // Pods Roll With the Chassis
+        pod1 += forward + deltaTheta * MecanumDrivetrain.OdometryTrackWidth / 2;
+        pod2 += forward - deltaTheta * MecanumDrivetrain.OdometryTrackWidth / 2;
+        pod3 += left + deltaTheta * POD_HORIZONTAL_OFFSET;
+    }
+
+    private static double clampToField(double coordinate) {
+        return Math.max(HALF_SIZE, Math.min(FIELD_SIZE - HALF_SIZE, coordinate));
+    }
+
+    /**
+     * Encoder counts on the drivetrain hub's ports
+     */
+    int podEncoder(int port) {
+        switch (port) {
+            case 0: return (int) Math.round(pod2 / INCHES_PER_POD_TICK);
+            case 2: return (int) Math.round(-pod3 / INCHES_PER_POD_TICK);
+            case 3: return (int) Math.round(-pod1 / INCHES_PER_POD_TICK);
+            default: return 0;
+        }
+    }
+
+    /**
+     * @return heading between -pi and pi, as the IMU reports it
+     */
+    double imuHeading() {
+        return Math.atan2(Math.sin(theta), Math.cos(theta));
+    }
+
+    double speed() {
+        return Math.hypot(vx, vy) * METERS_TO_INCHES;
+    }
+}
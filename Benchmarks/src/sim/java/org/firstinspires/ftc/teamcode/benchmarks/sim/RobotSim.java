@@ -0,0 +1,157 @@
+package org.firstinspires.ftc.teamcode.benchmarks.sim;
+
+import org.firstinspires.ftc.teamcode.Hardware.BulkData;
+
+/**
+ * The simulated robot on the field: chassis, lift, arm, intake and the stones it handles
+ * <p>The lift, arm and intake are single motors moving a load with the given acceleration at
+ * stall, between hard stops. A stone enters the intake after the intake has run with its mouth
+ * in the quarry for a moment. It leaves the stone sensor once it is clamped and the arm swings
+ * out, and counts as placed when it is let go with the arm out.
+ */
+class RobotSim {
+
+    // Lift, Up is Negative
+    private static final double LIFT_STALL_ACCELERATION = 40000; // Ticks/Second^2
+    private static final double LIFT_GRAVITY = 2000;
+    private static final double LIFT_TOP = -3800, LIFT_BOTTOM = 150;
+
+    // Arm, Stacker Reads it Negated
+    static final double ARM_FREE_TICKS_PER_SECOND = 1500;
+    private static final double ARM_STALL_ACCELERATION = 20000;
+    private static final double ARM_OUT = 1400, ARM_IN = -60;
+
+    private static final double INTAKE_STALL_ACCELERATION = 50000;
+
+    // Stones
+    private static final double INTAKE_REACH = 9; // Intake Mouth Ahead of Center, in
+    private static final double INTAKE_DWELL = 0.2; // s
+    private static final double CLAMPED_BELOW = 0.5;
+    private static final double STONE_CLEARS_SENSOR = 300; // Arm Ticks
+    private static final double STONE_PLACED_PAST = 500;
+    private static final int SENSOR_STONE = 300, SENSOR_EMPTY = 40;
+
+    enum Stone {NONE, IN_INTAKE, IN_ARM}
+
+    final MecanumSim chassis;
+    final SimMotor lift;
+    final SimMotor arm;
+    final SimMotor rightIntake;
+    final SimMotor leftIntake;
+    final SimRobotHardware.SimServo stoneClamp;
+
+    double batteryVoltage = 12.5;
+
+    // Quarry, Field Inches
+    double quarryMinX = 40, quarryMinY = 90, quarryMaxX = 90, quarryMaxY = 140;
+    int stonesLeft = 6;
+
+    Stone stone = Stone.NONE;
+    int stonesIntaked = 0;
+    int stonesPlaced = 0;
+    private double dwell = 0;
+
+    RobotSim(SimRobotHardware hardware) {
+        SimMotor frontRight = hardware.addMotor("motorFrontRight", MecanumSim.FREE_TICKS_PER_SECOND);
+        SimMotor frontLeft = hardware.addMotor("motorFrontLeft", MecanumSim.FREE_TICKS_PER_SECOND);
+        SimMotor backRight = hardware.addMotor("motorBackRight", MecanumSim.FREE_TICKS_PER_SECOND);
+        SimMotor backLeft = hardware.addMotor("motorBackLeft", MecanumSim.FREE_TICKS_PER_SECOND);
+        chassis = new MecanumSim(frontRight, backRight, frontLeft, backLeft);
+
+        lift = hardware.addMotor("liftMotor", MecanumSim.FREE_TICKS_PER_SECOND);
+        arm = hardware.addMotor("depositMotor", ARM_FREE_TICKS_PER_SECOND);
+        leftIntake = hardware.addMotor("leftIntake", MecanumSim.FREE_TICKS_PER_SECOND);
+        rightIntake = hardware.addMotor("rightIntake", MecanumSim.FREE_TICKS_PER_SECOND);
+
+        stoneClamp = hardware.addServo("stoneClamp");
+        hardware.addServo("stonePushServo");
+        hardware.addServo("leftGrabber");
+        hardware.addServo("rightGrabber");
+        hardware.addServo("capstoneDeposit");
+        hardware.addServo("extendoServo");
+    }
+
+    void step(double dt) {
+        chassis.step(dt, batteryVoltage);
+        stepMechanism(lift, LIFT_STALL_ACCELERATION, LIFT_GRAVITY, LIFT_TOP, LIFT_BOTTOM, dt);
+        stepMechanism(arm, ARM_STALL_ACCELERATION, 0, -ARM_OUT, -ARM_IN, dt);
+        stepMechanism(leftIntake, INTAKE_STALL_ACCELERATION, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, dt);
+        stepMechanism(rightIntake, INTAKE_STALL_ACCELERATION, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, dt);
+        stepStone(dt);
+    }
+
+    private void stepMechanism(SimMotor motor, double stallAcceleration, double load, double min, double max, double dt) {
+        motor.velocity += (stallAcceleration * motor.torque(batteryVoltage) + load) * dt;
+        motor.position += motor.velocity * dt;
+        if (motor.position < min || motor.position > max) {
+            motor.position = Math.max(min, Math.min(max, motor.position));
+            motor.velocity = 0;
+        }
+    }
+
+    private void stepStone(double dt) {
+        boolean clamped = stoneClamp.position < CLAMPED_BELOW;
+        double armTicks = -arm.position;
+        // The Intake Runs Backwards to Take Stones In
+        boolean intaking = rightIntake.velocity < -0.3 * rightIntake.freeTicksPerSecond;
+        boolean ejecting = rightIntake.velocity > 0.3 * rightIntake.freeTicksPerSecond;
+
+        switch (stone) {
+            case NONE:
+                if (intaking && stonesLeft > 0 && intakeInQuarry()) {
+                    dwell += dt;
+                    if (dwell >= INTAKE_DWELL) {
+                        stone = Stone.IN_INTAKE;
+                        stonesLeft--;
+                        stonesIntaked++;
+                        dwell = 0;
+                    }
+                } else {
+                    dwell = 0;
+                }
+                break;
+            case IN_INTAKE:
+                if (clamped && armTicks > STONE_CLEARS_SENSOR) stone = Stone.IN_ARM;
+                else if (ejecting && !clamped) stone = Stone.NONE;
+                break;
+            case IN_ARM:
+                if (!clamped) {
+                    if (armTicks > STONE_PLACED_PAST) {
+                        stonesPlaced++;
+                        stone = Stone.NONE;
+                    } else {
+                        stone = Stone.IN_INTAKE;
+                    }
+                }
+                break;
+        }
+    }
+
+    private boolean intakeInQuarry() {
+        double mouthX = chassis.x + INTAKE_REACH * Math.cos(chassis.theta);
+        double mouthY = chassis.y + INTAKE_REACH * Math.sin(chassis.theta);
+        return mouthX >= quarryMinX && mouthX <= quarryMaxX && mouthY >= quarryMinY && mouthY <= quarryMaxY;
+    }
+
+    /**
+     * Odometry pods on encoder ports 0, 2 and 3, the stone sensor on analog input 0
+     */
+    void readDrivetrainHub(BulkData data) {
+        for (int port = 0; port < BulkData.PORTS; port++) {
+            data.encoders[port] = chassis.podEncoder(port);
+            data.velocities[port] = 0;
+            data.analogInputs[port] = 0;
+        }
+        data.analogInputs[0] = stone == Stone.IN_INTAKE ? SENSOR_STONE : SENSOR_EMPTY;
+    }
+
+    /**
+     * The arm's encoder on port 2 counts against its motor, the lift's is on port 3
+     */
+    void readOtherHub(BulkData data) {
+        data.encoders[2] = (int) -arm.position;
+        data.velocities[2] = (int) -arm.velocity;
+        data.encoders[3] = (int) lift.position;
+        data.velocities[3] = (int) lift.velocity;
+    }
+}
@@ -0,0 +1,135 @@
+package org.firstinspires.ftc.teamcode.benchmarks.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+import org.firstinspires.ftc.teamcode.Hardware.Motor;
+
+/**
+ * A DC motor and its hub's motor controller
+ * <p>Position and velocity are of the shaft as the encoder counts it, so direction only changes
+ * how commands are applied, like on the hub. The torque follows the usual linear DC motor model,
+ * what the torque moves is up to {@linkplain RobotSim}. The hub's velocity loop is modeled as
+ * feedforward plus proportional, its integral term is left out.
+ */
+class SimMotor implements Motor {
+
+    static final double NOMINAL_VOLTAGE = 12;
+
+    final String name;
+    final double freeTicksPerSecond; // At Nominal Voltage
+
+    // Commands
+    private final SimRobotHardware hardware;
+    private double power = 0;
+    private DcMotor.RunMode mode = DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    private DcMotorSimple.Direction direction = DcMotorSimple.Direction.FORWARD;
+    private DcMotor.ZeroPowerBehavior zeroPowerBehavior = DcMotor.ZeroPowerBehavior.BRAKE;
+    private int targetPosition = 0;
+    private double velocityP = 10;
+    private double velocityF;
+    private double positionP = 10;
+
+    // Shaft State
+    double position = 0; // Ticks
+    double velocity = 0; // Ticks/Second
+
+    SimMotor(SimRobotHardware hardware, String name, double freeTicksPerSecond) {
+        this.hardware = hardware;
+        this.name = name;
+        this.freeTicksPerSecond = freeTicksPerSecond;
+        velocityF = 32767 / freeTicksPerSecond;
+    }
+
+    @Override
+    public void setPower(double power) {
+        hardware.writeTransaction(name);
+        this.power = Math.max(-1, Math.min(1, power));
+    }
+
+    @Override
+    public void setMode(DcMotor.RunMode mode) {
+        hardware.writeTransaction(name);
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            position = 0;
+            power = 0;
+        }
+        this.mode = mode;
+    }
+
+    @Override
+    public void setDirection(DcMotorSimple.Direction direction) {
+        hardware.writeTransaction(name);
+        this.direction = direction;
+    }
+
+    @Override
+    public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {
+        hardware.writeTransaction(name);
+        zeroPowerBehavior = behavior;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        hardware.writeTransaction(name);
+        targetPosition = position;
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        hardware.writeTransaction(name);
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        hardware.writeTransaction(name);
+        velocityP = p;
+        velocityF = f;
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        hardware.writeTransaction(name);
+        positionP = p;
+    }
+
+    /**
+     * Fraction of battery voltage the controller applies, signed in shaft direction
+     */
+    double duty() {
+        double sign = direction == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+        switch (mode) {
+            case RUN_WITHOUT_ENCODER:
+                return sign * power;
+            case RUN_USING_ENCODER:
+                return velocityLoop(sign * power * freeTicksPerSecond);
+            case RUN_TO_POSITION:
+                double maxVelocity = Math.abs(power) * freeTicksPerSecond;
+                double targetVelocity = positionP * (sign * targetPosition - position);
+                return velocityLoop(Math.max(-maxVelocity, Math.min(maxVelocity, targetVelocity)));
+            default:
+                return 0;
+        }
+    }
+
+    private double velocityLoop(double targetVelocity) {
+        double output = (velocityF * targetVelocity + velocityP * (targetVelocity - velocity)) / 32767;
+        return Math.max(-1, Math.min(1, output));
+    }
+
+    /**
+     * Shaft torque as a fraction of stall torque at nominal voltage
+     */
+    double torque(double batteryVoltage) {
+        double duty = duty();
+        if (duty == 0 && zeroPowerBehavior == DcMotor.ZeroPowerBehavior.FLOAT) return 0;
+        return duty * batteryVoltage / NOMINAL_VOLTAGE - velocity / freeTicksPerSecond;
+    }
+
+    /**
+     * Power as commanded, before direction is applied
+     */
+    double getPower() {
+        return power;
+    }
+}
@@ -0,0 +1,224 @@
+package org.firstinspires.ftc.teamcode.benchmarks.sim;
+
+import org.firstinspires.ftc.teamcode.Hardware.BulkData;
+import org.firstinspires.ftc.teamcode.Hardware.BulkReadSource;
+import org.firstinspires.ftc.teamcode.Hardware.Clock;
+import org.firstinspires.ftc.teamcode.Hardware.Imu;
+import org.firstinspires.ftc.teamcode.Hardware.Motor;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.ServoOutput;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs the robot code against {@linkplain RobotSim} on simulated time
+ * <p>Simulated time only moves when the robot code waits on the hardware: every transaction with
+ * a hub takes the modeled read or write time, during which the physics runs. Time the robot code
+ * spends computing is added scaled by {@link #cpuScale}, zero by default so runs are repeatable.
+ * Transactions are counted per device, which shows where loop time goes.
+ */
+public class SimRobotHardware implements RobotHardware {
+
+    private static final long STEP_NANOS = 1_000_000;
+
+    // Modeled Hub Transaction Times
+    long readNanos = 2_500_000;
+    long writeNanos = 1_500_000;
+    double cpuScale = 0;
+
+    final RobotSim robot;
+    private final Map<String, SimMotor> motors = new LinkedHashMap<>();
+    private final Map<String, SimServo> servos = new LinkedHashMap<>();
+    private final Map<String, Device> devices = new LinkedHashMap<>();
+
+    // Time
+    private long simNanos = 0;
+    private long pendingNanos = 0;
+    private long simulatingNanos = 0; // Wall Time Spent in the Simulation Rather Than Robot Code
+    private long robotCodeSince = System.nanoTime();
+    private final Clock clock = () -> simNanos / 1_000_000;
+
+    public SimRobotHardware() {
+        robot = new RobotSim(this);
+    }
+
+    /**
+     * Transactions with one device
+     */
+    static class Device {
+        final String name;
+        final String kind;
+        long transactions;
+        long nanos;
+
+        Device(String name, String kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    class SimServo implements ServoOutput {
+        private final String name;
+        double position = 0;
+
+        SimServo(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void setPosition(double position) {
+            writeTransaction(name);
+            this.position = Math.max(0, Math.min(1, position));
+        }
+    }
+
+    private class SimBulkReadSource implements BulkReadSource {
+        private final String name;
+        private final Consumer<BulkData> reader;
+        private final BulkData data = new BulkData();
+
+        SimBulkReadSource(String name, Consumer<BulkData> reader) {
+            this.name = name;
+            this.reader = reader;
+        }
+
+        @Override
+        public BulkData read() {
+            readTransaction(name);
+            reader.accept(data);
+            return data;
+        }
+
+        @Override
+        public String getFirmwareVersion() {
+            return "simulated";
+        }
+    }
+
+    SimMotor addMotor(String name, double freeTicksPerSecond) {
+        SimMotor motor = new SimMotor(this, name, freeTicksPerSecond);
+        motors.put(name, motor);
+        devices.put(name, new Device(name, "motor"));
+        return motor;
+    }
+
+    SimServo addServo(String name) {
+        SimServo servo = new SimServo(name);
+        servos.put(name, servo);
+        devices.put(name, new Device(name, "servo"));
+        return servo;
+    }
+
+    @Override
+    public Motor motor(String name) {
+        return lookUp(motors, name);
+    }
+
+    @Override
+    public ServoOutput servo(String name) {
+        return lookUp(servos, name);
+    }
+
+    @Override
+    public BulkReadSource bulkReadSource(String hubName) {
+        switch (hubName) {
+            case "Drivetrain Hub":
+                devices.putIfAbsent(hubName, new Device(hubName, "bulk read"));
+                return new SimBulkReadSource(hubName, robot::readDrivetrainHub);
+            case "Other Stuff":
+                devices.putIfAbsent(hubName, new Device(hubName, "bulk read"));
+                return new SimBulkReadSource(hubName, robot::readOtherHub);
+            default:
+                throw new IllegalArgumentException("Unable to find a hardware device with name \"" + hubName + "\"");
+        }
+    }
+
+    @Override
+    public Imu imu(String hubName) {
+        if (!hubName.equals("Drivetrain Hub")) throw new IllegalArgumentException("Unable to find a hardware device with name \"" + hubName + "\"");
+        String name = hubName + " IMU";
+        devices.putIfAbsent(name, new Device(name, "imu"));
+        return () -> {
+            readTransaction(name);
+            return robot.chassis.imuHeading();
+        };
+    }
+
+    @Override
+    public Clock clock() {
+        return clock;
+    }
+
+    @Override
+    public double getBatteryVoltage() {
+        return robot.batteryVoltage;
+    }
+
+    private <T> T lookUp(Map<String, T> map, String name) {
+        T device = map.get(name);
+        if (device == null) throw new IllegalArgumentException("Unable to find a hardware device with name \"" + name + "\"");
+        return device;
+    }
+
+    void readTransaction(String name) {
+        transaction(devices.get(name), readNanos);
+    }
+
+    void writeTransaction(String name) {
+        transaction(devices.get(name), writeNanos);
+    }
+
+    private void transaction(Device device, long nanos) {
+        device.transactions++;
+        device.nanos += nanos;
+        elapse(nanos);
+    }
+
+    /**
+     * Moves simulated time on by what the robot code computed since it last waited, plus the given wait
+     */
+    void elapse(long waitNanos) {
+        long start = System.nanoTime();
+        long advance = waitNanos + (long) ((start - robotCodeSince) * cpuScale);
+        simNanos += advance;
+        pendingNanos += advance;
+        while (pendingNanos >= STEP_NANOS) {
+            robot.step(STEP_NANOS / 1e9);
+            pendingNanos -= STEP_NANOS;
+        }
+        robotCodeSince = System.nanoTime();
+        simulatingNanos += robotCodeSince - start;
+    }
+
+    long nanoTime() {
+        return simNanos;
+    }
+
+    long getSimulatingNanos() {
+        return simulatingNanos;
+    }
+
+    /**
+     * Forgets transactions so far, so set up isn't counted against the loop
+     */
+    void resetDevices() {
+        for (Device device : devices.values()) {
+            device.transactions = 0;
+            device.nanos = 0;
+        }
+    }
+
+    long getTransactions() {
+        long transactions = 0;
+        for (Device device : devices.values()) transactions += device.transactions;
+        return transactions;
+    }
+
+    List<Device> getDevices() {
+        return new ArrayList<>(devices.values());
+    }
+}
@@ -0,0 +1,274 @@
+package org.firstinspires.ftc.teamcode.benchmarks.sim;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+import org.firstinspires.ftc.teamcode.AutoPrograms.fiveBlockRed;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.OpenCV.skyStoneDetector;
+import org.firstinspires.ftc.teamcode.RobotClasses.Logger;
+import org.firstinspires.ftc.teamcode.TeleopPrograms.Teleop;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs a whole op mode against {@linkplain SimRobotHardware} on the desktop JVM, faster than real time
+ * <p>The op mode's robot code runs unchanged on the calling thread, so any JVM profiler attached to
+ * the run sees its hot spots. Reports simulated loop times, robot code time and allocation per
+ * loop, hub transactions per device, and how the run went. Exits with status 1 when any of the
+ * given gates fails.
+ * <p>Run with {@code ./gradlew :Benchmarks:simulate --args="..."}, options:
+ * <pre>
+ *   --opmode NAME          auto (fiveBlockRed, default) or teleop (Teleop, driven by a script)
+ *   --skystone N           skystone position the detector reports, 1 (default), 2 or 3
+ *   --seconds S            simulated match length, default 30 for auto and 120 for teleop
+ *   --read-ms MS           modeled bulk read and IMU read time, default 2.5
+ *   --write-ms MS          modeled motor and servo write time, default 1.5
+ *   --cpu-scale F          add robot code time, scaled by F, to simulated time, default 0
+ *   --battery V            battery voltage, default 12.5
+ *   --log-dir DIR          where the robot's logs go, default build/simLogs
+ *   --max-p90-ms MS        gate, 90th percentile simulated loop time
+ *   --min-stones N         gate, stones placed
+ * </pre>
+ */
+public class SimulationHarness {
+
+    private String opModeName = "auto";
+    private int skystone = 1;
+    private double seconds = Double.NaN;
+    private double readMs = 2.5;
+    private double writeMs = 1.5;
+    private double cpuScale = 0;
+    private double battery = 12.5;
+    private String logDirectory = "build/simLogs";
+    private double maxP90Ms = Double.NaN;
+    private double minStones = Double.NaN;
+
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) {
+        SimulationHarness harness = new SimulationHarness();
+        try {
+            harness.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        try {
+            System.exit(harness.run() ? 0 : 1);
+        } catch (Exception e) {
+            // The Robot's Logger Thread Would Keep the JVM Alive
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--opmode": opModeName = value; break;
+                case "--skystone": skystone = Integer.parseInt(value); break;
+                case "--seconds": seconds = Double.parseDouble(value); break;
+                case "--read-ms": readMs = Double.parseDouble(value); break;
+                case "--write-ms": writeMs = Double.parseDouble(value); break;
+                case "--cpu-scale": cpuScale = Double.parseDouble(value); break;
+                case "--battery": battery = Double.parseDouble(value); break;
+                case "--log-dir": logDirectory = value; break;
+                case "--max-p90-ms": maxP90Ms = Double.parseDouble(value); break;
+                case "--min-stones": minStones = Double.parseDouble(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (!opModeName.equals("auto") && !opModeName.equals("teleop")) throw new IllegalArgumentException("Unknown op mode " + opModeName);
+        if (skystone < 1 || skystone > 3) throw new IllegalArgumentException("--skystone must be 1, 2 or 3");
+        if (Double.isNaN(seconds)) seconds = opModeName.equals("auto") ? 30 : 120;
+    }
+
+    /**
+     * @return true if every gate passed
+     */
+    private boolean run() throws Exception {
+        SimRobotHardware hardware = new SimRobotHardware();
+        hardware.readNanos = (long) (readMs * 1e6);
+        hardware.writeNanos = (long) (writeMs * 1e6);
+        hardware.cpuScale = cpuScale;
+        hardware.robot.batteryVoltage = battery;
+
+        ElapsedTime.timeSource = hardware::nanoTime;
+        new File(logDirectory).mkdirs();
+        Logger.setLogDirectory(logDirectory);
+
+        // Start the Chassis Where the Op Mode Tells the Robot it Starts
+        LinearOpMode opMode;
+        TeleopScript script = null;
+        if (opModeName.equals("auto")) {
+            skyStoneDetector.simulatedPosition = skystone;
+            hardware.robot.chassis.setPose(8.625, 110, 0);
+            opMode = new fiveBlockRed() {
+                @Override
+                protected RobotHardware createHardware() {
+                    return hardware;
+                }
+            };
+        } else {
+            double[] start = Logger.readPos();
+            hardware.robot.chassis.setPose(start[0], start[1], Math.PI/2);
+            script = new TeleopScript();
+            opMode = new Teleop() {
+                @Override
+                protected RobotHardware createHardware() {
+                    return hardware;
+                }
+            };
+        }
+
+        Loops loops = new Loops(opMode, hardware, script, (long) (seconds * 1e9));
+        opMode.lifecycle = loops;
+        long start = System.nanoTime();
+        opMode.runOpMode();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        double simSeconds = (hardware.nanoTime() - loops.startNanos) / 1e9;
+
+        // Report
+        int count = loops.count;
+        if (count == 0) throw new IllegalStateException("The op mode never looped");
+        System.out.printf(Locale.ROOT, "op mode: %s, %.1f s simulated in %.2f s (%.1fx real time)%n",
+                opMode.getClass().getSuperclass().getSimpleName(), simSeconds, wallSeconds, simSeconds / wallSeconds);
+        System.out.printf(Locale.ROOT, "loops: %d, %.1f loops/s%n", count, count / simSeconds);
+        long[] loopNanos = Arrays.copyOf(loops.simNanos, count);
+        Arrays.sort(loopNanos);
+        printPercentiles("loop ms (simulated)", loopNanos, 1e6);
+        long[] codeNanos = Arrays.copyOf(loops.robotCodeNanos, count);
+        Arrays.sort(codeNanos);
+        printPercentiles("robot code us", codeNanos, 1e3);
+        System.out.printf(Locale.ROOT, "allocation: %.0f heap bytes/loop%n", (double) loops.allocatedBytes / count);
+        System.out.printf(Locale.ROOT, "transactions: %.2f per loop%n", (double) hardware.getTransactions() / count);
+
+        List<SimRobotHardware.Device> devices = hardware.getDevices();
+        devices.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+        long totalNanos = 0;
+        for (SimRobotHardware.Device device : devices) totalNanos += device.nanos;
+        System.out.printf(Locale.ROOT, "  %-18s %-10s %10s %10s %7s%n", "device", "kind", "per loop", "ms/loop", "share");
+        for (SimRobotHardware.Device device : devices) {
+            if (device.transactions == 0) continue;
+            System.out.printf(Locale.ROOT, "  %-18s %-10s %10.2f %10.3f %6.1f%%%n", device.name, device.kind,
+                    (double) device.transactions / count, device.nanos / 1e6 / count, 100.0 * device.nanos / totalNanos);
+        }
+
+        RobotSim robot = hardware.robot;
+        System.out.printf(Locale.ROOT, "stones: %d intaked, %d placed%n", robot.stonesIntaked, robot.stonesPlaced);
+        double[] odometry = Logger.readPos();
+        System.out.printf(Locale.ROOT, "final pose: x %.2f  y %.2f  theta %.3f, odometry x %.2f  y %.2f  theta %.3f%n",
+                robot.chassis.x, robot.chassis.y, robot.chassis.imuHeading(), odometry[0], odometry[1], odometry[2]);
+
+        gate("p90 loop ms", percentile(loopNanos, 90) / 1e6, maxP90Ms, false);
+        gate("stones placed", robot.stonesPlaced, minStones, true);
+
+        for (String failure : failures) System.out.println("FAIL " + failure);
+        if (failures.isEmpty()) System.out.println("PASS");
+        return failures.isEmpty();
+    }
+
+    /**
+     * Stands in for the event loop, the op mode's loop ends each time it asks if it's still active
+     */
+    private static class Loops implements LinearOpMode.Lifecycle {
+        private final LinearOpMode opMode;
+        private final SimRobotHardware hardware;
+        private final TeleopScript script;
+        private final long matchNanos;
+        private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final long threadId = Thread.currentThread().getId();
+
+        long startNanos = -1;
+        int count = 0;
+        long[] simNanos = new long[1024];
+        long[] robotCodeNanos = new long[1024];
+        long allocatedBytes = 0;
+
+        // At the Last Loop Boundary
+        private long lastSim, lastWall, lastSimulating, lastAllocated;
+
+        Loops(LinearOpMode opMode, SimRobotHardware hardware, TeleopScript script, long matchNanos) {
+            this.opMode = opMode;
+            this.hardware = hardware;
+            this.script = script;
+            this.matchNanos = matchNanos;
+        }
+
+        @Override
+        public void waitForStart() {
+            hardware.elapse(0);
+            hardware.resetDevices();
+            startNanos = hardware.nanoTime();
+            if (script != null) script.update(0, opMode.gamepad1, opMode.gamepad2);
+            mark();
+        }
+
+        @Override
+        public boolean opModeIsActive() {
+            hardware.elapse(0);
+            if (startNanos < 0) return true;
+
+            // A Loop That Never Touches the Hardware Would Stop Simulated Time
+            if (hardware.nanoTime() == lastSim) hardware.elapse(1_000_000);
+
+            long wall = System.nanoTime();
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            if (count == simNanos.length) {
+                simNanos = Arrays.copyOf(simNanos, count * 2);
+                robotCodeNanos = Arrays.copyOf(robotCodeNanos, count * 2);
+            }
+            simNanos[count] = hardware.nanoTime() - lastSim;
+            robotCodeNanos[count] = (wall - lastWall) - (hardware.getSimulatingNanos() - lastSimulating);
+            allocatedBytes += allocated - lastAllocated;
+            count++;
+
+            long elapsed = hardware.nanoTime() - startNanos;
+            if (script != null) script.update(elapsed / 1e9, opMode.gamepad1, opMode.gamepad2);
+            mark();
+            return elapsed < matchNanos;
+        }
+
+        @Override
+        public void sleep(long milliseconds) {
+            hardware.elapse(milliseconds * 1_000_000);
+        }
+
+        private void mark() {
+            lastSim = hardware.nanoTime();
+            lastSimulating = hardware.getSimulatingNanos();
+            lastAllocated = threads.getThreadAllocatedBytes(threadId);
+            lastWall = System.nanoTime();
+        }
+    }
+
+    private void gate(String name, double value, double limit, boolean atLeast) {
+        if (Double.isNaN(limit)) return;
+        if (atLeast ? value < limit : value > limit) {
+            failures.add(String.format(Locale.ROOT, "%s %.4f, limit %s %.4f", name, value, atLeast ? ">=" : "<=", limit));
+        }
+    }
+
+    private static void printPercentiles(String name, long[] sorted, double unit) {
+        System.out.printf(Locale.ROOT, "%s: p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n", name,
+                percentile(sorted, 50) / unit, percentile(sorted, 90) / unit,
+                percentile(sorted, 99) / unit, sorted[sorted.length - 1] / unit);
+    }
+
+    /**
+     * Nearest rank percentile of sorted values
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
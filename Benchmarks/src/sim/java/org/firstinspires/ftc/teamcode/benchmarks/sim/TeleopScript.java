@@ -0,0 +1,32 @@
+package org.firstinspires.ftc.teamcode.benchmarks.sim;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Drivers for simulated teleop, repeating a cycle that exercises driving and the stacker
+ * <p>Drive forward into the quarry with the intake running, strafe, turn, deposit, let go, back
+ * off, go up a level and work the foundation grabber. Buttons are held briefly since Teleop acts
+ * on their release.
+ */
+class TeleopScript {
+
+    private static final double CYCLE = 12; // s
+
+    void update(double seconds, Gamepad gamepad1, Gamepad gamepad2) {
+        double t = seconds % CYCLE;
+
+        gamepad1.left_stick_y = t < 2 ? -0.8f : t >= 8 && t < 10 ? 0.8f : 0;
+        gamepad1.left_stick_x = t >= 2 && t < 3 ? 0.6f : 0;
+        gamepad1.right_stick_x = t >= 3 && t < 4 ? 0.5f : 0;
+        gamepad1.dpad_left = held(t, 11);
+        gamepad1.dpad_right = held(t, 11.5);
+
+        gamepad2.right_bumper = held(t, 5);
+        gamepad2.left_bumper = held(t, 7);
+        gamepad2.dpad_up = held(t, 10);
+    }
+
+    private static boolean held(double t, double pressedAt) {
+        return t >= pressedAt && t < pressedAt + 0.2;
+    }
+}
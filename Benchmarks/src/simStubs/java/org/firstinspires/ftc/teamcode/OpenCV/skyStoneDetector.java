@@ -0,0 +1,24 @@
+package org.firstinspires.ftc.teamcode.OpenCV;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+/**
+ * Simulation stand in, reports {@link #simulatedPosition} instead of looking through the camera
+ */
+public class skyStoneDetector extends Thread {
+
+    public static double simulatedPosition = 1;
+
+    public skyStoneDetector(LinearOpMode opMode) {}
+
+    public void initializeCamera() {}
+
+    @Override
+    public void run() {}
+
+    public double getPosition() {return simulatedPosition;}
+
+    public void setActive(boolean active) {}
+
+    public void isAllianceRed(boolean isRed) {}
+}
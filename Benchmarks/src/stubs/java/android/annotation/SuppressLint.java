@@ -0,0 +1,8 @@
+package android.annotation;
+
+/**
+ * Benchmark stub
+ */
+public @interface SuppressLint {
+    String[] value();
+}
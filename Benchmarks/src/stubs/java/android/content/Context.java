@@ -0,0 +1,6 @@
+package android.content;
+
+/**
+ * Benchmark stub
+ */
+public class Context {}
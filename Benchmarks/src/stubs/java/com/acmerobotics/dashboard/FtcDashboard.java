@@ -0,0 +1,14 @@
+package com.acmerobotics.dashboard;
+
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+
+/**
+ * Benchmark stub, discards packets
+ */
+public class FtcDashboard {
+    private static final FtcDashboard instance = new FtcDashboard();
+
+    public static FtcDashboard getInstance() {return instance;}
+
+    public void sendTelemetryPacket(TelemetryPacket telemetryPacket) {}
+}
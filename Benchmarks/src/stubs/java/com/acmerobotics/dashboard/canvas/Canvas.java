@@ -0,0 +1,10 @@
+package com.acmerobotics.dashboard.canvas;
+
+/**
+ * Benchmark stub, discards drawing
+ */
+public class Canvas {
+    public Canvas setFill(String color) {return this;}
+
+    public Canvas fillPolygon(double[] xPoints, double[] yPoints) {return this;}
+}
@@ -0,0 +1,18 @@
+package com.acmerobotics.dashboard.telemetry;
+
+import com.acmerobotics.dashboard.canvas.Canvas;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark stub, keeps entries like the real packet so building one costs about the same
+ */
+public class TelemetryPacket {
+    private final Map<String, Object> data = new HashMap<>();
+    private final Canvas fieldOverlay = new Canvas();
+
+    public void put(String key, Object value) {data.put(key, value);}
+
+    public Canvas fieldOverlay() {return fieldOverlay;}
+}
@@ -0,0 +1,10 @@
+package com.qualcomm.hardware.bosch;
+
+/**
+ * Benchmark stub
+ */
+public interface BNO055IMU {
+    class Parameters {}
+
+    boolean initialize(Parameters parameters);
+}
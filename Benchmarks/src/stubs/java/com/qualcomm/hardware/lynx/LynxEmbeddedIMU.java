@@ -0,0 +1,23 @@
+package com.qualcomm.hardware.lynx;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.robotcore.hardware.I2cDeviceSynch;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+
+/**
+ * Benchmark stub, always reports zero heading
+ */
+public class LynxEmbeddedIMU implements BNO055IMU {
+    private final Orientation orientation = new Orientation();
+
+    public LynxEmbeddedIMU(I2cDeviceSynch deviceClient) {}
+
+    @Override
+    public boolean initialize(Parameters parameters) {return true;}
+
+    public Orientation getAngularOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit) {return orientation;}
+}
@@ -0,0 +1,12 @@
+package com.qualcomm.hardware.lynx;
+
+import android.content.Context;
+
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
+
+/**
+ * Benchmark stub
+ */
+public class LynxI2cDeviceSynchV2 implements I2cDeviceSynchSimple {
+    public LynxI2cDeviceSynchV2(Context context, LynxModule module, int bus) {}
+}
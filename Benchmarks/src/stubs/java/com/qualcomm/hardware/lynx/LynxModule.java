@@ -0,0 +1,12 @@
+package com.qualcomm.hardware.lynx;
+
+import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataResponse;
+
+/**
+ * Benchmark stub, bulk reads return {@link #bulkInputData} which benchmarks update directly
+ */
+public class LynxModule {
+    public final LynxGetBulkInputDataResponse bulkInputData = new LynxGetBulkInputDataResponse();
+
+    public String getFirmwareVersionString() {return "HW: 20, Maj: 1, Min: 8, Eng: 2";}
+}
@@ -0,0 +1,14 @@
+package com.qualcomm.hardware.lynx.commands.core;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+/**
+ * Benchmark stub
+ */
+public class LynxGetBulkInputDataCommand {
+    private final LynxModule module;
+
+    public LynxGetBulkInputDataCommand(LynxModule module) {this.module = module;}
+
+    public LynxGetBulkInputDataResponse sendReceive() throws InterruptedException {return module.bulkInputData;}
+}
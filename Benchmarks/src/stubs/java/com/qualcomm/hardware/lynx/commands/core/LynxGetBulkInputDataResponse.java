@@ -0,0 +1,16 @@
+package com.qualcomm.hardware.lynx.commands.core;
+
+/**
+ * Benchmark stub
+ */
+public class LynxGetBulkInputDataResponse {
+    public final int[] encoders = new int[4];
+    public final int[] velocities = new int[4];
+    public final int[] analogInputs = new int[4];
+
+    public int getEncoder(int motorZ) {return encoders[motorZ];}
+
+    public int getVelocity(int motorZ) {return velocities[motorZ];}
+
+    public int getAnalogInput(int inputZ) {return analogInputs[inputZ];}
+}
@@ -0,0 +1,12 @@
+package com.qualcomm.robotcore.eventloop.opmode;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Benchmark stub
+ */
+@Target(ElementType.TYPE)
+public @interface Autonomous {
+    String name() default "";
+}
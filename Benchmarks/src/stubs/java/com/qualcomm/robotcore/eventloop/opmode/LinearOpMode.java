@@ -0,0 +1,51 @@
+package com.qualcomm.robotcore.eventloop.opmode;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Benchmark stub, the op mode is started straight away and runs until {@link #lifecycle} stops it
+ */
+public class LinearOpMode {
+    public HardwareMap hardwareMap = new HardwareMap();
+    public Telemetry telemetry = new Telemetry();
+    public Gamepad gamepad1 = new Gamepad();
+    public Gamepad gamepad2 = new Gamepad();
+
+    /**
+     * Stands in for the robot controller's event loop
+     */
+    public interface Lifecycle {
+        void waitForStart();
+
+        boolean opModeIsActive();
+
+        void sleep(long milliseconds);
+    }
+
+    public Lifecycle lifecycle = new Lifecycle() {
+        @Override public void waitForStart() {}
+        @Override public boolean opModeIsActive() {return true;}
+        @Override public void sleep(long milliseconds) {
+            try {
+                Thread.sleep(milliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    public void runOpMode() throws InterruptedException {}
+
+    public void waitForStart() {lifecycle.waitForStart();}
+
+    public final boolean opModeIsActive() {return lifecycle.opModeIsActive();}
+
+    public final boolean isStopRequested() {return !lifecycle.opModeIsActive();}
+
+    public final void sleep(long milliseconds) {lifecycle.sleep(milliseconds);}
+
+    public final void idle() {Thread.yield();}
+}
@@ -0,0 +1,16 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public interface DcMotor extends DcMotorSimple {
+    enum RunMode {RUN_WITHOUT_ENCODER, RUN_USING_ENCODER, RUN_TO_POSITION, STOP_AND_RESET_ENCODER}
+
+    enum ZeroPowerBehavior {UNKNOWN, BRAKE, FLOAT}
+
+    void setMode(RunMode mode);
+
+    void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior);
+
+    void setTargetPosition(int position);
+}
@@ -0,0 +1,12 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public interface DcMotorEx extends DcMotor {
+    void setTargetPositionTolerance(int tolerance);
+
+    void setVelocityPIDFCoefficients(double p, double i, double d, double f);
+
+    void setPositionPIDFCoefficients(double p);
+}
@@ -0,0 +1,12 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public interface DcMotorSimple {
+    enum Direction {FORWARD, REVERSE}
+
+    void setDirection(Direction direction);
+    void setPower(double power);
+    double getPower();
+}
@@ -0,0 +1,12 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub, fields are set by whatever drives the op mode
+ */
+public class Gamepad {
+    public float left_stick_x, left_stick_y, right_stick_x, right_stick_y;
+    public float left_trigger, right_trigger;
+    public boolean dpad_up, dpad_down, dpad_left, dpad_right;
+    public boolean a, b, x, y;
+    public boolean left_bumper, right_bumper;
+}
@@ -0,0 +1,25 @@
+package com.qualcomm.robotcore.hardware;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark stub, devices are registered with {@link #put(String, Object)}
+ */
+public class HardwareMap {
+    public Context appContext = new Context();
+    public final List<VoltageSensor> voltageSensor = new ArrayList<>();
+    private final Map<String, Object> devices = new HashMap<>();
+
+    public void put(String deviceName, Object device) {devices.put(deviceName, device);}
+
+    public <T> T get(Class<? extends T> classOrInterface, String deviceName) {
+        Object device = devices.get(deviceName);
+        if (device == null) throw new IllegalArgumentException("Unable to find a hardware device with name \"" + deviceName + "\"");
+        return classOrInterface.cast(device);
+    }
+}
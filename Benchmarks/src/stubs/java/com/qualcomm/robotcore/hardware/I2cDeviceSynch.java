@@ -0,0 +1,10 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public interface I2cDeviceSynch extends I2cDeviceSynchSimple {
+    class ReadWindow {}
+
+    void setReadWindow(ReadWindow window);
+}
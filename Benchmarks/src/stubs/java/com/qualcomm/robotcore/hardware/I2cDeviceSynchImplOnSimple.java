@@ -0,0 +1,11 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public class I2cDeviceSynchImplOnSimple implements I2cDeviceSynch {
+    public I2cDeviceSynchImplOnSimple(I2cDeviceSynchSimple simple, boolean isSimpleOwned) {}
+
+    @Override
+    public void setReadWindow(ReadWindow window) {}
+}
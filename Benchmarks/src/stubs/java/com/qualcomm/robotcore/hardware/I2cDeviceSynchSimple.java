@@ -0,0 +1,6 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public interface I2cDeviceSynchSimple {}
@@ -0,0 +1,8 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Benchmark stub
+ */
+public interface VoltageSensor {
+    double getVoltage();
+}
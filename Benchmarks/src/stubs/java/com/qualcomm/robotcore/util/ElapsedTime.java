@@ -0,0 +1,18 @@
+package com.qualcomm.robotcore.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmark stub, reads {@link #timeSource} so a simulation can run op modes faster than real time
+ */
+public class ElapsedTime {
+    public static LongSupplier timeSource = System::nanoTime;
+
+    private long startNanos = timeSource.getAsLong();
+
+    public void reset() {startNanos = timeSource.getAsLong();}
+
+    public double milliseconds() {return (timeSource.getAsLong() - startNanos) / 1e6;}
+
+    public double seconds() {return (timeSource.getAsLong() - startNanos) / 1e9;}
+}
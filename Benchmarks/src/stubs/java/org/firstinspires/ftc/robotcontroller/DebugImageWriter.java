@@ -0,0 +1,16 @@
+package org.firstinspires.ftc.robotcontroller;
+
+import org.opencv.core.Mat;
+
+/**
+ * Benchmark stub, never captures so debug images don't skew timings
+ */
+public class DebugImageWriter {
+    private static final DebugImageWriter instance = new DebugImageWriter();
+
+    public static DebugImageWriter getInstance() {return instance;}
+
+    public boolean shouldCapture(int frameNum) {return false;}
+
+    public boolean submit(String path, Mat image) {return false;}
+}
@@ -0,0 +1,10 @@
+package org.firstinspires.ftc.robotcontroller;
+
+import org.opencv.core.Mat;
+
+/**
+ * Benchmark stub, there is no camera
+ */
+public class FrameGrabber {
+    public Mat getNextMat() {return null;}
+}
@@ -0,0 +1,14 @@
+package org.firstinspires.ftc.robotcontroller.internal;
+
+import org.firstinspires.ftc.robotcontroller.FrameGrabber;
+
+/**
+ * Benchmark stub
+ */
+public class FtcRobotControllerActivity {
+    public static FrameGrabber frameGrabber = new FrameGrabber();
+
+    public static void enableCameraView() {}
+
+    public static void disableCameraView() {}
+}
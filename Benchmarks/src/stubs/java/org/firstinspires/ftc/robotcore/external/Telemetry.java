@@ -0,0 +1,12 @@
+package org.firstinspires.ftc.robotcore.external;
+
+/**
+ * Benchmark stub, discards telemetry
+ */
+public class Telemetry {
+    public Telemetry addLine(String lineCaption) {return this;}
+
+    public Telemetry addData(String caption, Object value) {return this;}
+
+    public boolean update() {return true;}
+}
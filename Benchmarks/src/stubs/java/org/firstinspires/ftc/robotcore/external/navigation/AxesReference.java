@@ -0,0 +1,6 @@
+package org.firstinspires.ftc.robotcore.external.navigation;
+
+/**
+ * Benchmark stub
+ */
+public enum AxesReference {EXTRINSIC, INTRINSIC}
@@ -0,0 +1,10 @@
+package org.firstinspires.ftc.robotcore.external.navigation;
+
+/**
+ * Benchmark stub
+ */
+public class Orientation {
+    public float firstAngle;
+    public float secondAngle;
+    public float thirdAngle;
+}
@@ -0,0 +1,8 @@
+package org.opencv.android;
+
+/**
+ * Benchmark stub, the desktop OpenCV build is loaded by the harness
+ */
+public class OpenCVLoader {
+    public static final String OPENCV_VERSION = "desktop";
+}
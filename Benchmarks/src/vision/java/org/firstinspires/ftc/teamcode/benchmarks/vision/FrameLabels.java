@@ -0,0 +1,68 @@
+package org.firstinspires.ftc.teamcode.benchmarks.vision;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Expected detections for recorded frames, read from a CSV file
+ * <p>Each line is {@code frame,position,x,y,theta}: the frame's file name, the skystone position
+ * (1 = left, 2 = middle, 3 = right) and the stone's x, y (in) and theta (rad). Leave a field empty
+ * when it isn't labeled, and start a line with # for a comment. A header line is skipped.
+ */
+public class FrameLabels {
+
+    /**
+     * Labels of one frame, -1 position or NaN for fields that aren't labeled
+     */
+    public static class Label {
+        public final int position;
+        public final double x, y, theta;
+
+        Label(int position, double x, double y, double theta) {
+            this.position = position;
+            this.x = x;
+            this.y = y;
+            this.theta = theta;
+        }
+    }
+
+    private final Map<String, Label> labels = new HashMap<>();
+
+    public static FrameLabels read(String path) throws IOException {
+        FrameLabels result = new FrameLabels();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || (lineNumber == 1 && line.startsWith("frame"))) continue;
+
+                String[] fields = line.split(",", -1);
+                if (fields.length != 5) throw new IOException(path + ":" + lineNumber + ": expected frame,position,x,y,theta");
+                try {
+                    result.labels.put(fields[0].trim(), new Label(
+                            fields[1].trim().isEmpty() ? -1 : Integer.parseInt(fields[1].trim()),
+                            parse(fields[2]), parse(fields[3]), parse(fields[4])));
+                } catch (NumberFormatException e) {
+                    throw new IOException(path + ":" + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double parse(String field) {
+        return field.trim().isEmpty() ? Double.NaN : Double.parseDouble(field.trim());
+    }
+
+    /**
+     * Gets the labels of a frame, or null if it has none
+     */
+    public Label get(String frame) {return labels.get(frame);}
+
+    public int size() {return labels.size();}
+}
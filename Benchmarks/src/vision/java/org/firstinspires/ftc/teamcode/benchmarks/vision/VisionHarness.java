@@ -0,0 +1,337 @@
+package org.firstinspires.ftc.teamcode.benchmarks.vision;
+
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.FrameContext;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.OpenCvInputFormat;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.StageTimer;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs a vision pipeline over a directory of recorded frames on the desktop JVM
+ * <p>Frames are decoded and converted to what the pipeline expects before timing starts, so the
+ * timings are of the pipeline alone. Reports latency percentiles, of the whole pipeline and of each
+ * stage for pipelines with a {@linkplain StageTimer}, frames per second, Java heap
+ * allocation per frame (native Mat memory is not counted) and, given a labels file, detection
+ * accuracy. Exits with status 1 when any of the given gates fails, so it can guard merges.
+ * <p>Run with {@code ./gradlew :Benchmarks:visionHarness --args="..."}, options:
+ * <pre>
+ *   --frames DIR                 recorded frames (.jpg / .png), required
+ *   --labels FILE                expected detections, see {@linkplain FrameLabels}
+ *   --pipeline NAME              skystone (default), stone, or a pipeline class name
+ *   --blue                       score the skystone pipeline for the blue alliance
+ *   --tracking                   let the stone locator track between frames (in file name order)
+ *   --warmup N                   untimed passes over the frames first, default 1
+ *   --repeat N                   timed passes over the frames, default 3
+ *   --min-position-accuracy F    gate, fraction of labeled frames with the right skystone position
+ *   --max-xy-error IN            gate, mean x and y error (in) of labeled frames
+ *   --max-theta-error RAD        gate, mean theta error of labeled frames
+ *   --max-miss-rate F            gate, fraction of labeled frames with no stone detected
+ *   --max-p90-ms MS              gate, 90th percentile pipeline time
+ *   --min-fps FPS                gate, pipeline frames per second
+ *   --max-alloc-bytes B          gate, Java heap bytes allocated per frame
+ * </pre>
+ */
+public class VisionHarness {
+
+    private static final Size recordedSize = new Size(240, 180);
+
+    private String framesPath;
+    private String labelsPath;
+    private String pipelineName = "skystone";
+    private boolean isRed = true;
+    private boolean tracking = false;
+    private int warmup = 1;
+    private int repeat = 3;
+    private double minPositionAccuracy = Double.NaN;
+    private double maxXYError = Double.NaN;
+    private double maxThetaError = Double.NaN;
+    private double maxMissRate = Double.NaN;
+    private double maxP90Ms = Double.NaN;
+    private double minFps = Double.NaN;
+    private double maxAllocBytes = Double.NaN;
+
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        nu.pattern.OpenCV.loadLocally();
+        VisionHarness harness = new VisionHarness();
+        try {
+            harness.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        System.exit(harness.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--blue": isRed = false; continue;
+                case "--tracking": tracking = true; continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--frames": framesPath = value; break;
+                case "--labels": labelsPath = value; break;
+                case "--pipeline": pipelineName = value; break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--repeat": repeat = Math.max(1, Integer.parseInt(value)); break;
+                case "--min-position-accuracy": minPositionAccuracy = Double.parseDouble(value); break;
+                case "--max-xy-error": maxXYError = Double.parseDouble(value); break;
+                case "--max-theta-error": maxThetaError = Double.parseDouble(value); break;
+                case "--max-miss-rate": maxMissRate = Double.parseDouble(value); break;
+                case "--max-p90-ms": maxP90Ms = Double.parseDouble(value); break;
+                case "--min-fps": minFps = Double.parseDouble(value); break;
+                case "--max-alloc-bytes": maxAllocBytes = Double.parseDouble(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (framesPath == null) throw new IllegalArgumentException("--frames is required");
+    }
+
+    private VisionSubject subject() throws ReflectiveOperationException {
+        switch (pipelineName) {
+            case "skystone": return VisionSubject.skyStone(isRed);
+            case "stone": return VisionSubject.stoneLocator(tracking);
+            default: return VisionSubject.forClass(pipelineName);
+        }
+    }
+
+    /**
+     * @return true if every gate passed
+     */
+    private boolean run() throws Exception {
+        VisionSubject subject = subject();
+        FrameLabels labels = labelsPath == null ? null : FrameLabels.read(labelsPath);
+
+        // Decode and Convert Every Frame Up Front
+        File[] files = new File(framesPath).listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        if (files == null || files.length == 0) throw new IllegalArgumentException("No frames in " + framesPath);
+        Arrays.sort(files, (a, b) -> naturalCompare(a.getName(), b.getName()));
+
+        Mat[] frames = new Mat[files.length];
+        long[] conversionNanos = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            Mat recorded = Imgcodecs.imread(files[i].getPath(), Imgcodecs.IMREAD_COLOR);
+            if (recorded.empty()) throw new IllegalArgumentException("Could not read " + files[i]);
+            long start = System.nanoTime();
+            frames[i] = convert(recorded, subject);
+            conversionNanos[i] = System.nanoTime() - start;
+            recorded.release();
+        }
+
+        // The Pipeline May Draw on its Input, so Each Pass Gets a Fresh Copy
+        Mat work = new Mat();
+        FrameContext context = new FrameContext();
+        long sequence = 0;
+        for (int pass = 0; pass < warmup; pass++) {
+            for (Mat frame : frames) {
+                frame.copyTo(work);
+                long now = System.nanoTime();
+                context.set(++sequence, now, now);
+                subject.process(work, context);
+            }
+        }
+
+        // Timed Passes, Scored on the First
+        Score score = new Score();
+        long[] pipelineNanos = new long[frames.length * repeat];
+        StageTimer stages = subject.stages;
+        long[][] stageNanos = new long[stages == null ? 0 : stages.getStageCount()][frames.length * repeat];
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocated = 0;
+        long totalNanos = 0;
+        for (int pass = 0; pass < repeat; pass++) {
+            for (int i = 0; i < frames.length; i++) {
+                frames[i].copyTo(work);
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                context.set(++sequence, start, start);
+                subject.process(work, context);
+                long elapsed = System.nanoTime() - start;
+                allocated += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                pipelineNanos[pass * frames.length + i] = elapsed;
+                for (int stage = 0; stage < stageNanos.length; stage++) stageNanos[stage][pass * frames.length + i] = stages.getStageNanos(stage);
+                totalNanos += elapsed;
+
+                if (pass == 0 && labels != null) score.add(subject, labels.get(files[i].getName()));
+            }
+        }
+
+        // Report
+        System.out.println("pipeline: " + subject.name + ", " + frames.length + " frames " + (int) frames[0].size().width + "x" + (int) frames[0].size().height + ", " + repeat + " timed passes");
+        printLatency("conversion", conversionNanos);
+        printLatency("pipeline", pipelineNanos);
+        for (int stage = 0; stage < stageNanos.length; stage++) printLatency("  " + stages.getStageName(stage), stageNanos[stage]);
+        double fps = pipelineNanos.length / (totalNanos / 1e9);
+        double allocPerFrame = (double) allocated / pipelineNanos.length;
+        System.out.printf(Locale.ROOT, "throughput: %.1f frames/s%n", fps);
+        System.out.printf(Locale.ROOT, "allocation: %.0f heap bytes/frame%n", allocPerFrame);
+        if (labels != null) score.print(labels.size());
+
+        Arrays.sort(pipelineNanos);
+        gate("p90 ms", percentile(pipelineNanos, 90) / 1e6, maxP90Ms, false);
+        gate("frames/s", fps, minFps, true);
+        gate("heap bytes/frame", allocPerFrame, maxAllocBytes, false);
+        gate("position accuracy", score.positionAccuracy(), minPositionAccuracy, true);
+        gate("mean x error", score.meanXError(), maxXYError, false);
+        gate("mean y error", score.meanYError(), maxXYError, false);
+        gate("mean theta error", score.meanThetaError(), maxThetaError, false);
+        gate("miss rate", score.missRate(), maxMissRate, false);
+
+        for (String failure : failures) System.out.println("FAIL " + failure);
+        if (failures.isEmpty()) System.out.println("PASS");
+        return failures.isEmpty();
+    }
+
+    /**
+     * Turns a recorded (BGR) frame into what the pipeline gets on the robot
+     */
+    private Mat convert(Mat recorded, VisionSubject subject) {
+        Mat frame = new Mat();
+        if (subject.input == VisionSubject.Input.RECORDED) {
+            Imgproc.resize(recorded, frame, recordedSize);
+            return frame;
+        }
+
+        OpenCvInputFormat format = subject.pipeline.getInputFormat();
+        switch (format) {
+            case RGBA:
+                Imgproc.cvtColor(recorded, frame, Imgproc.COLOR_BGR2RGBA);
+                break;
+            case GRAY:
+                Imgproc.cvtColor(recorded, frame, Imgproc.COLOR_BGR2GRAY);
+                break;
+            case RGB_HALF:
+                Mat rgb = new Mat();
+                Imgproc.cvtColor(recorded, rgb, Imgproc.COLOR_BGR2RGB);
+                Imgproc.resize(rgb, frame, new Size(recorded.cols() / 2, recorded.rows() / 2), 0, 0, Imgproc.INTER_NEAREST);
+                rgb.release();
+                break;
+            default:
+                throw new IllegalArgumentException("Recorded frames can't be converted to " + format);
+        }
+        return frame;
+    }
+
+    private void gate(String name, double value, double limit, boolean atLeast) {
+        if (Double.isNaN(limit)) return;
+        if (Double.isNaN(value)) {
+            failures.add(name + ": nothing to score (no labels for it?)");
+        } else if (atLeast ? value < limit : value > limit) {
+            failures.add(String.format(Locale.ROOT, "%s %.4f, limit %s %.4f", name, value, atLeast ? ">=" : "<=", limit));
+        }
+    }
+
+    private static void printLatency(String stage, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "%s ms: p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n", stage,
+                percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                percentile(sorted, 99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Nearest rank percentile of sorted values
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * Orders input2.jpg before input10.jpg
+     */
+    private static int naturalCompare(String a, String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i), cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int startA = i, startB = j;
+                while (i < a.length() && Character.isDigit(a.charAt(i))) i++;
+                while (j < b.length() && Character.isDigit(b.charAt(j))) j++;
+                int compare = Long.compare(Long.parseLong(a.substring(startA, i)), Long.parseLong(b.substring(startB, j)));
+                if (compare != 0) return compare;
+            } else {
+                if (ca != cb) return Character.compare(ca, cb);
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * Detection accuracy over the labeled frames
+     */
+    private static class Score {
+        private int positionLabeled, positionCorrect;
+        private int poseLabeled, poseMissed;
+        private int xCount, yCount, thetaCount;
+        private double xError, yError, thetaError;
+
+        void add(VisionSubject subject, FrameLabels.Label label) {
+            if (label == null) return;
+
+            if (label.position != -1 && subject.position != null) {
+                positionLabeled++;
+                if (subject.position.read() == label.position) positionCorrect++;
+            }
+
+            boolean posed = !Double.isNaN(label.x) || !Double.isNaN(label.y) || !Double.isNaN(label.theta);
+            if (posed && subject.pose != null) {
+                poseLabeled++;
+                double[] pose = subject.pose.read();
+                if (pose == null) {
+                    poseMissed++;
+                    return;
+                }
+                if (!Double.isNaN(label.x)) {xError += Math.abs(pose[0] - label.x); xCount++;}
+                if (!Double.isNaN(label.y)) {yError += Math.abs(pose[1] - label.y); yCount++;}
+                if (!Double.isNaN(label.theta)) {
+                    // Stones Look the Same Turned Half Way Around
+                    double error = Math.abs(pose[2] - label.theta) % Math.PI;
+                    thetaError += Math.min(error, Math.PI - error);
+                    thetaCount++;
+                }
+            }
+        }
+
+        double positionAccuracy() {return positionLabeled == 0 ? Double.NaN : (double) positionCorrect / positionLabeled;}
+
+        double meanXError() {return xCount == 0 ? Double.NaN : xError / xCount;}
+
+        double meanYError() {return yCount == 0 ? Double.NaN : yError / yCount;}
+
+        double meanThetaError() {return thetaCount == 0 ? Double.NaN : thetaError / thetaCount;}
+
+        double missRate() {return poseLabeled == 0 ? Double.NaN : (double) poseMissed / poseLabeled;}
+
+        void print(int labelCount) {
+            System.out.println("labels: " + labelCount);
+            if (positionLabeled > 0) {
+                System.out.printf(Locale.ROOT, "position accuracy: %.3f (%d/%d)%n", positionAccuracy(), positionCorrect, positionLabeled);
+            }
+            if (poseLabeled > 0) {
+                System.out.printf(Locale.ROOT, "stone: miss rate %.3f (%d/%d), mean error x %.2f in, y %.2f in, theta %.3f rad%n",
+                        missRate(), poseMissed, poseLabeled, meanXError(), meanYError(), meanThetaError());
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.firstinspires.ftc.teamcode.benchmarks.vision;
+
+import org.firstinspires.ftc.teamcode.OpenCV.SkyStonePipeline;
+import org.firstinspires.ftc.teamcode.OpenCV.stoneLocator2;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.FrameContext;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.OpenCvPipeline;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.StageTimer;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import org.opencv.core.Mat;
+
+/**
+ * A pipeline under test, and how to read its detection back out
+ * <p>Detections use the same conventions as {@linkplain FrameLabels}; subjects that only detect some
+ * fields leave the others at -1 / NaN, and those fields are not scored.
+ */
+public class VisionSubject {
+
+    /**
+     * Frame color order and size the pipeline expects
+     */
+    public enum Input {
+        /** Frames as recorded by FrameGrabber (BGR), resized to the 240x180 it delivers on the robot */
+        RECORDED,
+        /** Whatever the pipeline's getInputFormat() asks the webcam for, at the recorded size */
+        PIPELINE_FORMAT,
+    }
+
+    final String name;
+    final OpenCvPipeline pipeline;
+    final Input input;
+    final PositionReader position;
+    final PoseReader pose;
+    /** Null when the pipeline doesn't time its stages */
+    final StageTimer stages;
+
+    interface PositionReader {
+        int read();
+    }
+
+    interface PoseReader {
+        /** @return x, y, theta, or null when nothing was detected */
+        double[] read();
+    }
+
+    private VisionSubject(String name, OpenCvPipeline pipeline, Input input, PositionReader position, PoseReader pose, StageTimer stages) {
+        this.name = name;
+        this.pipeline = pipeline;
+        this.input = input;
+        this.position = position;
+        this.pose = pose;
+        this.stages = stages;
+    }
+
+    /**
+     * {@linkplain SkyStonePipeline} on FrameGrabber frames, scored on skystone position
+     */
+    public static VisionSubject skyStone(boolean isRed) {
+        final SkyStonePipeline pipeline = new SkyStonePipeline();
+        pipeline.isAllianceRed(isRed);
+        return new VisionSubject("skystone", pipeline, Input.RECORDED, () -> (int) pipeline.getPosition(), null, pipeline.getStageTimer());
+    }
+
+    /**
+     * {@linkplain stoneLocator2}'s detection on FrameGrabber frames, scored on stone x, y and theta
+     * @param tracking whether frames are treated as a sequence (windowed search and filtering)
+     */
+    public static VisionSubject stoneLocator(boolean tracking) {
+        final stoneLocator2 locator = new stoneLocator2(new LinearOpMode());
+        locator.setTracking(tracking);
+        OpenCvPipeline pipeline = new OpenCvPipeline() {
+            @Override
+            public Mat processFrame(Mat input) {
+                locator.processFrame(input);
+                return input;
+            }
+        };
+        return new VisionSubject("stone", pipeline, Input.RECORDED, null, () -> {
+            double[] location = locator.getLocation();
+            return location[1] == -1 ? null : location;
+        }, locator.getStageTimer());
+    }
+
+    /**
+     * Any pipeline with a no argument constructor, timed only
+     */
+    public static VisionSubject forClass(String className) throws ReflectiveOperationException {
+        OpenCvPipeline pipeline = (OpenCvPipeline) Class.forName(className).getDeclaredConstructor().newInstance();
+        return new VisionSubject(className, pipeline, Input.PIPELINE_FORMAT, null, null, pipeline.getStageTimer());
+    }
+
+    Mat process(Mat frame, FrameContext context) {
+        return pipeline.processFrame(frame, context);
+    }
+}
@@ -0,0 +1,127 @@
+package org.firstinspires.ftc.robotcontroller;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes debug images to the SD card on a background thread
+ * <p>Images are copied into a fixed pool of recycled Mats and encoded by a single low priority
+ * thread, so vision threads never wait on JPEG encoding or SD card writes. When every pooled Mat is
+ * waiting to be written, new images are dropped instead of blocking the caller.
+ * <p>Callers check {@link #shouldCapture(int)} once per frame and submit every stage of that frame,
+ * which keeps all stages of a sampled frame together. Frames are sampled every
+ * {@link #setSampleEvery(int) Nth frame}, and for a short window after {@link #requestCapture()} so
+ * every vision class captures the frame it is working on.
+ */
+public class DebugImageWriter {
+
+    private static final int POOL_SIZE = 8;
+    private static final long REQUEST_WINDOW_NANOS = 250_000_000L;
+    private static DebugImageWriter instance;
+
+    private final ArrayBlockingQueue<Slot> free = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final ArrayBlockingQueue<Slot> pending = new ArrayBlockingQueue<>(POOL_SIZE);
+    private volatile long captureRequestedUntil = System.nanoTime();
+    private volatile boolean enabled = true;
+    private volatile int sampleEvery = 10;
+    private volatile int written = 0;
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    private static class Slot {
+        private final Mat mat = new Mat();
+        private String path;
+    }
+
+    private DebugImageWriter() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.offer(new Slot());
+        }
+        Thread encoder = new Thread(this::run, "DebugImageWriter");
+        encoder.setDaemon(true);
+        encoder.setPriority(Thread.MIN_PRIORITY);
+        encoder.start();
+    }
+
+    /**
+     * Gets the shared writer, starting its thread on first use
+     */
+    public static synchronized DebugImageWriter getInstance() {
+        if (instance == null) instance = new DebugImageWriter();
+        return instance;
+    }
+
+    /**
+     * Decides whether a frame's debug images should be captured, call once per frame
+     * @param frameNum number of the frame being processed
+     * @return true if the frame is sampled or a capture was requested
+     */
+    public boolean shouldCapture(int frameNum) {
+        if (!enabled) return false;
+        int every = sampleEvery;
+        return (every > 0 && frameNum % every == 0) || System.nanoTime() - captureRequestedUntil < 0;
+    }
+
+    /**
+     * Copies an image into the pool and queues it to be written
+     * @return false if the image was dropped because the pool was full
+     */
+    public boolean submit(String path, Mat image) {
+        Slot slot = free.poll();
+        if (slot == null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        image.copyTo(slot.mat);
+        slot.path = path;
+        pending.offer(slot);
+        return true;
+    }
+
+    /**
+     * Captures the next frames regardless of sampling
+     */
+    public void requestCapture() {captureRequestedUntil = System.nanoTime() + REQUEST_WINDOW_NANOS;}
+
+    /**
+     * Sets how often frames are sampled
+     * @param sampleEvery capture every Nth frame, 0 to capture only on request
+     */
+    public void setSampleEvery(int sampleEvery) {this.sampleEvery = sampleEvery;}
+
+    /**
+     * Sets whether any debug images are captured
+     */
+    public void setEnabled(boolean enabled) {this.enabled = enabled;}
+
+    /**
+     * Gets the number of images written since start
+     */
+    public int getWrittenCount() {return written;}
+
+    /**
+     * Gets the number of images dropped because the pool was full
+     */
+    public int getDroppedCount() {return dropped.get();}
+
+    private void run() {
+        while (true) {
+            Slot slot;
+            try {
+                slot = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (Imgcodecs.imwrite(slot.path, slot.mat)) written++;
+                else Log.w("debug-images", "could not write " + slot.path);
+            } catch (Exception e) {e.printStackTrace();}
+            slot.path = null;
+            free.offer(slot);
+        }
+    }
+}
@@ -7,14 +7,21 @@ import org.opencv.android.CameraBridgeViewBase.CvCameraViewListener2;
 import org.opencv.android.CameraBridgeViewBase.CvCameraViewFrame;
 import org.opencv.core.Mat;
 import org.opencv.core.Size;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * OpenCV Camera Interface
  * <p>Used to get camera frames
+ * <p>Frames are handed to the consumer through three recycled buffers. The camera thread resizes
+ * into its back buffer and swaps it with the middle buffer, and {@link #getNextMat()} swaps the
+ * middle buffer with the front buffer once a new frame is in it, so neither side waits on the other
+ * and the consumer never sees a buffer being written. Frames the consumer is too slow for are
+ * overwritten. Supports one consumer thread at a time.
  */
 
 @SuppressLint("SdCardPath")
@@ -22,7 +29,22 @@ public class FrameGrabber implements CvCameraViewListener2 {
 
     private final String outputPath = "/sdcard/FIRST/input/input";
     private int saveCount = 1;
-    private Mat curMat;
+    private final DebugImageWriter debugImages = DebugImageWriter.getInstance();
+
+    // Triple Buffer, Exchange Holds the Middle Index and Whether it Holds an Unread Frame
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+    private static final long defaultTimeoutMs = 250;
+    private static final Size frameSize = new Size(240, 180);
+    private final Mat[] buffers = {new Mat(), new Mat(), new Mat()};
+    private final long[] sequences = new long[3];
+    private final AtomicInteger exchange = new AtomicInteger(1);
+    private final Mat recoloredFrame = new Mat();
+    private int back = 2;
+    private int front = 0;
+    private volatile long produced = 0;
+    private long lastSequence = 0;
+    private volatile Thread waiter;
 
     public FrameGrabber() {}
 
@@ -48,22 +70,61 @@ public class FrameGrabber implements CvCameraViewListener2 {
     @Override
     public Mat onCameraFrame(CvCameraViewFrame cameraFrame) {
         Mat inputFrame = cameraFrame.rgba();
-        Mat recoloredFrame = new Mat();
         Imgproc.cvtColor(inputFrame, recoloredFrame, Imgproc.COLOR_BGR2RGB);
-        Imgcodecs.imwrite(outputPath + saveCount + ".jpg", recoloredFrame); saveCount++;
-        Mat resizedFrame = new Mat();
-        Imgproc.resize(recoloredFrame, resizedFrame, new Size(240, 180));
-        curMat = resizedFrame;
+        if (debugImages.shouldCapture(saveCount)) debugImages.submit(outputPath + saveCount + ".jpg", recoloredFrame);
+        saveCount++;
+
+        // Fill the Back Buffer and Publish it as the Middle Buffer
+        Imgproc.resize(recoloredFrame, buffers[back], frameSize);
+        sequences[back] = ++produced;
+        back = exchange.getAndSet(back | FRESH) & INDEX;
+        Thread consumer = waiter;
+        if (consumer != null) LockSupport.unpark(consumer);
         return inputFrame;
     }
-    
+
     /**
-     * Returns the most recent camera frame (downsized to 240x180)
-     * @return Most recent camera frame
+     * Waits for a camera frame newer than the last one returned (downsized to 240x180)
+     * <p>The returned Mat is reused, it is valid until the next call and must not be released
+     * @return Newest camera frame, or null if none arrived within 250 ms
      */
     public Mat getNextMat() {
-        //if (saveCount < 2000) Imgcodecs.imwrite(outputPath + saveCount + ".jpg", curMat); saveCount++;
-        return curMat;
+        return getNextMat(defaultTimeoutMs);
+    }
+
+    /**
+     * Waits for a camera frame newer than the last one returned (downsized to 240x180)
+     * <p>The returned Mat is reused, it is valid until the next call and must not be released
+     * @param timeoutMs longest time to wait for a frame
+     * @return Newest camera frame, or null on timeout or interrupt
+     */
+    public Mat getNextMat(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while ((exchange.get() & FRESH) == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) return null;
+            waiter = Thread.currentThread();
+            if ((exchange.get() & FRESH) == 0) LockSupport.parkNanos(this, remaining);
+            waiter = null;
+        }
+        front = exchange.getAndSet(front) & INDEX;
+        lastSequence = sequences[front];
+        return buffers[front];
+    }
+
+    /**
+     * Gets the sequence number of the frame last returned by {@link #getNextMat()}, starting at 1
+     * <p>Gaps between consecutive frames are frames the camera produced that were never read
+     */
+    public long getFrameSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the number of frames the camera has produced
+     */
+    public long getFramesProduced() {
+        return produced;
     }
 
     private void log(String message) {Log.w("opencv-grabber", message);}
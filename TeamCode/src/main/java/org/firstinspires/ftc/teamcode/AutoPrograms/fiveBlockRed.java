@@ -6,6 +6,8 @@ import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
 import org.firstinspires.ftc.teamcode.OpenCV.skyStoneDetector;
 import org.firstinspires.ftc.teamcode.RobotClasses.Robot;
 import org.firstinspires.ftc.teamcode.Splines.Path;
@@ -33,7 +35,7 @@ public class fiveBlockRed extends LinearOpMode {
         detector.isAllianceRed(true);
 
         // Initialize Robot
-        robot = new Robot(this, 8.625, 110, 0, true);
+        robot = new Robot(this, createHardware(), 8.625, 110, 0, true);
         robot.logger.startLogging();
         robot.intake.setControls(0);
         robot.stacker.unClampStone();
@@ -148,12 +150,12 @@ public class fiveBlockRed extends LinearOpMode {
 
         robot.intake.setControls(robot.intakePower);
         sleep(33);
-        double starttime = System.currentTimeMillis();
+        double starttime = robot.clock.millis();
 
         // Robot Move Loop
         while (opModeIsActive()) {
 
-            double timesincestart = System.currentTimeMillis()-starttime;
+            double timesincestart = robot.clock.millis()-starttime;
 
             // Update Robot's Location and States
             robot.update();
@@ -504,7 +506,7 @@ public class fiveBlockRed extends LinearOpMode {
 
             //adding relevant information to telemetry
 //            robot.addPacket("Battery Voltage", robot.getBatteryVoltage());
-            robot.addPacket("Time", (System.currentTimeMillis()-robot.startTime)/1000);
+            robot.addPacket("Time", (robot.clock.millis()-robot.startTime)/1000);
             robot.addPacket("Skystone Position", skystonePos);
         }
 
@@ -515,4 +517,11 @@ public class fiveBlockRed extends LinearOpMode {
     public void log(String message) {
         Log.w("auto", message);
     }
+
+    /**
+     * Hardware the robot runs on, overridden to run this op mode against a simulation
+     */
+    protected RobotHardware createHardware() {
+        return new FtcRobotHardware(this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+/**
+ * Inputs of a hub from one bulk read, ports are numbered from zero
+ */
+public class BulkData {
+
+    public static final int PORTS = 4;
+
+    public final int[] encoders = new int[PORTS];
+    public final int[] velocities = new int[PORTS]; // Ticks/Second
+    public final int[] analogInputs = new int[PORTS]; // Millivolts
+
+    public int getEncoder(int port) {
+        return encoders[port];
+    }
+
+    public int getVelocity(int port) {
+        return velocities[port];
+    }
+
+    public int getAnalogInput(int port) {
+        return analogInputs[port];
+    }
+}
@@ -0,0 +1,15 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+/**
+ * A hub whose encoders, encoder velocities and analog inputs are read together in one transaction
+ */
+public interface BulkReadSource {
+
+    /**
+     * Reads every input of the hub
+     * @return the hub's inputs, reused between reads, or null if the read failed
+     */
+    BulkData read();
+
+    String getFirmwareVersion();
+}
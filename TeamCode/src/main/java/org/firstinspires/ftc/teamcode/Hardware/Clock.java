@@ -0,0 +1,12 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+/**
+ * Time as the robot sees it, so a simulation can run faster than real time
+ */
+public interface Clock {
+
+    /**
+     * @return milliseconds, only differences between calls are meaningful
+     */
+    long millis();
+}
@@ -0,0 +1,172 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.hardware.lynx.LynxEmbeddedIMU;
+import com.qualcomm.hardware.lynx.LynxI2cDeviceSynchV2;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataCommand;
+import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataResponse;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchImplOnSimple;
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+
+/**
+ * The robot's hardware through the op mode's hardware map
+ */
+public class FtcRobotHardware implements RobotHardware {
+
+    private static final Clock systemClock = System::currentTimeMillis;
+
+    private LinearOpMode op;
+    private HardwareMap hardwareMap;
+
+    public FtcRobotHardware(LinearOpMode op) {
+        this.op = op;
+        this.hardwareMap = op.hardwareMap;
+    }
+
+    @Override
+    public Motor motor(String name) {
+        return new FtcMotor(hardwareMap.get(DcMotorEx.class, name));
+    }
+
+    @Override
+    public ServoOutput servo(String name) {
+        return new FtcServo(hardwareMap.get(Servo.class, name));
+    }
+
+    @Override
+    public BulkReadSource bulkReadSource(String hubName) {
+        return new LynxBulkReadSource(hardwareMap.get(LynxModule.class, hubName));
+    }
+
+    @Override
+    public Imu imu(String hubName) {
+        return new LynxImu(hardwareMap.get(LynxModule.class, hubName));
+    }
+
+    @Override
+    public Clock clock() {
+        return systemClock;
+    }
+
+    @Override
+    public double getBatteryVoltage() {
+        double result = Double.POSITIVE_INFINITY;
+        for (VoltageSensor sensor : hardwareMap.voltageSensor) {
+            double voltage = sensor.getVoltage();
+            if (voltage > 0) {
+                result = Math.min(result, voltage);
+            }
+        }
+        return result == Double.POSITIVE_INFINITY ? -1 : result;
+    }
+
+    private static class FtcMotor implements Motor {
+        private final DcMotorEx motor;
+
+        private FtcMotor(DcMotorEx motor) {
+            this.motor = motor;
+        }
+
+        @Override public void setPower(double power) {motor.setPower(power);}
+        @Override public void setMode(DcMotor.RunMode mode) {motor.setMode(mode);}
+        @Override public void setDirection(DcMotorSimple.Direction direction) {motor.setDirection(direction);}
+        @Override public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {motor.setZeroPowerBehavior(behavior);}
+        @Override public void setTargetPosition(int position) {motor.setTargetPosition(position);}
+        @Override public void setTargetPositionTolerance(int tolerance) {motor.setTargetPositionTolerance(tolerance);}
+        @Override public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {motor.setVelocityPIDFCoefficients(p, i, d, f);}
+        @Override public void setPositionPIDFCoefficients(double p) {motor.setPositionPIDFCoefficients(p);}
+    }
+
+    private static class FtcServo implements ServoOutput {
+        private final Servo servo;
+
+        private FtcServo(Servo servo) {
+            this.servo = servo;
+        }
+
+        @Override public void setPosition(double position) {servo.setPosition(position);}
+    }
+
+    private class LynxBulkReadSource implements BulkReadSource {
+        private final LynxModule module;
+        private final BulkData data = new BulkData();
+
+        private LynxBulkReadSource(LynxModule module) {
+            this.module = module;
+        }
+
+        @Override
+        public BulkData read() {
+            LynxGetBulkInputDataResponse response;
+            try {
+                LynxGetBulkInputDataCommand command = new LynxGetBulkInputDataCommand(module);
+                response = command.sendReceive();
+            } catch (Exception e) {
+                op.telemetry.addData("Exception", "bulk read exception");
+                return null;
+            }
+            for (int i = 0; i < BulkData.PORTS; i++) {
+                data.encoders[i] = response.getEncoder(i);
+                data.velocities[i] = response.getVelocity(i);
+                data.analogInputs[i] = response.getAnalogInput(i);
+            }
+            return data;
+        }
+
+        @Override
+        public String getFirmwareVersion() {
+            String rawVersion = module.getFirmwareVersionString();
+            String[] parts = rawVersion.split(" ");
+            StringBuilder versionBuilder = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                String part = parts[3 + 2*i];
+                if (i == 2) {
+                    versionBuilder.append(part);
+                } else {
+                    versionBuilder.append(part, 0, part.length() - 1);
+                    versionBuilder.append(".");
+                }
+            }
+            return versionBuilder.toString();
+        }
+    }
+
+    private class LynxImu implements Imu {
+        private final LynxEmbeddedIMU imu;
+
+        private LynxImu(LynxModule module) {
+            imu = new LynxEmbeddedIMU(new BetterI2cDeviceSynchImplOnSimple(
+                    new LynxI2cDeviceSynchV2(hardwareMap.appContext, module, 0), true
+            ));
+            imu.initialize(new BNO055IMU.Parameters());
+        }
+
+        @Override
+        public double getHeading() {
+            return imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS).firstAngle;
+        }
+    }
+
+    private static class BetterI2cDeviceSynchImplOnSimple extends I2cDeviceSynchImplOnSimple {
+        private BetterI2cDeviceSynchImplOnSimple(I2cDeviceSynchSimple simple, boolean isSimpleOwned) {
+            super(simple, isSimpleOwned);
+        }
+
+        @Override
+        public void setReadWindow(ReadWindow window) {
+            // intentionally do nothing
+        }
+    }
+}
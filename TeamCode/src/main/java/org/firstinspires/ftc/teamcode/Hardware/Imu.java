@@ -0,0 +1,12 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+/**
+ * An IMU the robot reads its heading from
+ */
+public interface Imu {
+
+    /**
+     * @return heading in radians between -pi and pi, counter clockwise positive
+     */
+    double getHeading();
+}
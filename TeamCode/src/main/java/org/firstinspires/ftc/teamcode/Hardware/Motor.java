@@ -0,0 +1,26 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+/**
+ * A motor the robot can command, each call is one transaction with the hub
+ */
+public interface Motor {
+
+    void setPower(double power);
+
+    void setMode(DcMotor.RunMode mode);
+
+    void setDirection(DcMotorSimple.Direction direction);
+
+    void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior);
+
+    void setTargetPosition(int position);
+
+    void setTargetPositionTolerance(int tolerance);
+
+    void setVelocityPIDFCoefficients(double p, double i, double d, double f);
+
+    void setPositionPIDFCoefficients(double p);
+}
@@ -0,0 +1,27 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+/**
+ * Everything the robot classes need from the electronics, looked up by configured name
+ * <p>{@linkplain FtcRobotHardware} talks to the real hubs, a simulation can stand in for it
+ * so the robot code runs off the robot.
+ */
+public interface RobotHardware {
+
+    Motor motor(String name);
+
+    ServoOutput servo(String name);
+
+    BulkReadSource bulkReadSource(String hubName);
+
+    /**
+     * The hub's embedded IMU, initialized
+     */
+    Imu imu(String hubName);
+
+    Clock clock();
+
+    /**
+     * @return lowest battery voltage reported, -1 if there is none
+     */
+    double getBatteryVoltage();
+}
@@ -0,0 +1,9 @@
+package org.firstinspires.ftc.teamcode.Hardware;
+
+/**
+ * A servo the robot can command, each call is one transaction with the hub
+ */
+public interface ServoOutput {
+
+    void setPosition(double position);
+}
@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.OpenCV;
+
+/**
+ * Alpha-beta filter, smooths a noisy measurement of a value assumed to move at a constant velocity
+ * <p>Angles can be filtered by giving a period, residuals are then wrapped to the shortest way
+ * around and the estimate is kept within [0, period)
+ */
+public class ConstantVelocityFilter {
+
+    private final double alpha;
+    private final double beta;
+    private final double period;
+    private double value;
+    private double velocity;
+    private boolean initialized = false;
+
+    /**
+     * @param alpha fraction of the position residual applied each update (0-1)
+     * @param beta fraction of the position residual per second applied to velocity each update (0-1)
+     * @param period period of the value (e.g. pi for a line's angle), 0 if not periodic
+     */
+    public ConstantVelocityFilter(double alpha, double beta, double period) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.period = period;
+    }
+
+    /**
+     * Corrects the estimate with a new measurement
+     * @param measurement measured value
+     * @param dt time since the last update or prediction (s)
+     * @return filtered value
+     */
+    public double update(double measurement, double dt) {
+        if (!initialized) {
+            value = wrap(measurement);
+            velocity = 0;
+            initialized = true;
+            return value;
+        }
+
+        double predicted = value + velocity * dt;
+        double residual = measurement - predicted;
+        if (period > 0) residual -= period * Math.floor(residual / period + 0.5);
+        value = wrap(predicted + alpha * residual);
+        if (dt > 0) velocity += beta * residual / dt;
+        return value;
+    }
+
+    /**
+     * Moves the estimate forward without a measurement
+     * @param dt time since the last update or prediction (s)
+     * @return predicted value
+     */
+    public double predict(double dt) {
+        value = wrap(value + velocity * dt);
+        return value;
+    }
+
+    /**
+     * Forgets the estimate and zeroes the velocity, the next measurement is taken as is
+     */
+    public void reset() {
+        initialized = false;
+        velocity = 0;
+    }
+
+    public boolean isInitialized() {return initialized;}
+
+    public double getValue() {return value;}
+
+    public double getVelocity() {return velocity;}
+
+    private double wrap(double x) {
+        return period > 0 ? x - period * Math.floor(x / period) : x;
+    }
+}
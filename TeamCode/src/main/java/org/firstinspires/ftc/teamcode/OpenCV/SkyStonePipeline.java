@@ -0,0 +1,286 @@
+package org.firstinspires.ftc.teamcode.OpenCV;
+
+import android.annotation.SuppressLint;
+
+import org.firstinspires.ftc.robotcontroller.DebugImageWriter;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.OpenCvPipeline;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.StageTimer;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Finds skystones in the quarry row of a camera frame
+ * <p>Working Mats are reused between frames and the Java side arrays are allocated once per frame
+ * size, so steady state processing does not allocate (other than on sampled debug frames). Row and column averages
+ * come from one Core.reduce call each, and the column profile is analyzed in Java. Used by
+ * {@linkplain skyStoneDetector} on phone camera frames, or directly as a webcam pipeline.
+ */
+@SuppressWarnings({"FieldCanBeLocal"}) @SuppressLint("SdCardPath")
+public class SkyStonePipeline extends OpenCvPipeline {
+
+    // Debug Images
+    private final static String basePath = "/sdcard/FIRST/procFiles/";
+    private final static String croppedPath = basePath + "croppedImage";
+    private final static String verViewPath = basePath + "verticalAvg";
+    private final static double numberOfFrames = 200;
+    private boolean debug = false;
+    private boolean capture = false;
+    private final DebugImageWriter debugImages = DebugImageWriter.getInstance();
+
+    // Thresholds
+    private final int horThreshold = 90;
+    private final int verThreshold = 215;
+    private final int magnificationFactor = 10;
+    private final int binaryValue = 255;
+    private final Scalar satLower = new Scalar(190, 120, 0);
+    private final Scalar satUpper = new Scalar(255, 135, 10);
+
+    // Working Mats, Reallocated by OpenCV Only When the Frame Size Changes
+    private final Mat HSV = new Mat();
+    private final Mat satUnfiltered = new Mat();
+    private final Mat satFiltered = new Mat();
+    private final Mat openClose = new Mat();
+    private final Mat kernel = new Mat();
+    private final Mat rowSumMat = new Mat();
+    private final Mat colSumMat = new Mat();
+
+    // Working Arrays, Allocated Once Per Frame Size
+    private int width = -1;
+    private int height = -1;
+    private int[] rowSums;
+    private int[] colSums;
+    private boolean[] verValues;
+    private boolean[] eroded;
+    private double[] darkAreas;
+    private int darkAreaCount;
+
+    // Stage Times of the Last Frame
+    private final static int thresholdStage = 0, morphologyStage = 1, projectionStage = 2, analysisStage = 3;
+    private final StageTimer stages = new StageTimer("threshold", "morphology", "projection", "analysis");
+
+    // Results
+    private int frameNum = 1;
+    private double stoneLength;
+    private volatile double ssPos = -1;
+    private volatile double ssXPos = -1;
+    private volatile double curStoneCount;
+    private volatile boolean isRed = true;
+
+    @Override
+    public Mat processFrame(Mat input) {
+        capture = debug && debugImages.shouldCapture(frameNum);
+        ssPos = detectSkyStone(input);
+        frameNum++;
+        return input;
+    }
+
+    /**
+     * Finds position value of skystone by processing an input frame
+     * <p>Return Values: 1 = left, 2 = middle, 3 = right)
+     * @param input the camera frame that will be used to detect skystones
+     * @return position value of skystone
+     */
+    private double detectSkyStone(Mat input) {
+        double ssPosValue = -1;
+        stages.start();
+        allocate(input.cols(), input.rows());
+
+        // Convert to HSV (Saturation)
+        Imgproc.cvtColor(input, HSV, Imgproc.COLOR_RGB2HSV);
+        Core.extractChannel(HSV, satUnfiltered, 1);
+
+        // Filter Saturation Image
+        Core.inRange(satUnfiltered, satLower, satUpper, satFiltered);
+        stages.mark(thresholdStage);
+
+        // Remove extra noise in image
+        Imgproc.morphologyEx(satFiltered, openClose, Imgproc.MORPH_OPEN, kernel);
+        Imgproc.morphologyEx(openClose, openClose, Imgproc.MORPH_CLOSE, kernel);
+        stages.mark(morphologyStage);
+
+        // Row and Column Projections, One Native Call and One Copy Each
+        Core.reduce(openClose, rowSumMat, 1, Core.REDUCE_SUM, CvType.CV_32S);
+        Core.reduce(openClose, colSumMat, 0, Core.REDUCE_SUM, CvType.CV_32S);
+        rowSumMat.get(0, 0, rowSums);
+        colSumMat.get(0, 0, colSums);
+        stages.mark(projectionStage);
+
+        // Crop Image to where quarry row is
+        int quarryRows = 0;
+        for (int row = 0; row < height; row++) {
+            if ((double) rowSums[row] / width > horThreshold) quarryRows++;
+        }
+
+        // Vertical Analysis
+        if (quarryRows > 0) {
+            if (capture) writeCropped();
+
+            // Makes columns black(skystone) and white(stone)
+            for (int col = 0; col < width; col++) {
+                double verAvg = (double) colSums[col] / height * magnificationFactor;
+                verValues[col] = verAvg > verThreshold;
+            }
+
+            // Opening With a 3 Wide Kernel, Removes White Runs Narrower Than 3 Columns
+            for (int col = 0; col < width; col++) {
+                eroded[col] = verValues[col] && (col == 0 || verValues[col-1]) && (col == width-1 || verValues[col+1]);
+            }
+            for (int col = 0; col < width; col++) {
+                verValues[col] = eroded[col] || (col > 0 && eroded[col-1]) || (col < width-1 && eroded[col+1]);
+            }
+            if (capture) writeVertical();
+
+            // Run-Length Analysis, Each Dark Run is a Skystone Candidate
+            darkAreaCount = 0;
+            double left = 0, right = 0;
+            boolean curWhite;
+            boolean nextWhite = verValues[0];
+            for (int c = 0; c < width - 1; c++) {
+                curWhite = nextWhite;
+                nextWhite = verValues[c+1];
+
+                if (curWhite && !nextWhite) {
+                    left = c;
+                }
+                else if (!curWhite && nextWhite) {
+                    right = c;
+                    stoneLength = right - left;
+                    darkAreas[darkAreaCount++] = (left + right) / 2;
+                    left = 0; right = 0;
+                }
+            }
+
+            // Disregarding Small Columns
+            double prevArea = 0;
+            boolean firstStone = true;
+            int kept = 0;
+            for (int a = 0; a < darkAreaCount; a++) {
+                double curArea = darkAreas[a];
+                if (firstStone || Math.abs(curArea - prevArea) >= stoneLength) {
+                    darkAreas[kept++] = curArea;
+                }
+                firstStone = false;
+                prevArea = curArea;
+            }
+            darkAreaCount = kept;
+            curStoneCount = darkAreaCount;
+
+            // Converting X Coordinates to Positions
+            if (darkAreaCount != 0) {
+                double xPos;
+                if (isRed) {
+                    xPos = darkAreas[0];
+                    if (xPos > 50 && xPos < 105) {ssPosValue = 1;} // left
+                    else if((xPos > 105 && xPos < 165)) {ssPosValue = 2;} // middle
+                    else if ((xPos > 10 && xPos < 50) || (xPos > 165 && xPos < 230)) {ssPosValue = 3;} // right
+                } else {
+                    if (darkAreaCount > 1) {xPos = darkAreas[1];}
+                    else {xPos = darkAreas[0];}
+
+                    if ((xPos > 25 && xPos < 50) || (xPos > 175 && xPos < 240)) {ssPosValue = 3;} // left
+                    else if((xPos > 60 && xPos < 120)) {ssPosValue = 2;} // middle
+                    else if (xPos > 120 && xPos < 175) {ssPosValue = 1;} // right
+                }
+                ssXPos = xPos;
+            }
+        }
+
+        stages.mark(analysisStage);
+        return ssPosValue;
+    }
+
+    /**
+     * Sizes the working arrays and the vertical image for a frame size, no-op if unchanged
+     */
+    private void allocate(int width, int height) {
+        if (width == this.width && height == this.height) return;
+        this.width = width;
+        this.height = height;
+        rowSums = new int[height];
+        colSums = new int[width];
+        verValues = new boolean[width];
+        eroded = new boolean[width];
+        darkAreas = new double[width / 2 + 1];
+    }
+
+    /**
+     * Writes the quarry rows of the filtered image, debug only
+     */
+    private void writeCropped() {
+        Mat cropped = new Mat();
+        for (int row = 0; row < height; row++) {
+            Mat rowMat = openClose.row(row);
+            if (Core.mean(rowMat).val[0] > horThreshold) cropped.push_back(rowMat);
+            rowMat.release();
+        }
+        debugImages.submit(croppedPath + (frameNum % numberOfFrames) + ".jpg", cropped);
+        cropped.release();
+    }
+
+    /**
+     * Writes the binary column image, debug only
+     */
+    private void writeVertical() {
+        Mat verImage = new Mat(10, width, CvType.CV_8UC1);
+        for (int col = 0; col < width; col++) {
+            Mat colMat = verImage.col(col);
+            colMat.setTo(new Scalar(verValues[col] ? binaryValue : 0));
+            colMat.release();
+        }
+        debugImages.submit(verViewPath + (frameNum % numberOfFrames) + ".jpg", verImage);
+        verImage.release();
+    }
+
+    /**
+     * Frees the native memory of the working Mats
+     */
+    public void release() {
+        HSV.release();
+        satUnfiltered.release();
+        satFiltered.release();
+        openClose.release();
+        kernel.release();
+        rowSumMat.release();
+        colSumMat.release();
+        width = -1;
+        height = -1;
+    }
+
+    /**
+     * Gets the skystone position value of the last frame (1 = left, 2 = middle, 3 = right, -1 = unknown)
+     */
+    public double getPosition() {return ssPos;}
+
+    /**
+     * Gets the x coordinate of the skystone used for the position value (0-240)
+     */
+    public double getSSPosX() {return ssXPos;}
+
+    /**
+     * Gets the number of skystones in the last frame
+     */
+    public double getNumberOfStones() {return curStoneCount;}
+
+    @Override
+    public StageTimer getStageTimer() {return stages;}
+
+    /**
+     * Gets the number of frames processed
+     */
+    public int getFrameCount() {return frameNum - 1;}
+
+    /**
+     * Sets the alliance color
+     * @param isRed true = red alliance; false = blue alliance
+     */
+    public void isAllianceRed(boolean isRed) {this.isRed = isRed;}
+
+    /**
+     * Sets whether intermediate images of sampled frames are queued to the {@linkplain DebugImageWriter},
+     * allocates on sampled frames when on
+     */
+    public void setDebug(boolean debug) {this.debug = debug;}
+}
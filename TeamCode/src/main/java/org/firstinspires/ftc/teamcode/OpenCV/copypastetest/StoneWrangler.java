@@ -1,84 +1,178 @@
 package org.firstinspires.ftc.teamcode.OpenCV.copypastetest;
 
+import org.firstinspires.ftc.robotcontroller.DebugImageWriter;
 import org.opencv.calib3d.Calib3d;
 import org.opencv.core.*;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.*;
 
 import static org.firstinspires.ftc.teamcode.OpenCV.copypastetest.StoneWranglerUtils.log;
 
+/**
+ * Finds the pose of a stone in a bird's eye view of the area in front of the camera
+ * <p>The vertical flip and the perspective transform are baked into remap tables once per
+ * calibration and frame size, the inverse homography used for the visualization is computed once,
+ * and working Mats are reused between frames.
+ */
 class StoneWrangler {
 
     private MatOfPoint2f calibrationFramePoints;
     private MatOfPoint2f calibrationWorldPoints;
     private Mat homography;
+    private Mat inverseHomography;
 
     private double stonePixelX, stonePixelY, stoneWorldX, stoneWorldY, stoneTheta, stoneRho;
     private Mat visualization;
+    private int frameNum = 0;
+    private final DebugImageWriter debugImages = DebugImageWriter.getInstance();
+
+    // Bird's Eye Remap Tables, Rebuilt When the Frame Size Changes
+    private final Size flatSize = new Size(
+            (int) (StoneWranglerConstants.AREA_X_DIMENSION / StoneWranglerConstants.PIXEL_SIZE),
+            (int) (StoneWranglerConstants.AREA_Y_DIMENSION / StoneWranglerConstants.PIXEL_SIZE));
+    private final Mat flatMap1 = new Mat();
+    private final Mat flatMap2 = new Mat();
+    private Mat frameInverseHomography;
+    private int mappedCols = -1, mappedRows = -1;
+
+    // Working Mats and Buffers
+    private final Mat transformed = new Mat();
+    private final Mat denoised = new Mat();
+    private final Mat hsv = new Mat();
+    private final Mat mask = new Mat();
+    private final Mat cannyEdges = new Mat();
+    private final Mat edges = new Mat();
+    private final Mat houghLines = new Mat();
+    private final Mat flatOverlay = new Mat();
+    private final Mat frameOverlay = new Mat();
+    private byte[] maskData = new byte[0];
+    private float[] lineData = new float[0];
+    private double[] xValues = new double[0];
+    private double[] yValues = new double[0];
 
     StoneWrangler() {
         calibrationFramePoints = StoneWranglerConstants.getCalF();
         calibrationWorldPoints = StoneWranglerConstants.getCalW();
         homography = Calib3d.findHomography(calibrationFramePoints, calibrationWorldPoints);
+        inverseHomography = Calib3d.findHomography(calibrationWorldPoints, calibrationFramePoints);
     }
 
     Mat getVisualization() { return visualization; }
 
-    void analyze(Mat src_) {
+    double getStoneWorldX() { return stoneWorldX; }
+
+    double getStoneWorldY() { return stoneWorldY; }
+
+    double getStoneTheta() { return stoneTheta - Math.PI / 2; }
+
+    void analyze(Mat src) {
         long startMillis = System.currentTimeMillis();
-        Mat src = new Mat();
-        Core.flip(src_, src, 0);
-        Mat transformed = inversePerspectiveTransform(src);
-        visualization = transformed;
-
-        Mat filtered = filterForStone(transformed);
-        Imgcodecs.imwrite("/sdcard/FIRST/procFiles3/filtered.jpg", filtered);
-        Mat edges = cannyEdgeDetection(filtered);
-        Imgcodecs.imwrite("/sdcard/FIRST/procFiles3/edges.jpg", edges);
-        Mat houghLines = houghLines(edges);
-        List<Scalar> lines = StoneWranglerUtils.houghLinesMatToList(houghLines);
-        Scalar result = concludeStonePosition(lines, filtered);
+        boolean capture = debugImages.shouldCapture(frameNum++);
+        inversePerspectiveTransform(src);
+
+        filterForStone(transformed);
+        if (capture) debugImages.submit("/sdcard/FIRST/procFiles3/filtered.jpg", mask);
+        cannyEdgeDetection(mask);
+        if (capture) debugImages.submit("/sdcard/FIRST/procFiles3/edges.jpg", edges);
+        houghLines(edges);
+        List<Scalar> lines = houghLinesToList(houghLines);
+        Scalar result = concludeStonePosition(lines, mask);
         updateStonePosition(result);
         reportStonePosition();
-        visualization = generateVisualization(src, transformed.size());
-        log(1000 / (System.currentTimeMillis() - startMillis) + " fps");
+        visualization = generateVisualization(src);
+        log(1000 / Math.max(1, System.currentTimeMillis() - startMillis) + " fps");
     }
 
-    private Mat inversePerspectiveTransform(Mat src) {
-        Size size = new Size(
-                        (int) (StoneWranglerConstants.AREA_X_DIMENSION / StoneWranglerConstants.PIXEL_SIZE),
-                        (int) (StoneWranglerConstants.AREA_Y_DIMENSION / StoneWranglerConstants.PIXEL_SIZE));
-        return StoneWranglerUtils.warpPerspective(src, size, homography);
+    /**
+     * Flips the frame vertically and projects it to the bird's eye view in one remap
+     */
+    private void inversePerspectiveTransform(Mat src) {
+        if (src.cols() != mappedCols || src.rows() != mappedRows) buildMaps(src.cols(), src.rows());
+        Imgproc.remap(src, transformed, flatMap1, flatMap2, Imgproc.INTER_LINEAR);
+    }
+
+    /**
+     * Samples the flipped frame position of every bird's eye pixel, then converts the tables to the
+     * fixed point form remap is fastest with
+     */
+    private void buildMaps(int cols, int rows) {
+        int width = (int) flatSize.width;
+        int height = (int) flatSize.height;
+        Mat inverse = homography.inv();
+        double[] h = new double[9];
+        inverse.get(0, 0, h);
+        inverse.release();
+
+        float[] mapX = new float[width * height];
+        float[] mapY = new float[width * height];
+        for (int v = 0; v < height; v++) {
+            for (int u = 0; u < width; u++) {
+                double w = h[6] * u + h[7] * v + h[8];
+                double x = (h[0] * u + h[1] * v + h[2]) / w;
+                double y = (h[3] * u + h[4] * v + h[5]) / w;
+                mapX[v * width + u] = (float) x;
+                mapY[v * width + u] = (float) (rows - 1 - y);
+            }
+        }
+
+        Mat floatMapX = new Mat(height, width, CvType.CV_32FC1);
+        Mat floatMapY = new Mat(height, width, CvType.CV_32FC1);
+        floatMapX.put(0, 0, mapX);
+        floatMapY.put(0, 0, mapY);
+        Imgproc.convertMaps(floatMapX, floatMapY, flatMap1, flatMap2, CvType.CV_16SC2);
+        floatMapX.release();
+        floatMapY.release();
+
+        // Inverse Homography Into the Unflipped Frame, for the Visualization
+        Mat flip = new Mat(3, 3, CvType.CV_64FC1);
+        flip.put(0, 0, 1, 0, 0, 0, -1, rows - 1, 0, 0, 1);
+        if (frameInverseHomography != null) frameInverseHomography.release();
+        frameInverseHomography = new Mat();
+        Core.gemm(flip, inverseHomography, 1, new Mat(), 0, frameInverseHomography);
+        flip.release();
+
+        mappedCols = cols;
+        mappedRows = rows;
     }
 
-    private Mat filterForStone(Mat src) {
-        Mat mask = StoneWranglerUtils.maskByHSVThreshold(StoneWranglerUtils.denoiseMat(src));
-        return StoneWranglerUtils.convert(mask, Imgproc.COLOR_GRAY2BGR);
+    private void filterForStone(Mat src) {
+        Imgproc.GaussianBlur(src, denoised, StoneWranglerConstants.GAUSSIAN_DENOISE_K, 0);
+        Imgproc.cvtColor(denoised, hsv, Imgproc.COLOR_BGR2HSV, 3);
+        Core.inRange(hsv, StoneWranglerConstants.STONE_HSV_LOWER, StoneWranglerConstants.STONE_HSV_UPPER, mask);
     }
 
-    private Mat cannyEdgeDetection(Mat src) {
-        Mat grayImage = StoneWranglerUtils.convert(src, Imgproc.COLOR_BGR2GRAY);
-        Imgproc.Canny(grayImage, grayImage, 1, 3, 3, false);
-        Mat dest = new Mat();
-        Core.add(dest, Scalar.all(0), dest);
-        src.copyTo(dest, grayImage);
-        return dest;
+    /**
+     * Edges of the mask that lie inside the mask
+     */
+    private void cannyEdgeDetection(Mat mask) {
+        Imgproc.Canny(mask, cannyEdges, 1, 3, 3, false);
+        Core.bitwise_and(cannyEdges, mask, edges);
     }
 
-    private Mat houghLines(Mat src) {
-        Mat cdst = src.clone();
-        Mat dst = StoneWranglerUtils.convert(cdst, Imgproc.COLOR_BGR2GRAY);
-        Mat lines = new Mat();
-        Imgproc.HoughLines(dst, lines,
+    private void houghLines(Mat edges) {
+        Imgproc.HoughLines(edges, houghLines,
                 StoneWranglerConstants.HOUGH_LINES_RHO_STEP,
                 StoneWranglerConstants.HOUGH_LINES_THETA_STEP,
                 StoneWranglerConstants.HOUGH_LINES_THRESHOLD);
-        return lines;
     }
 
-    private Scalar concludeStonePosition(List<Scalar> lines, Mat edges) {
+    /**
+     * Copies the lines out of the Mat in one call, as (theta, rho)
+     */
+    private List<Scalar> houghLinesToList(Mat lines) {
+        int count = lines.rows();
+        List<Scalar> result = new ArrayList<>(count);
+        if (count == 0) return result;
+        if (lineData.length < count * 2) lineData = new float[count * 2];
+        lines.get(0, 0, lineData);
+        for (int i = 0; i < count; i++) {
+            result.add(new Scalar(lineData[i * 2 + 1], lineData[i * 2]));
+        }
+        return result;
+    }
+
+    private Scalar concludeStonePosition(List<Scalar> lines, Mat mask) {
         List<Scalar> binMedians = StoneWranglerUtils.binMedians(StoneWranglerUtils.binLines(lines));
 
         List<Scalar> candidateLines = new ArrayList<>();
@@ -88,14 +182,26 @@ class StoneWrangler {
         }
         if (candidateLines.size() == 0)
             return null;
-        Scalar currentCandidate = candidateLines.get(0);
 
+        // Mask Pixels Copied Out Once, Then Sampled in Java
+        int width = mask.cols();
+        int height = mask.rows();
+        if (maskData.length != width * height) {
+            maskData = new byte[width * height];
+            xValues = new double[5 * (width + height)];
+            yValues = new double[5 * (width + height)];
+        }
+        mask.get(0, 0, maskData);
+
+        Scalar currentCandidate = candidateLines.get(0);
+        double currentY = findLineCenterY(currentCandidate, width, height);
         for (int i = 1; i < candidateLines.size(); i++) {
             Scalar proposedCandidate = candidateLines.get(i);
-            double currentY  = StoneWranglerUtils.findLineCenter(edges, currentCandidate.val[0],  currentCandidate.val[1]).val[1];
-            double proposedY = StoneWranglerUtils.findLineCenter(edges, proposedCandidate.val[0], proposedCandidate.val[1]).val[1];
-            if (proposedY > currentY)
+            double proposedY = findLineCenterY(proposedCandidate, width, height);
+            if (proposedY > currentY) {
                 currentCandidate = proposedCandidate;
+                currentY = proposedY;
+            }
         }
 
         double theta = currentCandidate.val[0];
@@ -103,8 +209,13 @@ class StoneWrangler {
         stoneTheta = theta;
         stoneRho = rho;
 
-        Scalar center = StoneWranglerUtils.findLineCenter(edges, theta, rho);
-        return new Scalar(center.val[0], center.val[1]);
+        int count = StoneWranglerUtils.sampleLine(maskData, width, height, theta, rho, xValues, yValues);
+        return new Scalar(StoneWranglerUtils.median(xValues, count), StoneWranglerUtils.median(yValues, count));
+    }
+
+    private double findLineCenterY(Scalar line, int width, int height) {
+        int count = StoneWranglerUtils.sampleLine(maskData, width, height, line.val[0], line.val[1], xValues, yValues);
+        return StoneWranglerUtils.median(yValues, count);
     }
 
     private void reportStonePosition() {
@@ -121,13 +232,21 @@ class StoneWrangler {
         }
     }
 
-    private Mat generateVisualization(Mat src, Size flatSize) {
+    /**
+     * Draws the pose on the bird's eye view and projects it back onto the camera frame
+     */
+    private Mat generateVisualization(Mat src) {
         log("Stone orientation (radians): " + (stoneTheta - Math.PI / 2));
         log("Stone X position (inches): " + stoneWorldX);
         log("Stone Y position (inches): " + stoneWorldY);
 
-        return StoneWranglerUtils.verticalFlip(StoneWranglerUtils.add(src, StoneWranglerUtils.warpPerspective(visualizePoseOnFlat(
-                new Mat(flatSize, CvType.CV_8UC3, new Scalar(0, 0, 0))), src.size(), Calib3d.findHomography(calibrationWorldPoints, calibrationFramePoints))));
+        flatOverlay.create(flatSize, CvType.CV_8UC3);
+        flatOverlay.setTo(Scalar.all(0));
+        visualizePoseOnFlat(flatOverlay);
+        Imgproc.warpPerspective(flatOverlay, frameOverlay, frameInverseHomography, src.size());
+        Mat result = new Mat();
+        Core.add(src, frameOverlay, result);
+        return result;
     }
 
     private Mat visualizePoseOnFlat(Mat flatView) {
@@ -136,4 +255,4 @@ class StoneWrangler {
         StoneWranglerUtils.drawLine(flatView, Math.PI * .5, stonePixelY, StoneWranglerConstants.GREEN_SCALAR, 1);
         return flatView;
     }
-}
\ No newline at end of file
+}
@@ -7,60 +7,12 @@ import org.opencv.core.Point;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 class StoneWranglerUtils {
 
-    // ------------------------------ mat cv ops ------------------------------
-
-    static Mat warpPerspective(Mat src, Size size, Mat homography) {
-        Mat projected = new Mat(size, CvType.CV_8UC3);
-        Imgproc.warpPerspective(src, projected, homography, size);
-        return projected;
-    }
-
-    static Mat add(Mat a, Mat b) {
-        Mat result = new Mat(b.size(), CvType.CV_8UC3);
-        Core.add(a, b, result);
-        return result;
-    }
-
-    static Mat verticalFlip(Mat mat) {
-        Core.flip(mat, mat, 0);
-        return mat;
-    }
-
-    static Mat denoiseMat(Mat src) {
-        Mat denoised = new Mat(src.rows(), src.cols(), CvType.CV_8U, new Scalar(3));
-        Imgproc.GaussianBlur(src, denoised, StoneWranglerConstants.GAUSSIAN_DENOISE_K, 0);
-        return denoised;
-    }
-
-    static Mat maskByHSVThreshold(Mat src) {
-        Mat hsvFrame = new Mat(src.rows(), src.cols(), CvType.CV_8U, new Scalar(3));
-        Imgproc.cvtColor(src, hsvFrame, Imgproc.COLOR_BGR2HSV, 3);
-        Mat mask = new Mat(hsvFrame.rows(), hsvFrame.cols(), CvType.CV_8U, new Scalar(3));
-        Core.inRange(hsvFrame, StoneWranglerConstants.STONE_HSV_LOWER, StoneWranglerConstants.STONE_HSV_UPPER, mask);
-        return mask;
-    }
-
-    static Mat convert(Mat src, int conversion) {
-        Mat dst = new Mat();
-        Imgproc.cvtColor(src, dst, conversion);
-        return dst;
-    }
-
-    static List<Scalar> houghLinesMatToList(Mat lines) {
-        List<Scalar> result = new ArrayList<>();
-        for (int x = 0; x < lines.rows(); x++) {
-            double theta = lines.get(x, 0)[1];
-            double rho   = lines.get(x, 0)[0];
-            result.add(new Scalar(theta, rho));
-        }
-        return result;
-    }
-
     // ------------------------------ mat drawing ops ------------------------------
 
     static void drawLine(Mat dst, double theta, double rho, Scalar color, int thickness) {
@@ -74,43 +26,43 @@ class StoneWranglerUtils {
 
     // ------------------------------ line stuff ------------------------------
 
-    static List<Scalar> integerPointsAlongLine(double theta, double rho, int width, int height) {
-        List<Scalar> result = new ArrayList<>();
+    /**
+     * Collects the mask pixels on the line and on the lines 1 and 2 pixels to either side of it
+     * @param mask single channel mask, row major, copied out of its Mat in one call
+     * @param xValues receives the x coordinates of set pixels, must hold 5 * (width + height)
+     * @param yValues receives the y coordinates of set pixels, same size as xValues
+     * @return number of set pixels found
+     */
+    static int sampleLine(byte[] mask, int width, int height, double theta, double rho, double[] xValues, double[] yValues) {
+        int count = 0;
         double lineSlopeAngle = theta + Math.PI * 0.5;
-        if (Math.abs(Math.tan(lineSlopeAngle)) < 1) {
-            double pointX    = Math.cos(theta) * rho;
-            double pointY    = Math.sin(theta) * rho;
-            double lineSlope = Math.tan(lineSlopeAngle);
-            double y = pointY - lineSlope * pointX;  // start at the y intercept
-            for (int x = 0; x < width; x++, y += lineSlope)
-                if (Math.round(y) >= 0 && Math.round(y) < height)
-                    result.add(new Scalar(Math.round(x), Math.round(y)));
-        } else {
-            double pointX    =     Math.cos(theta) * rho;
-            double pointY    =     Math.sin(theta) * rho;
-            double lineSlope = 1 / Math.tan(lineSlopeAngle);
-            double x = pointX - lineSlope * pointY;  // start at the x intercept
-            for (int y = 0; y < height; y++, x += lineSlope)
-                if (Math.round(x) >= 0 && Math.round(x) < width)
-                    result.add(new Scalar(Math.round(x), Math.round(y)));
-        }
-        return result;
-    }
-
-    static Scalar findLineCenter(Mat stoneMask, double theta, double rho) {
-        List<Double>
-                xValues = new ArrayList<>(),
-                yValues = new ArrayList<>();
+        boolean shallow = Math.abs(Math.tan(lineSlopeAngle)) < 1;
         for (int i = -2; i <= 2; i++) {
-            List<Scalar> points = StoneWranglerUtils.integerPointsAlongLine(theta, rho + i, stoneMask.width(), stoneMask.height());
-            for (Scalar s : points) {
-                if (stoneMask.get((int) s.val[1], (int) s.val[0])[0] > 0) {
-                    xValues.add(s.val[0]);
-                    yValues.add(s.val[1]);
+            double pointX = Math.cos(theta) * (rho + i);
+            double pointY = Math.sin(theta) * (rho + i);
+            if (shallow) {
+                double lineSlope = Math.tan(lineSlopeAngle);
+                double y = pointY - lineSlope * pointX;  // start at the y intercept
+                for (int x = 0; x < width; x++, y += lineSlope) {
+                    long row = Math.round(y);
+                    if (row >= 0 && row < height && mask[(int) row * width + x] != 0) {
+                        xValues[count] = x;
+                        yValues[count++] = row;
+                    }
+                }
+            } else {
+                double lineSlope = 1 / Math.tan(lineSlopeAngle);
+                double x = pointX - lineSlope * pointY;  // start at the x intercept
+                for (int y = 0; y < height; y++, x += lineSlope) {
+                    long col = Math.round(x);
+                    if (col >= 0 && col < width && mask[y * width + (int) col] != 0) {
+                        xValues[count] = col;
+                        yValues[count++] = y;
+                    }
                 }
             }
         }
-        return new Scalar(StoneWranglerUtils.median(xValues), StoneWranglerUtils.median(yValues));
+        return count;
     }
 
     // ------------------------------ binning system ------------------------------
@@ -168,6 +120,19 @@ class StoneWranglerUtils {
             return list.get(list.size() / 2);
     }
 
+    /**
+     * Median of the first count values, sorts them in place
+     */
+    static double median(double[] values, int count) {
+        if (count == 0)
+            return -1;
+        Arrays.sort(values, 0, count);
+        if (count % 2 == 0)
+            return (values[count / 2] + values[count / 2 - 1]) / 2;
+        else
+            return values[count / 2];
+    }
+
     static MatOfPoint2f createMatOfPoint2f(double x1, double y1, double x2, double y2, double x3, double y3, double x4, double y4) {
         MatOfPoint2f result = new MatOfPoint2f();
         result.fromArray(new org.opencv.core.Point(x1, y1), new org.opencv.core.Point(x2, y2),
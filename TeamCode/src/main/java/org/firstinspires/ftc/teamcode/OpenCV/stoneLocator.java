@@ -5,6 +5,7 @@ import android.util.Log;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
+import org.firstinspires.ftc.robotcontroller.DebugImageWriter;
 import org.firstinspires.ftc.robotcontroller.FrameGrabber;
 import org.firstinspires.ftc.robotcontroller.internal.FtcRobotControllerActivity;
 import org.opencv.android.OpenCVLoader;
@@ -46,6 +47,7 @@ public class stoneLocator extends Thread {
     private FrameGrabber frameGrabber;
     private final boolean usingCamera = true; // <<<----------------------
     private final boolean debug = true;
+    private final DebugImageWriter debugImages = DebugImageWriter.getInstance();
 
     private int frameNum = 1;
     private double[] sPos = {-1, -1, -1};
@@ -85,12 +87,15 @@ public class stoneLocator extends Thread {
             frameGrabber = FtcRobotControllerActivity.frameGrabber;
 
             while (active) {
+                // Parks Until the Camera Delivers a New Frame, null if None Arrives
                 Mat input = frameGrabber.getNextMat();
-                if (input != null) {
-                    log("Frame " + frameNum + " ----------------------------------------");
-                    sPos = detectSkyStone(input);
-                    frameNum++;
-                } else sPos = new double[]{-1, -1, -1};
+
+                // Keep the Last Location When the Camera Times Out
+                if (input == null) continue;
+
+                log("Frame " + frameNum + " ----------------------------------------");
+                sPos = detectSkyStone(input);
+                frameNum++;
             }
             FtcRobotControllerActivity.disableCameraView();
         } else {
@@ -117,7 +122,8 @@ public class stoneLocator extends Thread {
      * @return x, y, and theta of stone
      */
     private double[] detectSkyStone (Mat input) {
-        if (debug) {Imgcodecs.imwrite(inputPath + (frameNum % 100) + ".jpg", input);}
+        boolean capture = debug && debugImages.shouldCapture(frameNum);
+        if (capture) debugImages.submit(inputPath + (frameNum % 100) + ".jpg", input);
 
         // Process Image
         Mat filtered = new Mat(180, 240, CvType.CV_8UC1, new Scalar(255));
@@ -126,7 +132,7 @@ public class stoneLocator extends Thread {
         Imgproc.morphologyEx(filtered, filtered, Imgproc.MORPH_OPEN, new Mat());
         Imgproc.morphologyEx(filtered, filtered, Imgproc.MORPH_CLOSE, new Mat());
         Imgproc.Canny(filtered, filtered, 0, 0, 3, false);
-        if (debug) Imgcodecs.imwrite(filteredPath + (frameNum % 100) + ".jpg", filtered);
+        if (capture) debugImages.submit(filteredPath + (frameNum % 100) + ".jpg", filtered);
 
         // Define Stuff for Finding Contours
         Mat heirarchyMat = new Mat();
@@ -149,7 +155,7 @@ public class stoneLocator extends Thread {
         if (contours.size() > 0) {ellipse = Imgproc.fitEllipse(new MatOfPoint2f(contours.get(maxIndex).toArray()));}
         else {return new double[] {-1, -1, -1};}
         Imgproc.ellipse(ellipseOnly, ellipse, new Scalar(255, 0, 0), 1);
-        if (debug) Imgcodecs.imwrite(ellipsePath + (frameNum % 100) + ".jpg", ellipseOnly);
+        if (capture) debugImages.submit(ellipsePath + (frameNum % 100) + ".jpg", ellipseOnly);
 
         /*Imgproc.drawContours(largestContour2, contours, -1, new Scalar(0, 255, 0));
         if (debug) Imgcodecs.imwrite(ellipsePath + (frameNum + 7 % 100) + ".jpg", largestContour2);
@@ -207,7 +213,7 @@ public class stoneLocator extends Thread {
             Imgproc.line(edges, pt1, pt2, new Scalar(0, 255, 0), 1);
         }
 
-        if (debug) Imgcodecs.imwrite(linesPath + (frameNum % 100) + ".jpg", edges);
+        if (capture) debugImages.submit(linesPath + (frameNum % 100) + ".jpg", edges);
 
         // Generate Index Combinations to Find Intersection Points
         int[] indexes = new int[radii2.size()];
@@ -263,7 +269,7 @@ public class stoneLocator extends Thread {
         log("yf2: " + yf2);
         log(maxIndex + ": " + xf1.get(maxIndex) + ", " + yf1.get(maxIndex));
         Imgproc.circle(edges, new Point(xf1.get(maxIndex), max), 3, new Scalar(0, 0, 255), 3);
-        if (debug) Imgcodecs.imwrite(intersectionsPath + (frameNum % 100) + ".jpg", edges);
+        if (capture) debugImages.submit(intersectionsPath + (frameNum % 100) + ".jpg", edges);
 
         return new double[] {0,0,0};
     }
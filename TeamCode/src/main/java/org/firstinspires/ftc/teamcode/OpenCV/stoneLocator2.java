@@ -6,15 +6,17 @@ import android.util.Log;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
+import org.firstinspires.ftc.robotcontroller.DebugImageWriter;
 import org.firstinspires.ftc.robotcontroller.FrameGrabber;
 import org.firstinspires.ftc.robotcontroller.internal.FtcRobotControllerActivity;
+import org.firstinspires.ftc.teamcode.OpenCV.webcamstuff.StageTimer;
 import org.opencv.android.OpenCVLoader;
 import org.opencv.core.Core;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.MatOfPoint2f;
 import org.opencv.core.Point;
+import org.opencv.core.Rect;
 import org.opencv.core.RotatedRect;
 import org.opencv.core.Scalar;
 import org.opencv.core.Size;
@@ -28,6 +30,10 @@ import java.util.List;
 /**
  * This class processes camera frames from {@linkplain FrameGrabber}
  * to determine the location of stones in autonomous
+ * <p>Tracking mode is off unless turned on with {@link #setTracking(boolean)}, e.g. to chase stones
+ * in teleop. In it, once a stone is found only a window around it is searched on the next frame,
+ * falling back to the whole frame when the stone is not in the window, and the location is smoothed
+ * with a {@linkplain ConstantVelocityFilter}. Up to a few missed frames report the filter's prediction.
  */
 
 @SuppressWarnings({"FieldCanBeLocal"}) @SuppressLint({"DefaultLocale","SdCardPath"})
@@ -45,6 +51,7 @@ public class stoneLocator2 extends Thread {
     private FrameGrabber frameGrabber;
     private final boolean usingCamera = true; // <<<----------------------
     private final boolean debug = true;
+    private final DebugImageWriter debugImages = DebugImageWriter.getInstance();
     private boolean active = false;
 
     private final static double hpg = 8.5;
@@ -56,6 +63,33 @@ public class stoneLocator2 extends Thread {
     private final static double contourMinimumArea = 1000;
     private final static double numberOfFrames = 2500;
 
+    // Tracking
+    private boolean tracking = false;
+    private final static double windowMargin = 0.5;
+    private final static int windowMinimumMargin = 20;
+    private final static int maximumMisses = 5;
+    private final Rect window = new Rect();
+    private boolean haveWindow = false;
+    private int misses = 0;
+    private long lastUpdateTime = 0;
+    private final ConstantVelocityFilter xFilter = new ConstantVelocityFilter(0.5, 0.1, 0);
+    private final ConstantVelocityFilter yFilter = new ConstantVelocityFilter(0.5, 0.1, 0);
+    private final ConstantVelocityFilter thetaFilter = new ConstantVelocityFilter(0.3, 0.05, Math.PI);
+
+    // Working Mats, Reused Between Frames
+    private final Mat hsv = new Mat();
+    private final Mat filtered = new Mat();
+    private final Mat heirarchyMat = new Mat();
+    private final Mat emptyKernel = new Mat();
+    private final List<MatOfPoint> contours = new ArrayList<>();
+    private final Point offset = new Point();
+    private final Scalar lowerHSV = new Scalar(85, 95, 95);
+    private final Scalar upperHSV = new Scalar(115, 255, 255);
+
+    // Stage Times of the Last Frame
+    private final static int thresholdStage = 0, morphologyStage = 1, edgesStage = 2, contoursStage = 3, fitStage = 4, trackStage = 5;
+    private final StageTimer stages = new StageTimer("threshold", "morphology", "edges", "contours", "fit", "track");
+
     private int frameNum = 1;
     private double[] sPos = {-1, -1, -1};
     private double time = -1;
@@ -95,25 +129,38 @@ public class stoneLocator2 extends Thread {
             frameGrabber = FtcRobotControllerActivity.frameGrabber;
 
             while (active) {
+                // Parks Until the Camera Delivers a New Frame, null if None Arrives
                 Mat input = frameGrabber.getNextMat();
-                if (input != null) {
-                    log("Frame " + frameNum + " ----------------------------------------");
-                    sPos = detectSkyStone(input);
-                    frameNum++;
-                } else sPos = new double[]{-1, -1, -1};
+
+                // Keep the Last Location When the Camera Times Out
+                if (input == null) continue;
+
+                log("Frame " + frameNum + " ----------------------------------------");
+                processFrame(input);
             }
             FtcRobotControllerActivity.disableCameraView();
         } else {
             for (int i = 0; i < numberOfFrames; i++) {
                 Mat input = Imgcodecs.imread(testPath + "input" + i + ".jpg", Imgcodecs.IMREAD_COLOR);
-                Imgproc.resize(input, input, new Size(200, 150));
-                sPos = detectSkyStone(input);
-                frameNum++;
+                // Same Size FrameGrabber Delivers, Which the Contour Area and Window Margins Assume
+                Imgproc.resize(input, input, new Size(240, 180));
+                processFrame(input);
             }
         }
         log("");
     }
     
+    /**
+     * Locates the stone in one frame, as the camera loop does, e.g. to run recorded frames off-robot
+     * @param input frame in the color order {@linkplain FrameGrabber} delivers
+     * @return x, y, and theta of stone, also returned by {@link #getLocation()} from now on
+     */
+    public double[] processFrame(Mat input) {
+        sPos = detectSkyStone(input);
+        frameNum++;
+        return sPos;
+    }
+
     /**
      * Finds position value of stone by processing an input frame
      * @param input the camera frame that will be used to detect skystones
@@ -122,59 +169,76 @@ public class stoneLocator2 extends Thread {
     private double[] detectSkyStone (Mat input) {
         // Log Input Image and Reset Variables and Timer
         timer.reset();
+        stages.start();
         double xpix = -1;
         double ypix = -1;
         double stoneX = -1;
         double stoneY = -1;
         double stoneTheta = -1;
         contourArea = -1;
-        new File(inputPath + (frameNum % numberOfFrames) + ".jpg").delete();
-        if (debug) {Imgcodecs.imwrite(inputPath + (frameNum % numberOfFrames) + ".jpg", input);}
+        boolean capture = debug && debugImages.shouldCapture(frameNum);
+        if (capture) debugImages.submit(inputPath + (frameNum % numberOfFrames) + ".jpg", input);
+
+        // Search Window Around Last Stone, or Whole Frame
+        boolean windowed = tracking && haveWindow;
+        Mat search = windowed ? input.submat(window) : input;
+        offset.x = windowed ? window.x : 0;
+        offset.y = windowed ? window.y : 0;
 
         // Process Image
-        Mat filtered = new Mat(input.rows(), input.cols(), CvType.CV_8UC1, new Scalar(255));
-        Imgproc.cvtColor(input, filtered, Imgproc.COLOR_RGB2HSV);
-        Core.inRange(filtered, new Scalar(85, 95, 95), new Scalar(115, 255, 255), filtered);
-        Imgproc.morphologyEx(filtered, filtered, Imgproc.MORPH_OPEN, new Mat());
-        Imgproc.morphologyEx(filtered, filtered, Imgproc.MORPH_CLOSE, new Mat());
-        new File(filteredPath + (frameNum % numberOfFrames) + ".jpg").delete();
-        if (debug) Imgcodecs.imwrite(filteredPath + (frameNum % numberOfFrames) + ".jpg", filtered);
+        Imgproc.cvtColor(search, hsv, Imgproc.COLOR_RGB2HSV);
+        Core.inRange(hsv, lowerHSV, upperHSV, filtered);
+        stages.mark(thresholdStage);
+        Imgproc.morphologyEx(filtered, filtered, Imgproc.MORPH_OPEN, emptyKernel);
+        Imgproc.morphologyEx(filtered, filtered, Imgproc.MORPH_CLOSE, emptyKernel);
+        stages.mark(morphologyStage);
+        if (capture) debugImages.submit(filteredPath + (frameNum % numberOfFrames) + ".jpg", filtered);
 
         // Further Process Image
         Imgproc.Canny(filtered, filtered, 0, 0, 3, false);
-        new File(contoursPath + (frameNum % numberOfFrames) + ".jpg").delete();
-        if (debug) Imgcodecs.imwrite(contoursPath + (frameNum % numberOfFrames) + ".jpg", filtered);
-
-        // Find Contours
-        Mat heirarchyMat = new Mat();
-        List<MatOfPoint> contours = new ArrayList<>();
-        Imgproc.findContours(filtered, contours, heirarchyMat, Imgproc.RETR_CCOMP, Imgproc.CHAIN_APPROX_NONE);
-
-        if (contours.size() != 0) {
-            // Find Bottommost Point
-            int contourIndex = 0;
-            for (int i = 0; i < contours.size(); i++) {
-                for (int j = 0; j < contours.get(i).rows(); j++) {
-                    if (contours.get(i).get(j, 0)[1] >= ypix && Imgproc.contourArea(contours.get(i)) >= contourMinimumArea) {
-                        xpix = contours.get(i).get(j, 0)[0];
-                        ypix = contours.get(i).get(j, 0)[1];
-                        contourArea = Imgproc.contourArea(contours.get(i));
-                        contourIndex = i;
-                    }
+        stages.mark(edgesStage);
+        if (capture) debugImages.submit(contoursPath + (frameNum % numberOfFrames) + ".jpg", filtered);
+
+        // Find Contours, in Full Frame Coordinates
+        for (MatOfPoint contour : contours) contour.release();
+        contours.clear();
+        Imgproc.findContours(filtered, contours, heirarchyMat, Imgproc.RETR_CCOMP, Imgproc.CHAIN_APPROX_NONE, offset);
+        if (windowed) search.release();
+
+        // Find Bottommost Point of the Contours Large Enough to be a Stone
+        int contourIndex = -1;
+        Point[] stonePoints = null;
+        for (int i = 0; i < contours.size(); i++) {
+            double area = Imgproc.contourArea(contours.get(i));
+            if (area < contourMinimumArea) continue;
+            Point[] points = contours.get(i).toArray();
+            for (Point point : points) {
+                if (point.y >= ypix) {
+                    xpix = point.x;
+                    ypix = point.y;
+                    contourArea = area;
+                    contourIndex = i;
+                    stonePoints = points;
                 }
             }
-            Imgproc.circle(input, new Point(xpix, ypix), 2, new Scalar(0, 0, 255), 2);
-            new File(circlePath + (frameNum % numberOfFrames) + ".jpg").delete();
-            if (debug) Imgcodecs.imwrite(circlePath + (frameNum % numberOfFrames) + ".jpg", input);
+        }
+        stages.mark(contoursStage);
+
+        if (contourIndex != -1) {
+            if (capture) {
+                Imgproc.circle(input, new Point(xpix, ypix), 2, new Scalar(0, 0, 255), 2);
+                debugImages.submit(circlePath + (frameNum % numberOfFrames) + ".jpg", input);
+            }
 
             // Find Ellipse Using Contour Index
-            Mat ellipseOnly = input.clone();
-            RotatedRect ellipse;
-            ellipse = Imgproc.fitEllipse(new MatOfPoint2f(contours.get(contourIndex).toArray()));
+            RotatedRect ellipse = Imgproc.fitEllipse(new MatOfPoint2f(stonePoints));
             stoneTheta = Math.toRadians(ellipse.angle);
-            Imgproc.ellipse(ellipseOnly, ellipse, new Scalar(0), 1);
-            new File(ellipsePath + (frameNum % numberOfFrames) + ".jpg").delete();
-            if (debug) Imgcodecs.imwrite(ellipsePath + (frameNum % numberOfFrames) + ".jpg", ellipseOnly);
+            if (capture) {
+                Mat ellipseOnly = input.clone();
+                Imgproc.ellipse(ellipseOnly, ellipse, new Scalar(0), 1);
+                debugImages.submit(ellipsePath + (frameNum % numberOfFrames) + ".jpg", ellipseOnly);
+                ellipseOnly.release();
+            }
 
             // Convert Local Coordinates to Field Coordinates
             xpix = xpix / (input.cols() / 2) - 1;
@@ -187,19 +251,66 @@ public class stoneLocator2 extends Thread {
                 stoneX = -1;
                 stoneY = -1;
                 stoneTheta = -1;
+                haveWindow = false;
+            } else {
+                // Search Around This Contour Next Frame
+                updateWindow(Imgproc.boundingRect(contours.get(contourIndex)), input.cols(), input.rows());
             }
-        }
+        } else haveWindow = false;
+        stages.mark(fitStage);
+
+        double[] location = tracking ? track(stoneX, stoneY, stoneTheta) : new double[] {stoneX, stoneY, stoneTheta};
+        stages.mark(trackStage);
 
         // Log and Return Data
         time = timer.milliseconds();
-        log("x: " + stoneX);
-        log("y: " + (stoneY + 8));
-        log("theta: " + stoneTheta);
+        log("x: " + location[0]);
+        log("y: " + (location[1] + 8));
+        log("theta: " + location[2]);
         log("ms: " + time);
 
-        return new double[] {stoneX, stoneY, stoneTheta};
+        return location;
     }
-    
+
+    /**
+     * Feeds a detection (or a miss, all -1) to the filters, dropping the track after too many misses
+     * @return filtered x, y, and theta of stone, or -1s when there is no track
+     */
+    private double[] track(double stoneX, double stoneY, double stoneTheta) {
+        long now = System.nanoTime();
+        double dt = lastUpdateTime == 0 ? 0 : (now - lastUpdateTime) / 1e9;
+        lastUpdateTime = now;
+
+        if (stoneY != -1) {
+            misses = 0;
+            return new double[] {xFilter.update(stoneX, dt), yFilter.update(stoneY, dt), thetaFilter.update(stoneTheta, dt)};
+        }
+
+        misses++;
+        if (misses > maximumMisses || !xFilter.isInitialized()) {
+            xFilter.reset();
+            yFilter.reset();
+            thetaFilter.reset();
+            return new double[] {-1, -1, -1};
+        }
+        return new double[] {xFilter.predict(dt), yFilter.predict(dt), thetaFilter.predict(dt)};
+    }
+
+    /**
+     * Sets the search window to a contour's bounding box grown on each side, clamped to the frame
+     */
+    private void updateWindow(Rect bounds, int cols, int rows) {
+        int marginX = Math.max(windowMinimumMargin, (int) (bounds.width * windowMargin));
+        int marginY = Math.max(windowMinimumMargin, (int) (bounds.height * windowMargin));
+        int left = Math.max(0, bounds.x - marginX);
+        int top = Math.max(0, bounds.y - marginY);
+        window.x = left;
+        window.y = top;
+        window.width = Math.min(cols, bounds.x + bounds.width + marginX) - left;
+        window.height = Math.min(rows, bounds.y + bounds.height + marginY) - top;
+        haveWindow = true;
+    }
+
     /**
      * Gets current stone position value (x, y, theta)
      * @return current stone position value (x, y, theta)
@@ -213,6 +324,32 @@ public class stoneLocator2 extends Thread {
     public double getTime() {return time;}
 
     public double getArea() {return contourArea;}
+
+    /**
+     * Gets the time spent in each stage of locating the stone on the last frame
+     */
+    public StageTimer getStageTimer() {return stages;}
+
+    /**
+     * Gets the filtered stone velocity (in/s, in/s, rad/s), zero when not tracking
+     */
+    public double[] getVelocity() {
+        return new double[] {xFilter.getVelocity(), yFilter.getVelocity(), thetaFilter.getVelocity()};
+    }
+
+    /**
+     * Sets whether stones are tracked between frames (windowed search and filtered output)
+     * @param tracking true = track; false = search every whole frame and report raw values
+     */
+    public void setTracking(boolean tracking) {
+        this.tracking = tracking;
+        haveWindow = false;
+        misses = 0;
+        lastUpdateTime = 0;
+        xFilter.reset();
+        yFilter.reset();
+        thetaFilter.reset();
+    }
     
     /**
      * Sets whether the stone locator is actively processing camera frames to locate stone
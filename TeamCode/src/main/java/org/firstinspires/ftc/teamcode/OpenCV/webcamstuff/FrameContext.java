@@ -0,0 +1,106 @@
+package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
+
+import org.opencv.core.Rect;
+
+/*
+ * Information about the frame currently being processed, handed to
+ * OpenCvPipeline.processFrame(Mat, FrameContext). The camera re-uses
+ * a single context for every frame, so pipelines should copy out the
+ * values they want to keep rather than holding on to the context.
+ */
+public class FrameContext
+{
+    private long sequence;
+    private long captureTimeNanos;
+    private long processingStartNanos;
+    private int regionX;
+    private int regionY;
+    private double scaleX = 1;
+    private double scaleY = 1;
+
+    /*
+     * Called by the cameras for each frame, and by anything else that feeds
+     * a pipeline frames, such as the offline vision harness
+     */
+    public void set(long sequence, long captureTimeNanos, long processingStartNanos)
+    {
+        this.sequence = sequence;
+        this.captureTimeNanos = captureTimeNanos;
+        this.processingStartNanos = processingStartNanos;
+    }
+
+    void setRegion(int regionX, int regionY, double scaleX, double scaleY)
+    {
+        this.regionX = regionX;
+        this.regionY = regionY;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+    }
+
+    /*
+     * Sequence number of the frame. Webcams report the sensor's frame
+     * number, so gaps indicate frames that were dropped before reaching
+     * the pipeline.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /*
+     * Time at which the frame was captured, on the System.nanoTime() clock.
+     * Internal cameras do not report one, so for them this is the time the
+     * frame was received.
+     */
+    public long getCaptureTimeNanos()
+    {
+        return captureTimeNanos;
+    }
+
+    /*
+     * Time at which the user pipeline was started on this frame, on the
+     * System.nanoTime() clock
+     */
+    public long getProcessingStartNanos()
+    {
+        return processingStartNanos;
+    }
+
+    /*
+     * Maps an x coordinate in the pipeline's input (which may be a scaled
+     * region of interest) to full frame pixel coordinates
+     */
+    public double toFrameX(double x)
+    {
+        return regionX + x / scaleX;
+    }
+
+    /*
+     * Maps a y coordinate in the pipeline's input to full frame pixel coordinates
+     */
+    public double toFrameY(double y)
+    {
+        return regionY + y / scaleY;
+    }
+
+    /*
+     * Maps a rectangle in the pipeline's input to full frame pixel
+     * coordinates, e.g. to seed the next region of interest
+     */
+    public Rect toFrameRect(Rect rect)
+    {
+        int x = (int) Math.floor(toFrameX(rect.x));
+        int y = (int) Math.floor(toFrameY(rect.y));
+        int right = (int) Math.ceil(toFrameX(rect.x + rect.width));
+        int bottom = (int) Math.ceil(toFrameY(rect.y + rect.height));
+        return new Rect(x, y, right - x, bottom - y);
+    }
+
+    /*
+     * Milliseconds elapsed since the frame was captured
+     */
+    public double getAgeMs()
+    {
+        return (System.nanoTime() - captureTimeNanos) / 1e6;
+    }
+}
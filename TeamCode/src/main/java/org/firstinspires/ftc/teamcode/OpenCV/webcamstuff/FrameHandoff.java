@@ -0,0 +1,129 @@
+package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Hands frames from one stage of frame handling to the next, with the
+ * newest frame winning. Three slots rotate between the producer (back),
+ * the handoff itself (middle) and the consumer (front), so neither side
+ * ever waits on the other or touches a Mat the other is using. A frame
+ * the consumer didn't get to in time is overwritten, and counted.
+ *
+ * Supports one producer thread and one consumer thread.
+ */
+class FrameHandoff
+{
+    /*
+     * A frame and what the next stage needs to know about it
+     */
+    static class Slot
+    {
+        final Mat mat = new Mat();
+        long sequence;
+        long captureNanos;
+        long startMillis;
+        int rotateCode;
+        int frameCols;
+        int frameRows;
+        int frameType;
+        boolean postToViewport;
+    }
+
+    //Exchange holds the middle index, and whether it holds an unread frame
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private final Slot[] slots = {new Slot(), new Slot(), new Slot()};
+    private final AtomicInteger exchange = new AtomicInteger(1);
+    private final AtomicLong dropped = new AtomicLong();
+    private int back = 2;
+    private int front = 0;
+    private volatile Thread consumer;
+
+    /*
+     * Producer: the slot to fill in before calling publish()
+     */
+    Slot beginWrite()
+    {
+        return slots[back];
+    }
+
+    /*
+     * Producer: hands over the slot from beginWrite(), replacing
+     * the last one if the consumer hasn't taken it yet
+     */
+    void publish()
+    {
+        int previous = exchange.getAndSet(back | FRESH);
+
+        if((previous & FRESH) != 0)
+        {
+            dropped.incrementAndGet();
+        }
+
+        back = previous & INDEX;
+
+        Thread waiting = consumer;
+        if(waiting != null)
+        {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    /*
+     * Consumer: waits for a frame newer than the last one taken. The slot
+     * is the consumer's until the next call.
+     *
+     * @return the newest frame, or null once the thread is interrupted
+     */
+    Slot take()
+    {
+        while((exchange.get() & FRESH) == 0)
+        {
+            if(Thread.currentThread().isInterrupted())
+            {
+                return null;
+            }
+
+            consumer = Thread.currentThread();
+
+            if((exchange.get() & FRESH) == 0)
+            {
+                LockSupport.park(this);
+            }
+
+            consumer = null;
+        }
+
+        if(Thread.currentThread().isInterrupted())
+        {
+            return null;
+        }
+
+        front = exchange.getAndSet(front) & INDEX;
+        return slots[front];
+    }
+
+    /*
+     * Number of frames overwritten before the consumer took them
+     */
+    long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /*
+     * Frees the slots' memory, once neither side is using them
+     */
+    void release()
+    {
+        for(Slot slot : slots)
+        {
+            slot.mat.release();
+        }
+    }
+}
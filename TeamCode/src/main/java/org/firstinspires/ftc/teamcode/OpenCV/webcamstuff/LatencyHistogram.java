@@ -0,0 +1,100 @@
+package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
+
+/*
+ * Fixed size histogram of latencies with 1ms buckets, so that
+ * recording a sample never allocates. Samples longer than the
+ * last bucket are counted in an overflow bucket (they still
+ * count towards the mean and max).
+ */
+public class LatencyHistogram
+{
+    private static final int NUM_BUCKETS = 250;
+
+    private final long[] buckets = new long[NUM_BUCKETS + 1];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    public synchronized void record(long nanos)
+    {
+        if(nanos < 0)
+        {
+            nanos = 0;
+        }
+
+        int bucket = (int) Math.min(nanos / 1000000L, NUM_BUCKETS);
+        buckets[bucket]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public synchronized void reset()
+    {
+        for(int i = 0; i < buckets.length; i++)
+        {
+            buckets[i] = 0;
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    public synchronized double getMeanMs()
+    {
+        return count == 0 ? 0 : totalNanos / 1e6 / count;
+    }
+
+    public synchronized double getMaxMs()
+    {
+        return maxNanos / 1e6;
+    }
+
+    /*
+     * Upper edge of the bucket containing the given percentile (0-100),
+     * so the result is accurate to 1ms. Percentiles in the overflow
+     * bucket report the maximum.
+     */
+    public synchronized double getPercentileMs(double percentile)
+    {
+        if(count == 0)
+        {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100d * count);
+        long seen = 0;
+
+        for(int i = 0; i < NUM_BUCKETS; i++)
+        {
+            seen += buckets[i];
+
+            if(seen >= Math.max(rank, 1))
+            {
+                return Math.min(i + 1, getMaxMs());
+            }
+        }
+
+        return getMaxMs();
+    }
+
+    /*
+     * Copies the bucket counts into the supplied array, which should
+     * hold at least getNumBuckets() elements. The last element is the
+     * overflow bucket.
+     */
+    public synchronized void getBuckets(long[] out)
+    {
+        System.arraycopy(buckets, 0, out, 0, Math.min(out.length, buckets.length));
+    }
+
+    public int getNumBuckets()
+    {
+        return buckets.length;
+    }
+}
@@ -1,72 +1,434 @@
 package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
 
-import android.util.Log;
-
 import org.opencv.core.Mat;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /*
  * A utility class for managing the re-use of Mats
  * so as to re-use already allocated memory instead
  * of constantly allocating new Mats and then freeing
  * them after use.
+ *
+ * Taking and returning Mats is lock-free; each Mat's
+ * checked out state is claimed with a compare-and-set,
+ * and only a taker that finds the pool empty under the
+ * BLOCK policy ever waits. When asked for a size and type,
+ * a free Mat that already has them is preferred, so its
+ * memory doesn't need to be re-allocated.
+ *
+ * What happens when every Mat is checked out is up to the
+ * ExhaustionPolicy. Either way a take that can't be served
+ * returns null and is counted, rather than crashing the OpMode,
+ * so callers drop that frame.
  */
-class MatRecycler
+public class MatRecycler
 {
-    private RecyclableMat[] mats;
-    private ArrayBlockingQueue<RecyclableMat> availableMats;
+    public enum ExhaustionPolicy
+    {
+        /*
+         * Wait up to the block timeout for a Mat to be returned
+         */
+        BLOCK,
+
+        /*
+         * Give up on the Mat that has been checked out the longest and
+         * replace it with a new one. Its holder keeps using it undisturbed,
+         * and it is released instead of pooled when it comes back.
+         */
+        EVICT_OLDEST,
+
+        /*
+         * Allocate another Mat, up to the maximum capacity, then block
+         */
+        GROW,
+    }
+
+    private static final int FREE = 0;
+    private static final int CHECKED_OUT = 1;
+    private static final int EVICTED = 2;
+
+    //Passes evictOldest makes when another taker keeps beating it to the pool
+    private static final int MAX_EVICT_ATTEMPTS = 8;
+
+    private final AtomicReferenceArray<RecyclableMat> mats;
+    private final AtomicInteger size;
+    private final ExhaustionPolicy policy;
+    private final long blockTimeoutNanos;
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong checkoutSequence = new AtomicLong();
+
+    // Statistics
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong exhaustions = new AtomicLong();
+
+    /*
+     * A fixed pool that fails immediately when exhausted
+     */
+    public MatRecycler(int num)
+    {
+        this(num, num, ExhaustionPolicy.BLOCK, 0);
+    }
 
-    MatRecycler(int num)
+    /*
+     * @param initialCapacity number of Mats allocated up front
+     * @param maxCapacity most Mats the GROW policy may allocate, ignored otherwise
+     * @param policy what to do when every Mat is checked out
+     * @param blockTimeoutMs longest a take waits for a Mat under BLOCK (and GROW, once
+     *                       grown to the cap), 0 to fail immediately
+     */
+    public MatRecycler(int initialCapacity, int maxCapacity, ExhaustionPolicy policy, long blockTimeoutMs)
     {
-        mats = new RecyclableMat[num];
-        availableMats = new ArrayBlockingQueue<>(num);
+        if(initialCapacity < 1 || (policy == ExhaustionPolicy.GROW && maxCapacity < initialCapacity))
+        {
+            throw new IllegalArgumentException("Invalid recycler capacity");
+        }
+
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockTimeoutMs));
 
-        for(int i = 0; i < mats.length; i++)
+        mats = new AtomicReferenceArray<>(policy == ExhaustionPolicy.GROW ? maxCapacity : initialCapacity);
+        size = new AtomicInteger(initialCapacity);
+
+        for(int i = 0; i < initialCapacity; i++)
         {
-            mats[i] = new RecyclableMat(i);
-            availableMats.add(mats[i]);
+            mats.set(i, new RecyclableMat(i));
         }
     }
 
-    synchronized RecyclableMat takeMat() throws InterruptedException
+    /*
+     * Takes any free Mat, the caller sizes it
+     *
+     * @return a Mat, or null if none could be had under the exhaustion policy
+     */
+    public RecyclableMat takeMat() throws InterruptedException
+    {
+        return takeMat(-1, -1, -1);
+    }
+
+    /*
+     * Takes a free Mat and makes sure it has the given size and type,
+     * preferring one that already does
+     *
+     * @return a Mat, or null if none could be had under the exhaustion policy
+     */
+    public RecyclableMat takeMat(int rows, int cols, int type) throws InterruptedException
     {
-        if(availableMats.size() == 0)
+        RecyclableMat mat = tryTake(rows, cols, type);
+
+        if(mat == null)
+        {
+            switch (policy)
+            {
+                case GROW:
+                    mat = grow();
+                    if(mat == null)
+                    {
+                        mat = waitForMat(rows, cols, type);
+                    }
+                    break;
+
+                case EVICT_OLDEST:
+                    mat = evictOldest();
+                    break;
+
+                case BLOCK:
+                    mat = waitForMat(rows, cols, type);
+                    break;
+            }
+        }
+
+        if(mat == null)
+        {
+            exhaustions.incrementAndGet();
+            return null;
+        }
+
+        checkouts.incrementAndGet();
+        int nowCheckedOut = checkedOut.incrementAndGet();
+        int high;
+        while(nowCheckedOut > (high = highWaterMark.get()) && !highWaterMark.compareAndSet(high, nowCheckedOut));
+
+        if(rows >= 0)
         {
-            throw new RuntimeException("All mats have been checked out!");
+            mat.create(rows, cols, type);
         }
 
-        RecyclableMat mat = availableMats.take();
-        mat.checkedOut = true;
         return mat;
     }
 
-    synchronized void returnMat(RecyclableMat mat)
+    public void returnMat(RecyclableMat mat)
     {
-        if(mat != mats[mat.idx])
+        if(mat.recycler != this)
         {
             throw new IllegalArgumentException("This mat does not belong to this recycler!");
         }
 
-        if(mat.checkedOut)
+        //An eviction can change the state under us, so retry until a CAS lands
+        while(true)
+        {
+            int state = mat.state.get();
+
+            if(state == EVICTED)
+            {
+                if(mat.state.compareAndSet(EVICTED, FREE))
+                {
+                    //Already replaced in the pool, so just free its memory
+                    mat.release();
+                    return;
+                }
+            }
+            else if(state == CHECKED_OUT)
+            {
+                //Uncount before freeing, so the count never shows more Mats out than exist
+                checkedOut.decrementAndGet();
+
+                if(mat.state.compareAndSet(CHECKED_OUT, FREE))
+                {
+                    for(Thread waiter : waiters)
+                    {
+                        LockSupport.unpark(waiter);
+                    }
+                    return;
+                }
+
+                //Evicted in between, which uncounted it already
+                checkedOut.incrementAndGet();
+            }
+            else
+            {
+                throw new IllegalArgumentException("This mat has already been returned!");
+            }
+        }
+    }
+
+    /*
+     * One pass over the pool, first for a free Mat of the right
+     * shape, then for any free Mat
+     */
+    private RecyclableMat tryTake(int rows, int cols, int type)
+    {
+        int count = size.get();
+
+        if(rows >= 0)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                RecyclableMat mat = mats.get(i);
+                if(mat != null && mat.state.get() == FREE
+                        && mat.rows() == rows && mat.cols() == cols && mat.type() == type
+                        && claim(mat))
+                {
+                    return mat;
+                }
+            }
+        }
+
+        for(int i = 0; i < count; i++)
+        {
+            RecyclableMat mat = mats.get(i);
+            if(mat != null && mat.state.get() == FREE && claim(mat))
+            {
+                return mat;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean claim(RecyclableMat mat)
+    {
+        if(mat.state.compareAndSet(FREE, CHECKED_OUT))
+        {
+            mat.checkedOutAt = checkoutSequence.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private RecyclableMat grow()
+    {
+        int count;
+        do
+        {
+            count = size.get();
+            if(count >= mats.length())
+            {
+                return null;
+            }
+        }
+        while(!size.compareAndSet(count, count + 1));
+
+        RecyclableMat mat = new RecyclableMat(count);
+        mat.state.set(CHECKED_OUT);
+        mat.checkedOutAt = checkoutSequence.incrementAndGet();
+        mats.set(count, mat);
+        return mat;
+    }
+
+    private RecyclableMat evictOldest()
+    {
+        int attempts = 0;
+
+        while(true)
+        {
+            int count = size.get();
+            RecyclableMat oldest = null;
+
+            for(int i = 0; i < count; i++)
+            {
+                RecyclableMat mat = mats.get(i);
+                if(mat != null && mat.state.get() == CHECKED_OUT
+                        && (oldest == null || mat.checkedOutAt < oldest.checkedOutAt))
+                {
+                    oldest = mat;
+                }
+            }
+
+            if(oldest == null)
+            {
+                //Everything was returned while we were looking, or another
+                //taker is part way through an eviction
+                RecyclableMat mat = tryTake(-1, -1, -1);
+                if(mat != null || ++attempts >= MAX_EVICT_ATTEMPTS)
+                {
+                    return mat;
+                }
+                Thread.yield();
+                continue;
+            }
+
+            if(oldest.state.compareAndSet(CHECKED_OUT, EVICTED))
+            {
+                RecyclableMat replacement = new RecyclableMat(oldest.idx);
+                replacement.state.set(CHECKED_OUT);
+                replacement.checkedOutAt = checkoutSequence.incrementAndGet();
+                mats.set(oldest.idx, replacement);
+                checkedOut.decrementAndGet();
+                evictions.incrementAndGet();
+                return replacement;
+            }
+        }
+    }
+
+    private RecyclableMat waitForMat(int rows, int cols, int type) throws InterruptedException
+    {
+        if(blockTimeoutNanos == 0)
+        {
+            return null;
+        }
+
+        waits.incrementAndGet();
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        Thread self = Thread.currentThread();
+        waiters.add(self);
+
+        try
         {
-            mat.checkedOut = false;
-            availableMats.add(mat);
+            while(true)
+            {
+                //Look again after registering, so a return in between isn't missed
+                RecyclableMat mat = tryTake(rows, cols, type);
+                if(mat != null)
+                {
+                    return mat;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0)
+                {
+                    return null;
+                }
+
+                LockSupport.parkNanos(this, remaining);
+
+                if(Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+            }
         }
-        else
+        finally
         {
-            throw new IllegalArgumentException("This mat has already been returned!");
+            waiters.remove(self);
         }
     }
 
-    class RecyclableMat extends Mat
+    /*
+     * Number of Mats in the pool, free or checked out
+     */
+    public int getSize()
+    {
+        return size.get();
+    }
+
+    /*
+     * Number of Mats checked out right now
+     */
+    public int getCheckedOutCount()
+    {
+        return checkedOut.get();
+    }
+
+    /*
+     * Most Mats that have been checked out at once
+     */
+    public int getHighWaterMark()
+    {
+        return highWaterMark.get();
+    }
+
+    /*
+     * Number of successful takes
+     */
+    public long getCheckoutCount()
+    {
+        return checkouts.get();
+    }
+
+    /*
+     * Number of takes that found the pool empty and had to wait
+     */
+    public long getWaitCount()
+    {
+        return waits.get();
+    }
+
+    /*
+     * Number of Mats given up on under EVICT_OLDEST
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /*
+     * Number of takes that returned null, i.e. dropped frames
+     */
+    public long getExhaustedCount()
+    {
+        return exhaustions.get();
+    }
+
+    public class RecyclableMat extends Mat
     {
-        private int idx = -1;
-        private volatile boolean checkedOut = false;
+        private final int idx;
+        private final MatRecycler recycler = MatRecycler.this;
+        private final AtomicInteger state = new AtomicInteger(FREE);
+        private volatile long checkedOutAt;
 
         private RecyclableMat(int idx)
         {
             this.idx = idx;
         }
     }
-}
\ No newline at end of file
+}
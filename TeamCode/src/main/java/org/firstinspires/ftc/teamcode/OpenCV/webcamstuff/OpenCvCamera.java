@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
 
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+
 public interface OpenCvCamera
 {
     /***
@@ -41,6 +43,34 @@ public interface OpenCvCamera
      */
     void resumeViewport();
 
+    /***
+     * Render only every Nth frame in the viewport, and at a fraction of the
+     * frame's resolution. Frames that are skipped are not copied or converted
+     * for display at all, so during a match this leaves more CPU time for your
+     * pipeline while still showing a live (if choppy) preview. Does not affect
+     * the frames given to your pipeline.
+     *
+     * @param renderEveryNthFrame render one frame out of every this many, at least 1
+     * @param scale fraction of the frame's resolution to render at, in (0, 1]
+     */
+    void setViewportDecimation(int renderEveryNthFrame, double scale);
+
+    /***
+     * Run frame handling as three stages on their own threads instead of
+     * all in sequence on the camera's thread: the camera thread only rotates
+     * and copies each frame, your pipeline runs on a dedicated thread, and the
+     * viewport and DS preview run on another. Each stage works on the newest
+     * frame the stage before it produced, skipping any it was too slow for, so
+     * a slow pipeline no longer holds up capture and the frame rate is set by
+     * the slowest stage rather than the sum of all of them. Costs a copy of
+     * each frame, plus a copy of each frame that is displayed.
+     *
+     * Takes effect the next time {@link #startStreaming(int, int)} is called.
+     *
+     * @param staged true to run the stages on their own threads
+     */
+    void setStagedProcessing(boolean staged);
+
     /***
      * Tell the camera to start streaming images to us! Note that you must make sure
      * the resolution you specify is supported by the camera. If it is not, an exception
@@ -143,4 +173,22 @@ public interface OpenCvCamera
      *         could achieve.
      */
     int getCurrentPipelineMaxFps();
+
+    /***
+     * Get the latency histogram of one stage of frame handling, recorded since
+     * {@link #startStreaming(int, int)} was called. The histogram is live, it keeps
+     * being updated as frames are processed.
+     *
+     * @param stage the stage of frame handling
+     * @return the latency histogram of that stage
+     */
+    LatencyHistogram getLatencyHistogram(OpenCvLatencyStage stage);
+
+    /***
+     * Add the median, 90th percentile and maximum latency of each stage of frame
+     * handling to a dashboard telemetry packet.
+     *
+     * @param packet the packet to add the latencies to
+     */
+    void addLatencyTelemetry(TelemetryPacket packet);
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
 
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
 import com.qualcomm.robotcore.eventloop.EventLoopManager;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.robot.RobotState;
@@ -30,11 +31,13 @@ import org.opencv.imgproc.Imgproc;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CountDownLatch;
 
 public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSource {
 
-    private OpenCvPipeline pipeline = null;
+    private volatile OpenCvPipeline pipeline = null;
+    private final Object pipelineLock = new Object();
     private LinearLayout viewportContainerLayout;
     private MovingStatistics msFrameIntervalRollingAverage;
     private MovingStatistics msUserPipelineRollingAverage;
@@ -48,13 +51,46 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
     private int avgOverheadTime;
     private int avgTotalFrameTime;
     private long currentFrameStartTime;
+    private long currentFrameStartNanos;
+    private long currentFrameCaptureNanos;
+    private long currentFrameSequence;
+    private long internalFrameSequence = 0;
+    private final FrameContext frameContext = new FrameContext();
+    private final LatencyHistogram[] latencyHistograms = new LatencyHistogram[OpenCvLatencyStage.values().length];
     private final Object bitmapFrameLock = new Object();
     private Continuation<? extends Consumer<Bitmap>> bitmapContinuation;
+    private static final int SNAPSHOT_BITMAP_POOL_SIZE = 2;
+    private final ArrayBlockingQueue<Bitmap> snapshotBitmapPool = new ArrayBlockingQueue<>(SNAPSHOT_BITMAP_POOL_SIZE);
+    private int snapshotBitmapsCreated = 0;
     private Mat rotatedMat = new Mat();
     private Mat matToUseIfPipelineReturnedCropped;
     private Mat croppedColorCvtedMat = new Mat();
+    private org.opencv.core.Size displaySize;
+    private Mat displayConvertedMat = new Mat();
+    private Mat displayRotatedMat = new Mat();
+    private Mat displayScaledMat = new Mat();
+    private final Rect clampedRegion = new Rect();
+    private Mat regionSubmat;
+    private Rect regionSubmatRect = new Rect();
+    private long regionSubmatDataAddr;
+    private Mat[] pyramidMats = {new Mat(), new Mat(), new Mat(), new Mat()};
+    private Mat regionScaledMat = new Mat();
+    private org.opencv.core.Size regionScaledSize = new org.opencv.core.Size();
+    private Mat compositeMat = new Mat();
+    private Mat compositeConvertedMat = new Mat();
+    private Mat compositeScaledMat = new Mat();
     private Scalar brown = new Scalar(82, 61, 46);
 
+    /*
+     * Staged processing: when on, the camera thread only captures,
+     * and the pipeline and the display each run on their own thread
+     */
+    private boolean stagedProcessing = false;
+    private volatile FrameHandoff processHandoff;
+    private volatile FrameHandoff publishHandoff;
+    private Thread processThread;
+    private Thread publishThread;
+
     /*
      * NOTE: We cannot simply pass `new OpModeNotifications()` inline to the call
      * to register the listener, because the SDK stores the list of listeners in
@@ -66,6 +102,12 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
     public OpenCvCameraBase()
     {
         frameCount = 0;
+
+        for(int i = 0; i < latencyHistograms.length; i++)
+        {
+            latencyHistograms[i] = new LatencyHistogram();
+        }
+
         LIFO_OpModeCallbackDelegate.getInstance().add(opModeNotifications);
     }
 
@@ -92,12 +134,25 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         msTotalFrameProcessingTimeRollingAverage = new MovingStatistics(30);
         timer = new ElapsedTime();
 
+        for(LatencyHistogram histogram : latencyHistograms)
+        {
+            histogram.reset();
+        }
+
+        Size sizeAfterRotation = getFrameSizeAfterRotation(width, height, rotation);
+        displaySize = new org.opencv.core.Size(sizeAfterRotation.getWidth(), sizeAfterRotation.getHeight());
+
         if(viewport != null)
         {
-            viewport.setSize(getFrameSizeAfterRotation(width, height, rotation));
+            viewport.setSize(sizeAfterRotation);
             viewport.activate();
         }
 
+        if(stagedProcessing)
+        {
+            startStages();
+        }
+
         /*
          * For preview on DS
          */
@@ -106,6 +161,8 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
 
     public synchronized final void cleanupForEndStreaming()
     {
+        stopStages();
+
         matToUseIfPipelineReturnedCropped = null;
 
         if(viewport != null)
@@ -132,12 +189,129 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         }
     }
 
+    @Override
+    public synchronized final void setViewportDecimation(int renderEveryNthFrame, double scale)
+    {
+        if(viewport != null)
+        {
+            viewport.setDecimation(renderEveryNthFrame, scale);
+        }
+    }
+
+    @Override
+    public synchronized final void setStagedProcessing(boolean staged)
+    {
+        stagedProcessing = staged;
+    }
+
+    /*
+     * Starts the process and publish threads, each fed the newest frame
+     * from the stage before it through a single slot handoff
+     */
+    private void startStages()
+    {
+        processHandoff = new FrameHandoff();
+        publishHandoff = new FrameHandoff();
+
+        processThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                FrameHandoff.Slot slot;
+
+                while((slot = processHandoff.take()) != null)
+                {
+                    try
+                    {
+                        processStage(slot.mat, slot.sequence, slot.captureNanos, slot.startMillis, slot.rotateCode);
+                    }
+                    catch (Exception e)
+                    {
+                        emulateEStop(e);
+                        return;
+                    }
+                }
+            }
+        }, "OpenCvCamera process");
+
+        publishThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                FrameHandoff.Slot slot;
+
+                while((slot = publishHandoff.take()) != null)
+                {
+                    try
+                    {
+                        publishStage(slot.mat, slot.frameCols, slot.frameRows, slot.frameType, slot.rotateCode, slot.postToViewport);
+                    }
+                    catch (Exception e)
+                    {
+                        emulateEStop(e);
+                        return;
+                    }
+                }
+            }
+        }, "OpenCvCamera publish");
+
+        //Display is the least important stage
+        publishThread.setPriority(Thread.NORM_PRIORITY - 1);
+
+        processThread.start();
+        publishThread.start();
+    }
+
+    /*
+     * Stops the stage threads, waiting for the frame each is on. Camera
+     * callbacks have stopped by now, or are blocked on this object.
+     */
+    private void stopStages()
+    {
+        if(processThread == null)
+        {
+            return;
+        }
+
+        processThread.interrupt();
+        publishThread.interrupt();
+
+        try
+        {
+            processThread.join();
+            publishThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+
+        processHandoff.release();
+        publishHandoff.release();
+        processHandoff = null;
+        publishHandoff = null;
+        processThread = null;
+        publishThread = null;
+    }
+
     @Override
     public synchronized final void setPipeline(OpenCvPipeline pipeline)
     {
         this.pipeline = pipeline;
     }
 
+    /*
+     * The format the current pipeline wants its frames in, so that
+     * implementations only do the conversion that is needed
+     */
+    protected synchronized OpenCvInputFormat getPipelineInputFormat()
+    {
+        return pipeline == null ? OpenCvInputFormat.RGBA : pipeline.getInputFormat();
+    }
+
     private void setupViewport(final int containerLayoutId)
     {
         final CountDownLatch latch = new CountDownLatch(1);
@@ -169,8 +343,10 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
                         @Override
                         public void onClick(View view)
                         {
-                            synchronized (OpenCvCameraBase.this)
+                            synchronized (pipelineLock)
                             {
+                                OpenCvPipeline pipeline = OpenCvCameraBase.this.pipeline;
+
                                 if(pipeline != null)
                                 {
                                     pipeline.onViewportTapped();
@@ -226,9 +402,26 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         });
     }
 
+    /*
+     * For cameras which do not report when a frame was captured; the
+     * time of receipt stands in for the capture time
+     */
     protected void notifyStartOfFrameProcessing()
+    {
+        long now = System.nanoTime();
+        notifyStartOfFrameProcessing(now, internalFrameSequence++);
+    }
+
+    /*
+     * @param captureTimeNanos time the sensor captured the frame, on the System.nanoTime() clock
+     * @param sequence the sensor's frame number
+     */
+    protected void notifyStartOfFrameProcessing(long captureTimeNanos, long sequence)
     {
         currentFrameStartTime = System.currentTimeMillis();
+        currentFrameStartNanos = System.nanoTime();
+        currentFrameCaptureNanos = captureTimeNanos;
+        currentFrameSequence = sequence;
     }
 
     protected synchronized void handleFrame(Mat frame)
@@ -243,17 +436,53 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         }
     }
 
-    protected synchronized void handleFrameUserCrashable(Mat frame)
+    /*
+     * For when the pipeline asks for a format this camera can't produce
+     */
+    protected synchronized void handleUnsupportedInputFormat(OpenCvInputFormat format)
     {
-        msFrameIntervalRollingAverage.add(timer.milliseconds());
-        timer.reset();
-        double secondsPerFrame = msFrameIntervalRollingAverage.getMean() / 1000d;
-        avgFps = (float) (1d/secondsPerFrame);
-        Mat userProcessedFrame = null;
+        emulateEStop(new OpenCvCameraException("Pipeline input format " + format + " is not supported by this camera"));
+    }
 
+    protected synchronized void handleFrameUserCrashable(Mat frame)
+    {
         int rotateCode = mapRotationEnumToOpenCvRotateCode(rotation);
 
-        if(rotateCode != -1)
+        /*
+         * YUY2 frames are left unrotated, since rotating them
+         * would break up the pixel pairs that share chroma
+         */
+        boolean rotate = rotateCode != -1 && frame.channels() != 2;
+
+        if(processHandoff != null)
+        {
+            /*
+             * Staged: this is the capture stage. The camera's Mat is only
+             * valid until we return, so rotate (or copy) it into the handoff
+             * and let the process thread take it from there.
+             */
+            FrameHandoff.Slot slot = processHandoff.beginWrite();
+
+            if(rotate)
+            {
+                Core.rotate(frame, slot.mat, rotateCode);
+            }
+            else
+            {
+                frame.copyTo(slot.mat);
+            }
+
+            slot.sequence = currentFrameSequence;
+            slot.captureNanos = currentFrameCaptureNanos;
+            slot.startMillis = currentFrameStartTime;
+            slot.rotateCode = rotateCode;
+            processHandoff.publish();
+
+            latency(OpenCvLatencyStage.CONVERSION).record(System.nanoTime() - currentFrameStartNanos);
+            return;
+        }
+
+        if(rotate)
         {
             /*
              * Rotate onto another Mat rather than doing so in-place.
@@ -277,27 +506,131 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
             frame = rotatedMat;
         }
 
+        latency(OpenCvLatencyStage.CONVERSION).record(System.nanoTime() - currentFrameStartNanos);
+        processStage(frame, currentFrameSequence, currentFrameCaptureNanos, currentFrameStartTime, rotateCode);
+    }
+
+    /*
+     * Runs the user's pipeline on an upright frame and hands the result on
+     * to be displayed, on the camera thread or, when staged, the process thread
+     */
+    private void processStage(Mat frame, long sequence, long captureNanos, long startMillis, int rotateCode)
+    {
+        msFrameIntervalRollingAverage.add(timer.milliseconds());
+        timer.reset();
+        double secondsPerFrame = msFrameIntervalRollingAverage.getMean() / 1000d;
+        avgFps = (float) (1d/secondsPerFrame);
+        Mat userProcessedFrame = null;
+        OpenCvPipeline pipeline = this.pipeline;
+
+        /*
+         * Decide up front whether the viewport or the DS is showing
+         * this frame, so that other frames aren't prepared for display
+         */
+        boolean postToViewport = viewport != null && viewport.shouldPost();
+        boolean wantBitmap;
+        synchronized (bitmapFrameLock)
+        {
+            wantBitmap = bitmapContinuation != null;
+        }
+
         if(pipeline != null)
         {
+            Rect region = frame.channels() == 2 ? null : clampRegion(pipeline.getRegionOfInterest(), frame);
+            double scale = frame.channels() == 2 ? 1 : pipeline.getProcessingScale();
+            Mat pipelineInput = prepareRegion(frame, region, scale);
+
             long pipelineStart = System.currentTimeMillis();
-            userProcessedFrame = pipeline.processFrame(frame);
+            long pipelineStartNanos = System.nanoTime();
+            frameContext.set(sequence, captureNanos, pipelineStartNanos);
+
+            synchronized (pipelineLock)
+            {
+                userProcessedFrame = pipeline.processFrame(pipelineInput, frameContext);
+            }
+
             msUserPipelineRollingAverage.add(System.currentTimeMillis() - pipelineStart);
-        }
 
-        if(viewport != null)
-        {
-            if(pipeline == null)
+            long pipelineEndNanos = System.nanoTime();
+            latency(OpenCvLatencyStage.PIPELINE).record(pipelineEndNanos - pipelineStartNanos);
+            latency(OpenCvLatencyStage.CAPTURE_TO_RESULT).record(pipelineEndNanos - captureNanos);
+
+            /*
+             * The pipeline saw only part of the frame, or a scaled down copy
+             * of it. If anyone is looking, put its output back where it came
+             * from so the viewport still shows the whole frame.
+             */
+            if(pipelineInput != frame && userProcessedFrame != null
+                    && userProcessedFrame.cols() == pipelineInput.cols() && userProcessedFrame.rows() == pipelineInput.rows()
+                    && (postToViewport || wantBitmap))
             {
-                viewport.post(frame);
+                userProcessedFrame = compositeRegion(userProcessedFrame, frame, region);
             }
-            else if(userProcessedFrame == null)
+
+            if(userProcessedFrame == null && postToViewport)
             {
                 /*
                  * Silly user, they returned null from their pipeline....
                  */
                 throw new OpenCvCameraException("User pipeline returned null frame for viewport display");
             }
-            else if(userProcessedFrame.cols() != frame.cols() || userProcessedFrame.rows() != frame.rows())
+        }
+
+        if(postToViewport || wantBitmap)
+        {
+            Mat displayFrame = userProcessedFrame == null ? frame : userProcessedFrame;
+
+            if(publishHandoff != null)
+            {
+                /*
+                 * Staged: the pipeline may hand back the input, which the next
+                 * frame overwrites, so the publish thread gets its own copy
+                 */
+                FrameHandoff.Slot slot = publishHandoff.beginWrite();
+                displayFrame.copyTo(slot.mat);
+                slot.frameCols = frame.cols();
+                slot.frameRows = frame.rows();
+                slot.frameType = frame.type();
+                slot.rotateCode = rotateCode;
+                slot.postToViewport = postToViewport;
+                publishHandoff.publish();
+            }
+            else
+            {
+                publishStage(displayFrame, frame.cols(), frame.rows(), frame.type(), rotateCode, postToViewport);
+            }
+        }
+
+        avgPipelineTime = (int) Math.round(msUserPipelineRollingAverage.getMean());
+        avgTotalFrameTime = (int) Math.round(msTotalFrameProcessingTimeRollingAverage.getMean());
+        avgOverheadTime = avgTotalFrameTime - avgPipelineTime;
+
+        if(viewport != null)
+        {
+            viewport.notifyStatistics(avgFps);
+        }
+
+        frameCount++;
+
+        msTotalFrameProcessingTimeRollingAverage.add(System.currentTimeMillis() - startMillis);
+    }
+
+    /*
+     * Sends a processed frame to the viewport and the DS, on the camera
+     * thread or, when staged, the publish thread
+     *
+     * @param displayFrame the pipeline's output, or the frame itself if there is no pipeline
+     * @param frameCols width of the frame the pipeline was given
+     * @param frameRows height of the frame the pipeline was given
+     * @param frameType type of the frame the pipeline was given
+     */
+    private void publishStage(Mat displayFrame, int frameCols, int frameRows, int frameType, int rotateCode, boolean postToViewport)
+    {
+        if(postToViewport)
+        {
+            long viewportPostStartNanos = System.nanoTime();
+
+            if(displayFrame.cols() != frameCols || displayFrame.rows() != frameRows)
             {
                 /*
                  * The user didn't return the same size image from their pipeline as we gave them,
@@ -307,7 +640,7 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
                  * Mat to the viewport.
                  */
 
-                if(userProcessedFrame.cols() > frame.cols() || userProcessedFrame.rows() > frame.rows())
+                if(displayFrame.cols() > frameCols || displayFrame.rows() > frameRows)
                 {
                     /*
                      * What on earth was this user thinking?! They returned a Mat that's BIGGER in
@@ -317,16 +650,17 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
                     throw new OpenCvCameraException("User pipeline returned frame of unexpected size");
                 }
 
-                //We re-use this buffer, only create if needed
+                //We re-use this buffer, create() only allocates if needed
                 if(matToUseIfPipelineReturnedCropped == null)
                 {
-                    matToUseIfPipelineReturnedCropped = frame.clone();
+                    matToUseIfPipelineReturnedCropped = new Mat();
                 }
+                matToUseIfPipelineReturnedCropped.create(frameRows, frameCols, frameType);
 
                 //Set to brown to indicate to the user the areas which they cropped off
                 matToUseIfPipelineReturnedCropped.setTo(brown);
 
-                int usrFrmTyp = userProcessedFrame.type();
+                int usrFrmTyp = displayFrame.type();
 
                 if(usrFrmTyp == CvType.CV_8UC1)
                 {
@@ -336,8 +670,8 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
                      * We have to color convert onto a different mat (rather than
                      * doing so in place) to avoid breaking any of the user's submats
                      */
-                    Imgproc.cvtColor(userProcessedFrame, croppedColorCvtedMat, Imgproc.COLOR_GRAY2RGBA);
-                    userProcessedFrame = croppedColorCvtedMat; //Doesn't affect user's handle, only ours
+                    Imgproc.cvtColor(displayFrame, croppedColorCvtedMat, Imgproc.COLOR_GRAY2RGBA);
+                    displayFrame = croppedColorCvtedMat; //Doesn't affect user's handle, only ours
                 }
                 else if(usrFrmTyp != CvType.CV_8UC4 && usrFrmTyp != CvType.CV_8UC3)
                 {
@@ -348,11 +682,13 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
                 }
 
                 //Copy the user's frame onto a Mat of the correct size
-                userProcessedFrame.copyTo(matToUseIfPipelineReturnedCropped.submat(
-                        new Rect(0,0,userProcessedFrame.cols(), userProcessedFrame.rows())));
+                Mat croppedTarget = matToUseIfPipelineReturnedCropped.submat(
+                        new Rect(0,0,displayFrame.cols(), displayFrame.rows()));
+                displayFrame.copyTo(croppedTarget);
+                croppedTarget.release();
 
                 //Send that correct size Mat to the viewport
-                viewport.post(matToUseIfPipelineReturnedCropped);
+                viewport.post(makeDisplayable(matToUseIfPipelineReturnedCropped, rotateCode));
             }
             else
             {
@@ -360,23 +696,12 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
                  * Yay, smart user! They gave us the frame size we were expecting!
                  * Go ahead and send it right on over to the viewport.
                  */
-                viewport.post(userProcessedFrame);
+                viewport.post(makeDisplayable(displayFrame, rotateCode));
             }
-        }
-
-        avgPipelineTime = (int) Math.round(msUserPipelineRollingAverage.getMean());
-        avgTotalFrameTime = (int) Math.round(msTotalFrameProcessingTimeRollingAverage.getMean());
-        avgOverheadTime = avgTotalFrameTime - avgPipelineTime;
 
-        if(viewport != null)
-        {
-            viewport.notifyStatistics(avgFps);
+            latency(OpenCvLatencyStage.VIEWPORT_POST).record(System.nanoTime() - viewportPostStartNanos);
         }
 
-        frameCount++;
-
-        msTotalFrameProcessingTimeRollingAverage.add(System.currentTimeMillis() - currentFrameStartTime);
-
         /*
          * For stream preview on DS
          */
@@ -384,30 +709,25 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         {
             if (bitmapContinuation != null)
             {
-                Mat matToCvt = null;
+                Mat matToCvt = makeDisplayable(displayFrame, rotateCode);
 
-                if(userProcessedFrame == null)
-                {
-                    matToCvt = frame;
-                }
-                else
-                {
-                    matToCvt = userProcessedFrame;
-                }
-
-                final Bitmap bitmapFromMat = Bitmap.createBitmap(matToCvt.cols(), matToCvt.rows(), Bitmap.Config.RGB_565);
-
-                Utils.matToBitmap(matToCvt, bitmapFromMat);
+                /*
+                 * If every pooled bitmap is still with the consumer, leave the
+                 * request pending and answer it with a later frame
+                 */
+                final Bitmap bitmapFromMat = takeSnapshotBitmap(matToCvt.cols(), matToCvt.rows());
 
                 if (bitmapFromMat != null)
                 {
+                    Utils.matToBitmap(matToCvt, bitmapFromMat);
+
                     bitmapContinuation.dispatch(new ContinuationResult<Consumer<Bitmap>>()
                     {
                         @Override
                         public void handle(Consumer<Bitmap> bitmapConsumer)
                         {
                             bitmapConsumer.accept(bitmapFromMat);
-                            bitmapFromMat.recycle();
+                            snapshotBitmapPool.offer(bitmapFromMat);
                         }
                     });
                     bitmapContinuation = null;
@@ -416,6 +736,203 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         }
     }
 
+    /*
+     * Gets a bitmap for a DS snapshot from the pool, creating one if the pool
+     * isn't full yet. Bitmaps of a stale size are dropped. Called with
+     * bitmapFrameLock held; bitmaps come back to the pool from the consumer.
+     */
+    private Bitmap takeSnapshotBitmap(int width, int height)
+    {
+        Bitmap bitmap;
+
+        while((bitmap = snapshotBitmapPool.poll()) != null)
+        {
+            if(bitmap.getWidth() == width && bitmap.getHeight() == height)
+            {
+                return bitmap;
+            }
+
+            bitmap.recycle();
+            snapshotBitmapsCreated--;
+        }
+
+        if(snapshotBitmapsCreated < SNAPSHOT_BITMAP_POOL_SIZE)
+        {
+            snapshotBitmapsCreated++;
+            return Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        }
+
+        return null;
+    }
+
+    /*
+     * Intersects the pipeline's region of interest with the frame, without
+     * allocating. Returns null for the whole frame.
+     */
+    private Rect clampRegion(Rect region, Mat frame)
+    {
+        if(region == null)
+        {
+            return null;
+        }
+
+        int x = Math.max(region.x, 0);
+        int y = Math.max(region.y, 0);
+        int right = Math.min(region.x + region.width, frame.cols());
+        int bottom = Math.min(region.y + region.height, frame.rows());
+
+        if(right <= x || bottom <= y || (x == 0 && y == 0 && right == frame.cols() && bottom == frame.rows()))
+        {
+            return null;
+        }
+
+        clampedRegion.x = x;
+        clampedRegion.y = y;
+        clampedRegion.width = right - x;
+        clampedRegion.height = bottom - y;
+        return clampedRegion;
+    }
+
+    /*
+     * Cuts the region out of the frame (a submat, so no copy) and scales it
+     * down, then tells the frame context how to map back. The submat is kept
+     * between frames as long as the region and the frame's buffer don't change.
+     */
+    private Mat prepareRegion(Mat frame, Rect region, double scale)
+    {
+        Mat view = frame;
+        int regionX = 0;
+        int regionY = 0;
+
+        if(region != null)
+        {
+            if(regionSubmat == null || !region.equals(regionSubmatRect) || frame.dataAddr() != regionSubmatDataAddr)
+            {
+                if(regionSubmat != null)
+                {
+                    regionSubmat.release();
+                }
+
+                regionSubmat = frame.submat(region);
+                regionSubmatRect.x = region.x;
+                regionSubmatRect.y = region.y;
+                regionSubmatRect.width = region.width;
+                regionSubmatRect.height = region.height;
+                regionSubmatDataAddr = frame.dataAddr();
+            }
+
+            view = regionSubmat;
+            regionX = region.x;
+            regionY = region.y;
+        }
+
+        int regionWidth = view.cols();
+        int regionHeight = view.rows();
+
+        if(scale < 1)
+        {
+            int levels = (int) Math.round(-Math.log(scale) / Math.log(2));
+
+            if(levels >= 1 && levels <= pyramidMats.length && Math.abs(scale - 1d / (1 << levels)) < 1e-9)
+            {
+                for(int i = 0; i < levels; i++)
+                {
+                    Imgproc.pyrDown(view, pyramidMats[i]);
+                    view = pyramidMats[i];
+                }
+            }
+            else
+            {
+                regionScaledSize.width = Math.max(1, Math.round(regionWidth * scale));
+                regionScaledSize.height = Math.max(1, Math.round(regionHeight * scale));
+                Imgproc.resize(view, regionScaledMat, regionScaledSize, 0, 0, Imgproc.INTER_AREA);
+                view = regionScaledMat;
+            }
+        }
+
+        frameContext.setRegion(regionX, regionY, (double) view.cols() / regionWidth, (double) view.rows() / regionHeight);
+        return view;
+    }
+
+    /*
+     * Draws the pipeline's output for a region back into a copy of the
+     * full frame. Only done when the result is going to be displayed.
+     */
+    private Mat compositeRegion(Mat output, Mat frame, Rect region)
+    {
+        frame.copyTo(compositeMat);
+
+        if(output.channels() != frame.channels())
+        {
+            int code = mapChannelConversionCode(output.channels(), frame.channels());
+
+            if(code == -1)
+            {
+                throw new OpenCvCameraException("User pipeline returned a frame with an unexpected number of channels");
+            }
+
+            Imgproc.cvtColor(output, compositeConvertedMat, code);
+            output = compositeConvertedMat;
+        }
+
+        Mat target = region == null ? compositeMat : compositeMat.submat(region);
+
+        if(output.cols() != target.cols() || output.rows() != target.rows())
+        {
+            Imgproc.resize(output, compositeScaledMat, target.size(), 0, 0, Imgproc.INTER_NEAREST);
+            output = compositeScaledMat;
+        }
+
+        output.copyTo(target);
+
+        if(target != compositeMat)
+        {
+            target.release();
+        }
+
+        return compositeMat;
+    }
+
+    private static int mapChannelConversionCode(int from, int to)
+    {
+        if(from == 1 && to == 3) return Imgproc.COLOR_GRAY2RGB;
+        if(from == 1 && to == 4) return Imgproc.COLOR_GRAY2RGBA;
+        if(from == 3 && to == 1) return Imgproc.COLOR_RGB2GRAY;
+        if(from == 3 && to == 4) return Imgproc.COLOR_RGB2RGBA;
+        if(from == 4 && to == 1) return Imgproc.COLOR_RGBA2GRAY;
+        if(from == 4 && to == 3) return Imgproc.COLOR_RGBA2RGB;
+        return -1;
+    }
+
+    /*
+     * Frames in formats other than RGBA may not be something the viewport
+     * can render (YUY2), or may be smaller than the viewport (RGB_HALF).
+     * Convert those to the stream size here, which costs nothing for RGBA
+     * pipelines and is only done when the frame is actually displayed.
+     */
+    private Mat makeDisplayable(Mat mat, int rotateCode)
+    {
+        if(mat.channels() == 2)
+        {
+            Imgproc.cvtColor(mat, displayConvertedMat, Imgproc.COLOR_YUV2RGBA_YUY2, 4);
+            mat = displayConvertedMat;
+
+            if(rotateCode != -1)
+            {
+                Core.rotate(mat, displayRotatedMat, rotateCode);
+                mat = displayRotatedMat;
+            }
+        }
+
+        if(mat.cols() != displaySize.width || mat.rows() != displaySize.height)
+        {
+            Imgproc.resize(mat, displayScaledMat, displaySize, 0, 0, Imgproc.INTER_NEAREST);
+            mat = displayScaledMat;
+        }
+
+        return mat;
+    }
+
     /*
      * For stream preview on DS
      */
@@ -499,6 +1016,44 @@ public abstract class OpenCvCameraBase implements OpenCvCamera, CameraStreamSour
         }
     }
 
+    @Override
+    public LatencyHistogram getLatencyHistogram(OpenCvLatencyStage stage)
+    {
+        return latency(stage);
+    }
+
+    @Override
+    public void addLatencyTelemetry(TelemetryPacket packet)
+    {
+        for(OpenCvLatencyStage stage : OpenCvLatencyStage.values())
+        {
+            LatencyHistogram histogram = latency(stage);
+            String name = "vision " + stage.name().toLowerCase();
+            packet.put(name + " p50 ms", histogram.getPercentileMs(50));
+            packet.put(name + " p90 ms", histogram.getPercentileMs(90));
+            packet.put(name + " max ms", histogram.getMaxMs());
+        }
+
+        if(viewport != null)
+        {
+            packet.put("vision viewport dropped frames", viewport.getDroppedFrameCount());
+        }
+
+        FrameHandoff processHandoff = this.processHandoff;
+        FrameHandoff publishHandoff = this.publishHandoff;
+
+        if(processHandoff != null && publishHandoff != null)
+        {
+            packet.put("vision frames skipped by pipeline", processHandoff.getDroppedCount());
+            packet.put("vision frames skipped by display", publishHandoff.getDroppedCount());
+        }
+    }
+
+    private LatencyHistogram latency(OpenCvLatencyStage stage)
+    {
+        return latencyHistograms[stage.ordinal()];
+    }
+
     private class OpModeNotifications implements LIFO_OpModeCallbackDelegate.OnOpModeStoppedListener
     {
         @Override
@@ -0,0 +1,30 @@
+package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
+
+/*
+ * Format of the frames handed to a pipeline. Pipelines which only need
+ * part of the image can ask for less, so that the camera skips the
+ * conversions the pipeline doesn't need.
+ */
+public enum OpenCvInputFormat
+{
+    /*
+     * Full resolution, CV_8UC4 RGBA (the default)
+     */
+    RGBA,
+
+    /*
+     * Full resolution, CV_8UC1 luma
+     */
+    GRAY,
+
+    /*
+     * Half width and half height, CV_8UC3 RGB
+     */
+    RGB_HALF,
+
+    /*
+     * Full resolution, CV_8UC2 YUY2 exactly as the sensor delivered it, without
+     * rotation. Webcams only.
+     */
+    YUY2
+}
@@ -19,6 +19,10 @@ class OpenCvInternalCameraImpl extends OpenCvCameraBase implements Camera.Previe
     private OpenCvInternalCamera.CameraDirection direction;
     private Mat rawSensorMat;
     private Mat rgbMat;
+    private Mat lumaMat;
+    private Mat fullRgbMat;
+    private Mat halfRgbMat;
+    private org.opencv.core.Size halfSize;
     private SurfaceTexture bogusSurfaceTexture;
     private int maxZoom = -1;
     private volatile boolean isOpen = false;
@@ -161,6 +165,10 @@ class OpenCvInternalCameraImpl extends OpenCvCameraBase implements Camera.Previe
 
         rawSensorMat = new Mat(height + (height/2), width, CvType.CV_8UC1);
         rgbMat = new Mat(height + (height/2), width, CvType.CV_8UC1);
+        lumaMat = rawSensorMat.submat(0, height, 0, width); //NV21 starts with the full Y plane
+        fullRgbMat = new Mat();
+        halfRgbMat = new Mat();
+        halfSize = new org.opencv.core.Size(width/2, height/2);
 
         if(camera != null)
         {
@@ -281,6 +289,16 @@ class OpenCvInternalCameraImpl extends OpenCvCameraBase implements Camera.Previe
             rgbMat = null;
         }
 
+        if(lumaMat != null)
+        {
+            lumaMat.release();
+            fullRgbMat.release();
+            halfRgbMat.release();
+            lumaMat = null;
+            fullRgbMat = null;
+            halfRgbMat = null;
+        }
+
         isStreaming = false;
     }
 
@@ -306,8 +324,27 @@ class OpenCvInternalCameraImpl extends OpenCvCameraBase implements Camera.Previe
         {
             rawSensorMat.put(0,0,data);
 
-            Imgproc.cvtColor(rawSensorMat, rgbMat, Imgproc.COLOR_YUV2RGBA_NV21, 4);
-            handleFrame(rgbMat);
+            switch (getPipelineInputFormat())
+            {
+                case GRAY:
+                    handleFrame(lumaMat);
+                    break;
+
+                case RGB_HALF:
+                    Imgproc.cvtColor(rawSensorMat, fullRgbMat, Imgproc.COLOR_YUV2RGB_NV21, 3);
+                    Imgproc.resize(fullRgbMat, halfRgbMat, halfSize, 0, 0, Imgproc.INTER_NEAREST);
+                    handleFrame(halfRgbMat);
+                    break;
+
+                case YUY2:
+                    handleUnsupportedInputFormat(OpenCvInputFormat.YUY2);
+                    break;
+
+                default:
+                    Imgproc.cvtColor(rawSensorMat, rgbMat, Imgproc.COLOR_YUV2RGBA_NV21, 4);
+                    handleFrame(rgbMat);
+                    break;
+            }
 
             if(camera != null)
             {
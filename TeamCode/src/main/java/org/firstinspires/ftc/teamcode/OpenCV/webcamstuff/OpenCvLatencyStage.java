@@ -0,0 +1,28 @@
+package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
+
+/*
+ * Stages of frame handling that OpenCvCameraBase keeps a LatencyHistogram for
+ */
+public enum OpenCvLatencyStage
+{
+    /*
+     * From the moment the sensor captured the frame until the user pipeline returned
+     */
+    CAPTURE_TO_RESULT,
+
+    /*
+     * From receipt of the frame until it was handed to the user pipeline
+     * (copying, color conversion and rotation)
+     */
+    CONVERSION,
+
+    /*
+     * Execution of the user pipeline
+     */
+    PIPELINE,
+
+    /*
+     * Handing the result to the viewport, including any copy for cropped frames
+     */
+    VIEWPORT_POST
+}
@@ -1,9 +1,82 @@
 package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
 
 import org.opencv.core.Mat;
+import org.opencv.core.Rect;
 
 public abstract class OpenCvPipeline
 {
+    private volatile Rect regionOfInterest = null;
+    private volatile double processingScale = 1;
+
     public abstract Mat processFrame(Mat input);
+
+    /*
+     * Called by the camera for each frame. Override this instead of
+     * processFrame(Mat) to get the capture time and sequence number
+     * of the frame, e.g. to latency-compensate results against odometry.
+     */
+    public Mat processFrame(Mat input, FrameContext context)
+    {
+        return processFrame(input);
+    }
+
+    /*
+     * Format of the frames this pipeline wants. Asking for less than full
+     * RGBA saves the camera the color conversion.
+     */
+    public OpenCvInputFormat getInputFormat()
+    {
+        return OpenCvInputFormat.RGBA;
+    }
+
+    /*
+     * Restricts the frames handed to this pipeline to a region of the full
+     * frame (in full frame pixel coordinates, after rotation), or null for
+     * the whole frame. Can be changed between frames, e.g. from inside
+     * processFrame() to follow the last detection; the region is clamped to
+     * the frame, and FrameContext maps results back to full frame coordinates.
+     * Ignored for YUY2 input.
+     */
+    public void setRegionOfInterest(Rect regionOfInterest)
+    {
+        this.regionOfInterest = regionOfInterest == null ? null : regionOfInterest.clone();
+    }
+
+    public Rect getRegionOfInterest()
+    {
+        return regionOfInterest;
+    }
+
+    /*
+     * Downscales the frames (or region) handed to this pipeline. Scales of
+     * 1/2, 1/4, 1/8 and 1/16 are done with an image pyramid, anything else
+     * with an area resize. Ignored for YUY2 input.
+     *
+     * @param processingScale scale between 0 (exclusive) and 1
+     */
+    public void setProcessingScale(double processingScale)
+    {
+        if(processingScale <= 0 || processingScale > 1)
+        {
+            throw new IllegalArgumentException("Processing scale must be in (0, 1]");
+        }
+
+        this.processingScale = processingScale;
+    }
+
+    public double getProcessingScale()
+    {
+        return processingScale;
+    }
+
+    /*
+     * Time spent in each stage of this pipeline on the last frame, or
+     * null if the pipeline doesn't break its time down.
+     */
+    public StageTimer getStageTimer()
+    {
+        return null;
+    }
+
     public void onViewportTapped() {}
-}
\ No newline at end of file
+}
@@ -5,6 +5,45 @@ import org.opencv.core.Mat;
 public abstract class OpenCvTracker
 {
     private Mat mat = new Mat();
+    private Mat output;
+    private RuntimeException error;
+    private volatile long timeBudgetMs = 0;
+    private volatile int skippedFrames = 0;
+    private volatile double lastRunTimeMs = 0;
+    private boolean running = false;
+    boolean startedThisFrame = false;
+
+    final Runnable task = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            Mat result = null;
+            RuntimeException exception = null;
+
+            try
+            {
+                result = processFrame(mat);
+            }
+            catch (RuntimeException e)
+            {
+                exception = e;
+            }
+            finally
+            {
+                lastRunTimeMs = (System.nanoTime() - start) / 1e6;
+
+                synchronized (OpenCvTracker.this)
+                {
+                    output = result;
+                    error = exception;
+                    running = false;
+                    OpenCvTracker.this.notifyAll();
+                }
+            }
+        }
+    };
 
     public abstract Mat processFrame(Mat input);
 
@@ -13,4 +52,94 @@ public abstract class OpenCvTracker
         input.copyTo(mat);
         return processFrame(mat);
     }
-}
\ No newline at end of file
+
+    /*
+     * Longest time (in milliseconds) that OpenCvTrackerApiPipeline will
+     * wait for this tracker on each frame, 0 to always wait for it. A
+     * tracker that runs over keeps running in the background, and misses
+     * the frames that arrive before it finishes.
+     */
+    public void setTimeBudgetMs(long timeBudgetMs)
+    {
+        this.timeBudgetMs = timeBudgetMs;
+    }
+
+    public long getTimeBudgetMs()
+    {
+        return timeBudgetMs;
+    }
+
+    /*
+     * Number of frames this tracker missed because it was still
+     * working on an earlier one
+     */
+    public int getSkippedFrameCount()
+    {
+        return skippedFrames;
+    }
+
+    public double getLastRunTimeMs()
+    {
+        return lastRunTimeMs;
+    }
+
+    /*
+     * Copies the input into this tracker's own Mat and marks it running,
+     * or counts a skipped frame if it hasn't finished the last one. Called
+     * on the camera thread before the task is handed to a worker.
+     */
+    final synchronized boolean prepare(Mat input)
+    {
+        if(running)
+        {
+            skippedFrames++;
+            startedThisFrame = false;
+            return false;
+        }
+
+        input.copyTo(mat);
+        output = null;
+        running = true;
+        startedThisFrame = true;
+        return true;
+    }
+
+    /*
+     * Waits until the task finishes or the time budget, counted from the
+     * start of the frame (System.nanoTime() clock), runs out. Exceptions
+     * thrown by processFrame() are rethrown here, on the camera thread.
+     *
+     * @return the tracker's output, or null if it ran past its budget
+     */
+    final synchronized Mat awaitOutput(long frameStartNanos) throws InterruptedException
+    {
+        long budgetNanos = timeBudgetMs * 1000000L;
+
+        while (running)
+        {
+            if(budgetNanos <= 0)
+            {
+                wait();
+                continue;
+            }
+
+            long remaining = frameStartNanos + budgetNanos - System.nanoTime();
+
+            if(remaining <= 0)
+            {
+                return null;
+            }
+
+            wait(remaining / 1000000L, (int) (remaining % 1000000L));
+        }
+
+        if(error != null)
+        {
+            RuntimeException e = error;
+            error = null;
+            throw e;
+        }
+
+        return output;
+    }
+}
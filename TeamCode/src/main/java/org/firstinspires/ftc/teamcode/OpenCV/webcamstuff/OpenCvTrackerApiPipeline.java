@@ -2,23 +2,84 @@ package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
 
 import org.opencv.core.Mat;
 
-import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/*
+ * Runs every tracker on each frame, in parallel on a small fixed pool of
+ * threads. Each tracker works on its own copy of the frame, so trackers
+ * can draw on their input without stepping on each other. Trackers which
+ * have a time budget are only waited on for that long; only the output
+ * of the tracker being displayed is returned to the viewport. The worker
+ * threads exit once frames stop coming, so a pipeline left behind by an
+ * OpMode doesn't keep threads alive in the RC app.
+ */
 public class OpenCvTrackerApiPipeline extends OpenCvPipeline
 {
-    private ArrayList<OpenCvTracker> trackers = new ArrayList<>();
-    private int trackerDisplayIdx = 0;
+    private static final int DEFAULT_THREADS = 2;
+    private static final long THREAD_KEEP_ALIVE_MS = 1000;
+
+    private volatile OpenCvTracker[] trackers = new OpenCvTracker[0];
+    private volatile int trackerDisplayIdx = 0;
+    private final ThreadPoolExecutor executor;
+
+    public OpenCvTrackerApiPipeline()
+    {
+        this(DEFAULT_THREADS);
+    }
+
+    public OpenCvTrackerApiPipeline(int threads)
+    {
+        executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            private int count = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "OpenCvTracker-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
 
     public synchronized void addTracker(OpenCvTracker tracker)
     {
-        trackers.add(tracker);
+        OpenCvTracker[] newTrackers = new OpenCvTracker[trackers.length + 1];
+        System.arraycopy(trackers, 0, newTrackers, 0, trackers.length);
+        newTrackers[trackers.length] = tracker;
+        trackers = newTrackers;
     }
 
     public synchronized void removeTracker(OpenCvTracker tracker)
     {
-        trackers.remove(tracker);
+        int index = -1;
 
-        if(trackerDisplayIdx >= trackers.size())
+        for(int i = 0; i < trackers.length; i++)
+        {
+            if(trackers[i] == tracker)
+            {
+                index = i;
+                break;
+            }
+        }
+
+        if(index == -1)
+        {
+            return;
+        }
+
+        OpenCvTracker[] newTrackers = new OpenCvTracker[trackers.length - 1];
+        System.arraycopy(trackers, 0, newTrackers, 0, index);
+        System.arraycopy(trackers, index + 1, newTrackers, index, trackers.length - index - 1);
+        trackers = newTrackers;
+
+        if(trackerDisplayIdx >= trackers.length)
         {
             trackerDisplayIdx--;
 
@@ -30,21 +91,56 @@ public class OpenCvTrackerApiPipeline extends OpenCvPipeline
     }
 
     @Override
-    public synchronized Mat processFrame(Mat input)
+    public Mat processFrame(Mat input)
     {
-        if(trackers.size() == 0)
+        OpenCvTracker[] trackers = this.trackers;
+
+        if(trackers.length == 0)
         {
             return input;
         }
 
-        ArrayList<Mat> returnMats = new ArrayList<>(trackers.size());
+        long frameStart = System.nanoTime();
 
+        /*
+         * Trackers still busy with an earlier frame skip this one
+         */
         for(OpenCvTracker tracker : trackers)
         {
-            returnMats.add(tracker.processFrameInternal(input));
+            if(tracker.prepare(input))
+            {
+                executor.execute(tracker.task);
+            }
+        }
+
+        Mat displayMat = input;
+        int displayIdx = Math.min(trackerDisplayIdx, trackers.length - 1);
+
+        try
+        {
+            for(int i = 0; i < trackers.length; i++)
+            {
+                OpenCvTracker tracker = trackers[i];
+
+                if(!tracker.startedThisFrame)
+                {
+                    continue;
+                }
+
+                Mat output = tracker.awaitOutput(frameStart);
+
+                if(i == displayIdx && output != null)
+                {
+                    displayMat = output;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
         }
 
-        return returnMats.get(trackerDisplayIdx);
+        return displayMat;
     }
 
     @Override
@@ -52,9 +148,18 @@ public class OpenCvTrackerApiPipeline extends OpenCvPipeline
     {
         trackerDisplayIdx++;
 
-        if(trackerDisplayIdx >= trackers.size())
+        if(trackerDisplayIdx >= trackers.length)
         {
             trackerDisplayIdx = 0;
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * Stops the worker threads now rather than after they idle out,
+     * trackers can't be run after this
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+}
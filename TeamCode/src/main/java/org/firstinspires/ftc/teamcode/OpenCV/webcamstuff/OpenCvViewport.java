@@ -7,6 +7,7 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.os.Process;
 import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
@@ -17,6 +18,7 @@ import org.firstinspires.ftc.robotcore.internal.collections.EvictingBlockingQueu
 import org.opencv.BuildConfig;
 import org.opencv.android.Utils;
 import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
 
 import java.util.concurrent.ArrayBlockingQueue;
 
@@ -38,6 +40,10 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
     private boolean needToDeactivateRegardlessOfUser = false;
     private boolean surfaceExistsAndIsReady = false;
     private float fps = 0;
+    private int renderEveryNthFrame = 1;
+    private int framesSincePost = 0;
+    private double renderScale = 1;
+    private org.opencv.core.Size renderSize = new org.opencv.core.Size();
     private String TAG = "OpenCvViewport";
 
     public OpenCvViewport(Context context, OnClickListener onClickListener)
@@ -87,11 +93,71 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
 
             this.size = size;
             this.aspectRatio = (double)size.getWidth() / (double)size.getHeight();
+            updateRenderSize();
 
             framebufferRecycler = new MatRecycler(FRAMEBUFFER_RECYCLER_CAPACITY);
         }
     }
 
+    /*
+     * Renders only every Nth frame, and at a fraction of the frame's
+     * resolution. The bitmap is stretched back up to fill the viewport.
+     */
+    public void setDecimation(int renderEveryNthFrame, double scale)
+    {
+        synchronized (syncObj)
+        {
+            if(renderEveryNthFrame < 1)
+            {
+                throw new IllegalArgumentException("renderEveryNthFrame must be at least 1");
+            }
+            if(!(scale > 0 && scale <= 1))
+            {
+                throw new IllegalArgumentException("scale must be in (0, 1]");
+            }
+
+            this.renderEveryNthFrame = renderEveryNthFrame;
+            this.renderScale = scale;
+            framesSincePost = 0;
+            updateRenderSize();
+        }
+    }
+
+    /*
+     * Called with syncObj held
+     */
+    private void updateRenderSize()
+    {
+        if(size != null)
+        {
+            renderSize.width = Math.max(1, (int) Math.round(size.getWidth() * renderScale));
+            renderSize.height = Math.max(1, (int) Math.round(size.getHeight() * renderScale));
+        }
+    }
+
+    /*
+     * Counts a frame towards the decimation, and says whether it should be
+     * posted. Callers skip preparing frames for display when it says no.
+     */
+    public boolean shouldPost()
+    {
+        synchronized (syncObj)
+        {
+            if(internalRenderingState != RenderingState.ACTIVE)
+            {
+                return false;
+            }
+
+            if(++framesSincePost < renderEveryNthFrame)
+            {
+                return false;
+            }
+
+            framesSincePost = 0;
+            return true;
+        }
+    }
+
     public void post(Mat mat)
     {
         synchronized (syncObj)
@@ -119,8 +185,24 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
                      * instead of doing a new alloc and then having
                      * to free it after rendering/eviction from queue
                      */
-                    MatRecycler.RecyclableMat matToCopyTo = framebufferRecycler.takeMat();
-                    mat.copyTo(matToCopyTo);
+                    MatRecycler.RecyclableMat matToCopyTo = framebufferRecycler.takeMat((int) renderSize.height, (int) renderSize.width, mat.type());
+
+                    if(matToCopyTo == null)
+                    {
+                        //Every framebuffer is in use, drop this frame (the recycler counts it)
+                        return;
+                    }
+
+                    if(renderScale < 1)
+                    {
+                        //Nearest neighbour, it's only a preview and this runs on the vision thread
+                        Imgproc.resize(mat, matToCopyTo, renderSize, 0, 0, Imgproc.INTER_NEAREST);
+                    }
+                    else
+                    {
+                        mat.copyTo(matToCopyTo);
+                    }
+
                     visionPreviewFrameQueue.offer(matToCopyTo);
                 }
                 catch (InterruptedException e)
@@ -321,6 +403,17 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
 
     }
 
+    /*
+     * Number of frames dropped because every framebuffer was in use
+     */
+    public long getDroppedFrameCount()
+    {
+        synchronized (syncObj)
+        {
+            return framebufferRecycler == null ? 0 : framebufferRecycler.getExhaustedCount();
+        }
+    }
+
     public void notifyStatistics(float fps)
     {
         this.fps = fps;
@@ -332,6 +425,15 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
         volatile boolean exitRequested = false;
         private String TAG = "OpenCvViewportRenderThread";
 
+        /*
+         * Where the bitmap is drawn, only recomputed when the
+         * surface or the bitmap changes size
+         */
+        private final Rect srcRect = new Rect();
+        private final Rect dstRect = new Rect();
+        private int layoutCanvasWidth = -1;
+        private int layoutCanvasHeight = -1;
+
         public void notifyExitRequested()
         {
             exitRequested = true;
@@ -342,7 +444,8 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
         {
             Log.d(TAG, "I am alive!");
 
-            bitmapFromMat = Bitmap.createBitmap(size.getWidth(), size.getHeight(), Bitmap.Config.RGB_565);
+            //The preview is a nicety, don't let it take CPU from the vision pipeline
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
 
             canvas = getHolder().lockCanvas();
             canvas.drawColor(Color.BLUE);
@@ -389,32 +492,42 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
                          */
                         if(canvas != null)
                         {
+                            //The bitmap only needs replacing if the render scale changed
+                            if(bitmapFromMat == null || bitmapFromMat.getWidth() != mat.cols() || bitmapFromMat.getHeight() != mat.rows())
+                            {
+                                if(bitmapFromMat != null)
+                                {
+                                    bitmapFromMat.recycle();
+                                }
+                                bitmapFromMat = Bitmap.createBitmap(mat.cols(), mat.rows(), Bitmap.Config.RGB_565);
+                                srcRect.set(0, 0, mat.cols(), mat.rows());
+                            }
+
+                            if(canvas.getWidth() != layoutCanvasWidth || canvas.getHeight() != layoutCanvasHeight)
+                            {
+                                layoutCanvasWidth = canvas.getWidth();
+                                layoutCanvasHeight = canvas.getHeight();
+
+                                //Scale to the maximum size that will fit in the viewport
+                                if((layoutCanvasHeight * aspectRatio) < layoutCanvasWidth)
+                                {
+                                    //Landscape
+                                    dstRect.set(0, 0, (int) Math.round(layoutCanvasHeight * aspectRatio), layoutCanvasHeight);
+                                }
+                                else
+                                {
+                                    //Portrait
+                                    dstRect.set(0, 0, layoutCanvasWidth, (int) Math.round(layoutCanvasWidth / aspectRatio));
+                                }
+                            }
+
                             //Convert that Mat to a bitmap we can render
                             Utils.matToBitmap(mat, bitmapFromMat);
 
                             //Draw the background black each time to prevent double buffering problems
                             canvas.drawColor(Color.BLACK);
 
-                            //Landscape
-                            if((canvas.getHeight() * aspectRatio) < canvas.getWidth())
-                            {
-                                //Draw the bitmap, scaling it to the maximum size that will fit in the viewport
-                                canvas.drawBitmap(
-                                        bitmapFromMat,
-                                        new Rect(0,0,bitmapFromMat.getWidth(), bitmapFromMat.getHeight()),
-                                        new Rect(0,0,(int) Math.round(canvas.getHeight() * aspectRatio), canvas.getHeight()),
-                                        null);
-                            }
-                            //Portrait
-                            else
-                            {
-                                //Draw the bitmap, scaling it to the maximum size that will fit in the viewport
-                                canvas.drawBitmap(
-                                        bitmapFromMat,
-                                        new Rect(0,0,bitmapFromMat.getWidth(), bitmapFromMat.getHeight()),
-                                        new Rect(0,0,canvas.getWidth(), (int) Math.round(canvas.getWidth() / aspectRatio)),
-                                        null);
-                            }
+                            canvas.drawBitmap(bitmapFromMat, srcRect, dstRect, null);
 
                             getHolder().unlockCanvasAndPost(canvas);
                         }
@@ -465,7 +578,12 @@ public class OpenCvViewport extends SurfaceView implements SurfaceHolder.Callbac
             }
 
             Log.d(TAG, "About to exit");
-            bitmapFromMat.recycle(); //Help the garbage collector :)
+
+            if(bitmapFromMat != null)
+            {
+                bitmapFromMat.recycle(); //Help the garbage collector :)
+                bitmapFromMat = null;
+            }
         }
     }
 
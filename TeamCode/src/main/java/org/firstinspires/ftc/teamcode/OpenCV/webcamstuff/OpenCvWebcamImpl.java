@@ -33,6 +33,7 @@ import org.opencv.core.Mat;
 import org.opencv.imgproc.Imgproc;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -49,7 +50,13 @@ class OpenCvWebcamImpl extends OpenCvCameraBase implements CameraCaptureSession.
     private CameraCaptureSession cameraCaptureSession = null;
     private Mat rawSensorMat;
     private Mat rgbMat;
-    private byte[] imgDat;
+    private Mat grayMat;
+    private Mat halfRowsMat;
+    private Mat halfRowsRgbMat;
+    private Mat halfRgbMat;
+    private org.opencv.core.Size halfSize;
+    private static Field innerFrameField;
+    private static Field uvcFrameField;
     private volatile boolean isOpen = false;
     private volatile boolean isStreaming = false;
 
@@ -329,9 +336,7 @@ class OpenCvWebcamImpl extends OpenCvCameraBase implements CameraCaptureSession.
 
         cleanupForEndStreaming();
 
-        imgDat = null;
-        rgbMat = null;
-        rawSensorMat = null;
+        releaseFrameMats();
 
         if (cameraCaptureSession != null)
         {
@@ -350,21 +355,25 @@ class OpenCvWebcamImpl extends OpenCvCameraBase implements CameraCaptureSession.
     @Override
     public synchronized void onNewFrame(@NonNull CameraCaptureSession session, @NonNull CameraCaptureRequest request, @NonNull CameraFrame cameraFrame)
     {
-        notifyStartOfFrameProcessing();
+        notifyStartOfFrameProcessing(cameraFrame.getCaptureTime(), cameraFrame.getFrameNumber());
+
+        int width = cameraFrame.getSize().getWidth();
+        int height = cameraFrame.getSize().getHeight();
 
-        if(imgDat == null)
-        {
-            imgDat = new byte[cameraFrame.getImageSize()];
-        }
         if(rgbMat == null)
         {
-            rgbMat = new Mat(cameraFrame.getSize().getHeight(), cameraFrame.getSize().getWidth(), CvType.CV_8UC1);
-        }
-        if(rawSensorMat == null)
-        {
-            rawSensorMat = new Mat(cameraFrame.getSize().getHeight(), cameraFrame.getSize().getWidth(), CvType.CV_8UC2);
+            rawSensorMat = new Mat(height, width, CvType.CV_8UC2);
+            rgbMat = new Mat(height, width, CvType.CV_8UC4);
+            grayMat = new Mat(height, width, CvType.CV_8UC1);
+            halfRowsMat = new Mat();
+            halfRowsRgbMat = new Mat();
+            halfRgbMat = new Mat();
+            halfSize = new org.opencv.core.Size(width/2, height/2);
         }
 
+        Mat strideMat = null;
+        Mat sensorMat = null;
+
         try
         {
             /*
@@ -374,26 +383,116 @@ class OpenCvWebcamImpl extends OpenCvCameraBase implements CameraCaptureSession.
              * Also it seems to be *considerably* more efficient than copyToBitmap(). Not entirely
              * sure why because one would think renderscript would be faster since it can run on
              * the GPU...
+             *
+             * Rather than copying the image into a Java byte[] and then into a Mat, we wrap
+             * the frame's native buffer in a Mat header, so the color conversion reads
+             * straight from the frame. The buffer is only valid until this method returns,
+             * so anything handed to the pipeline is converted or copied out of it first.
              */
-            RenumberedCameraFrame renumberedCameraFrame = (RenumberedCameraFrame) cameraFrame;
-            Field innerFrameField = RenumberedCameraFrame.class.getDeclaredField("innerFrame");
-            innerFrameField.setAccessible(true);
-            CameraFrame innerFrame = (CameraFrame) innerFrameField.get(renumberedCameraFrame);
-            UvcApiCameraFrame uvcApiCameraFrame = (UvcApiCameraFrame) innerFrame;
-            Field uvcFrameField = UvcApiCameraFrame.class.getDeclaredField("uvcFrame");
-            uvcFrameField.setAccessible(true);
-            UvcFrame uvcFrame = (UvcFrame) uvcFrameField.get(uvcApiCameraFrame);
-
-            uvcFrame.getImageData(imgDat);
-            rawSensorMat.put(0,0,imgDat);
-            Imgproc.cvtColor(rawSensorMat, rgbMat, Imgproc.COLOR_YUV2RGBA_YUY2, 4);
-
-            handleFrame(rgbMat);
+            UvcFrame uvcFrame = getUvcFrame(cameraFrame);
+            ByteBuffer frameBuffer = uvcFrame.getImageByteBuffer();
+            int stride = cameraFrame.getStride();
+            strideMat = new Mat(height, stride/2, CvType.CV_8UC2, frameBuffer);
+            sensorMat = stride == width*2 ? strideMat : strideMat.submat(0, height, 0, width);
 
+            switch (getPipelineInputFormat())
+            {
+                case GRAY:
+                    Imgproc.cvtColor(sensorMat, grayMat, Imgproc.COLOR_YUV2GRAY_YUY2);
+                    handleFrame(grayMat);
+                    break;
+
+                case RGB_HALF:
+                    convertToHalfRgb(sensorMat);
+                    handleFrame(halfRgbMat);
+                    break;
+
+                case YUY2:
+                    sensorMat.copyTo(rawSensorMat);
+                    handleFrame(rawSensorMat);
+                    break;
+
+                default:
+                    Imgproc.cvtColor(sensorMat, rgbMat, Imgproc.COLOR_YUV2RGBA_YUY2, 4);
+                    handleFrame(rgbMat);
+                    break;
+            }
         }
         catch (Exception e)
         {
             e.printStackTrace();
         }
+        finally
+        {
+            if(sensorMat != null && sensorMat != strideMat)
+            {
+                sensorMat.release();
+            }
+            if(strideMat != null)
+            {
+                strideMat.release();
+            }
+        }
+    }
+
+    /*
+     * Each YUY2 pixel pair shares one U and one V sample, so we can treat a
+     * row as CV_8UC4 pairs and drop every other row without touching the
+     * chroma. That half height frame is converted to RGB, then every other
+     * column is dropped, giving exactly the same pixels as converting the
+     * full frame and subsampling it, for about half the conversion work.
+     */
+    private void convertToHalfRgb(Mat sensorMat)
+    {
+        // width/2 pairs per row, so this only halves the height
+        Mat pairs = sensorMat.reshape(4);
+        Imgproc.resize(pairs, halfRowsMat, halfSize, 0, 0, Imgproc.INTER_NEAREST);
+        pairs.release();
+
+        Mat halfRows = halfRowsMat.reshape(2);
+        Imgproc.cvtColor(halfRows, halfRowsRgbMat, Imgproc.COLOR_YUV2RGB_YUY2);
+        halfRows.release();
+
+        Imgproc.resize(halfRowsRgbMat, halfRgbMat, halfSize, 0, 0, Imgproc.INTER_NEAREST);
+    }
+
+    /*
+     * Digs the UvcFrame out of the SDK's frame wrappers. The reflective
+     * lookups are done once and cached, rather than on every frame.
+     */
+    private static UvcFrame getUvcFrame(CameraFrame cameraFrame) throws NoSuchFieldException, IllegalAccessException
+    {
+        if(innerFrameField == null)
+        {
+            Field innerField = RenumberedCameraFrame.class.getDeclaredField("innerFrame");
+            innerField.setAccessible(true);
+            Field uvcField = UvcApiCameraFrame.class.getDeclaredField("uvcFrame");
+            uvcField.setAccessible(true);
+            uvcFrameField = uvcField;
+            innerFrameField = innerField;
+        }
+
+        CameraFrame innerFrame = (CameraFrame) innerFrameField.get(cameraFrame);
+        return (UvcFrame) uvcFrameField.get(innerFrame);
+    }
+
+    private void releaseFrameMats()
+    {
+        if(rgbMat != null)
+        {
+            rawSensorMat.release();
+            rgbMat.release();
+            grayMat.release();
+            halfRowsMat.release();
+            halfRowsRgbMat.release();
+            halfRgbMat.release();
+        }
+
+        rawSensorMat = null;
+        rgbMat = null;
+        grayMat = null;
+        halfRowsMat = null;
+        halfRowsRgbMat = null;
+        halfRgbMat = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
+
+/*
+ * Time spent in each stage of a pipeline on the last frame, so
+ * latency can be broken down below the whole pipeline. Call
+ * start() when a frame begins and mark(stage) as each stage ends;
+ * stages skipped on a frame read 0. Never allocates after
+ * construction.
+ */
+public class StageTimer
+{
+    private final String[] names;
+    private final long[] nanos;
+    private long last;
+
+    public StageTimer(String... names)
+    {
+        this.names = names.clone();
+        this.nanos = new long[names.length];
+    }
+
+    public void start()
+    {
+        for(int i = 0; i < nanos.length; i++)
+        {
+            nanos[i] = 0;
+        }
+        last = System.nanoTime();
+    }
+
+    public void mark(int stage)
+    {
+        long now = System.nanoTime();
+        nanos[stage] += now - last;
+        last = now;
+    }
+
+    public int getStageCount()
+    {
+        return names.length;
+    }
+
+    public String getStageName(int stage)
+    {
+        return names[stage];
+    }
+
+    public long getStageNanos(int stage)
+    {
+        return nanos[stage];
+    }
+}
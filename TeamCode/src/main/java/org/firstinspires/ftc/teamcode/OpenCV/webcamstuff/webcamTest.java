@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.OpenCV.webcamstuff;
 
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
@@ -42,9 +44,14 @@ public class webcamTest extends LinearOpMode {
         webcam.startStreaming(width, height);
         telemetry.addData("Status", "Ready"); telemetry.update();
 
+        FtcDashboard dashboard = FtcDashboard.getInstance();
         waitForStart();
 
         while (opModeIsActive() && !isStopRequested()) {
+            TelemetryPacket packet = new TelemetryPacket();
+            webcam.addLatencyTelemetry(packet);
+            dashboard.sendTelemetryPacket(packet);
+
             telemetry.addData("Position", position);
             telemetry.addData("Frame Count", webcam.getFrameCount());
             telemetry.addData("FPS", String.format("%.2f", webcam.getFps()));
@@ -52,6 +59,7 @@ public class webcamTest extends LinearOpMode {
             telemetry.addData("Pipeline time ms", webcam.getPipelineTimeMs());
             telemetry.addData("Overhead time ms", webcam.getOverheadTimeMs());
             telemetry.addData("Theoretical max FPS", webcam.getCurrentPipelineMaxFps());
+            telemetry.addData("Capture to result p90 ms", webcam.getLatencyHistogram(OpenCvLatencyStage.CAPTURE_TO_RESULT).getPercentileMs(90));
             telemetry.update();
         }
 
@@ -1,24 +1,28 @@
 package org.firstinspires.ftc.teamcode.RobotClasses;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
-import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.ServoOutput;
 
 @SuppressWarnings("FieldCanBeLocal")
 public class CapstoneDeposit {
 
     // Electronics
-    private Servo capstoneDeposit;
+    private ServoOutput capstoneDeposit;
 
     // OpMode Stuff
     private LinearOpMode op;
-    private HardwareMap hardwareMap;
 
     public CapstoneDeposit(LinearOpMode op){
+        this(op, new FtcRobotHardware(op));
+    }
+
+    public CapstoneDeposit(LinearOpMode op, RobotHardware hardware){
         this.op = op;
-        this.hardwareMap = op.hardwareMap;
 
-        capstoneDeposit = hardwareMap.get(Servo.class, "capstoneDeposit");
+        capstoneDeposit = hardware.servo("capstoneDeposit");
         goHome();
     }
 
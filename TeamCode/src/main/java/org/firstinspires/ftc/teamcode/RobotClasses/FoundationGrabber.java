@@ -3,16 +3,18 @@ package org.firstinspires.ftc.teamcode.RobotClasses;
 import com.acmerobotics.dashboard.config.Config;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
-import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.ServoOutput;
 
 @SuppressWarnings("FieldCanBeLocal")
 //@Config
 public class FoundationGrabber {
 
     // Electronics
-    private Servo leftGrabber;
-    private Servo rightGrabber;
+    private ServoOutput leftGrabber;
+    private ServoOutput rightGrabber;
 
     // Constants
     public static double Lhome = 0.55;
@@ -22,14 +24,16 @@ public class FoundationGrabber {
 
     //OpMode Stuff
     private LinearOpMode op;
-    private HardwareMap hardwareMap;
 
     public FoundationGrabber(LinearOpMode op){
+        this(op, new FtcRobotHardware(op));
+    }
+
+    public FoundationGrabber(LinearOpMode op, RobotHardware hardware){
         this.op = op;
-        this.hardwareMap = op.hardwareMap;
 
-        leftGrabber = hardwareMap.get(Servo.class, "leftGrabber");
-        rightGrabber = hardwareMap.get(Servo.class, "rightGrabber");
+        leftGrabber = hardware.servo("leftGrabber");
+        rightGrabber = hardware.servo("rightGrabber");
 
         op.telemetry.addData("Status", "Grabbers Initialized");
         op.telemetry.update();
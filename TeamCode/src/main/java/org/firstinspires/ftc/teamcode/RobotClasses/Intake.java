@@ -4,18 +4,20 @@ import com.acmerobotics.dashboard.config.Config;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.DcMotorEx;
-import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.Motor;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.ServoOutput;
 
 @SuppressWarnings("FieldCanBeLocal")
 //@Config
 public class Intake {
 
     // Electronics
-    private DcMotorEx leftIntake;
-    private DcMotorEx rightIntake;
-    private Servo stonePushServo;
+    private Motor leftIntake;
+    private Motor rightIntake;
+    private ServoOutput stonePushServo;
 
     private final double stonePushPos = 0.9;
     private final double homePos = 0.27;
@@ -25,16 +27,18 @@ public class Intake {
 
     // OpMode Stuff
     private LinearOpMode op;
-    private HardwareMap hardwareMap;
 
     public Intake(LinearOpMode op){
+        this(op, new FtcRobotHardware(op));
+    }
+
+    public Intake(LinearOpMode op, RobotHardware hardware){
 
         this.op = op;
-        this.hardwareMap = op.hardwareMap;
 
-        leftIntake = hardwareMap.get(DcMotorEx.class, "leftIntake");
-        rightIntake = hardwareMap.get(DcMotorEx.class, "rightIntake");
-        stonePushServo = hardwareMap.get(Servo.class, "stonePushServo");
+        leftIntake = hardware.motor("leftIntake");
+        rightIntake = hardware.motor("rightIntake");
+        stonePushServo = hardware.servo("stonePushServo");
 
         leftIntake.setDirection(DcMotor.Direction.REVERSE);
         rightIntake.setDirection(DcMotor.Direction.FORWARD);
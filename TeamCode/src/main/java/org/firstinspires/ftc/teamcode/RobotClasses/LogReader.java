@@ -0,0 +1,168 @@
+package org.firstinspires.ftc.teamcode.RobotClasses;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.BLOCK_RECORDS;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.BYTE_ORDER;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.DOUBLE_COLUMNS;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.FOOTER_MAGIC;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.HEADER_BYTES;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.MAGIC;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.SINCE_START;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.TRAILER_BYTES;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.blockOffset;
+import static org.firstinspires.ftc.teamcode.RobotClasses.Logger.columnOffset;
+
+/**
+ * Memory-mapped reader for log files written by {@linkplain Logger}
+ * <p>Records are located by arithmetic on the fixed block size, so reading any record (including
+ * the last one) is O(1). Uses the footer index when the log was closed normally, and recovers the
+ * record count from the last block when it was not.
+ */
+public class LogReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int recordCount;
+    private final int blockCount;
+    private final double[] blockStartTimes;
+
+    public LogReader(String path) throws IOException {
+        channel = new RandomAccessFile(path, "r").getChannel();
+        try {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(BYTE_ORDER);
+
+            if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC || map.getInt(8) != BLOCK_RECORDS || map.getInt(12) != DOUBLE_COLUMNS) {
+                throw new IOException("Not a robot log: " + path);
+            }
+
+            int trailer = map.capacity() - TRAILER_BYTES;
+            if (trailer >= HEADER_BYTES && map.getInt(trailer + 12) == FOOTER_MAGIC) {
+                // Closed Normally, Use Footer Index
+                recordCount = (int) map.getLong(trailer);
+                blockCount = map.getInt(trailer + 8);
+                blockStartTimes = new double[blockCount];
+                int index = (int) blockOffset(blockCount);
+                for (int b = 0; b < blockCount; b++) {
+                    blockStartTimes[b] = map.getDouble(index + b * 8);
+                }
+            } else {
+                // Crashed, Recover From Last Complete Block
+                blockCount = (map.capacity() - HEADER_BYTES) / Logger.BLOCK_BYTES;
+                recordCount = blockCount == 0 ? 0 : (blockCount - 1) * BLOCK_RECORDS + map.getInt((int) blockOffset(blockCount - 1));
+                blockStartTimes = new double[blockCount];
+                for (int b = 0; b < blockCount; b++) {
+                    blockStartTimes[b] = map.getDouble((int) blockOffset(b) + columnOffset(SINCE_START));
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of records in the log
+     */
+    public int getRecordCount() {return recordCount;}
+
+    /**
+     * Gets a double column value of a record
+     * @param column one of the column constants in {@linkplain Logger}
+     */
+    public double get(int column, int record) {
+        return map.getDouble(position(column, record, 8));
+    }
+
+    /**
+     * Gets the wall clock time (ms) a record was logged
+     */
+    public long getTimestamp(int record) {
+        return map.getLong(position(-1, record, 8));
+    }
+
+    /**
+     * Gets the flag bits of a record
+     */
+    public int getFlags(int record) {
+        return map.get(position(DOUBLE_COLUMNS, record, 1));
+    }
+
+    /**
+     * Gets x, y and theta of the last record, or null if the log is empty
+     */
+    public double[] getLastPose() {
+        if (recordCount == 0) return null;
+        int last = recordCount - 1;
+        return new double[] {get(Logger.X, last), get(Logger.Y, last), get(Logger.THETA, last)};
+    }
+
+    /**
+     * Copies consecutive values of one column into a primitive array, one bulk copy per block
+     * @return number of values copied
+     */
+    public int readColumn(int column, int startRecord, double[] out, int offset, int length) {
+        length = Math.min(length, recordCount - startRecord);
+        int copied = 0;
+        while (copied < length) {
+            int record = startRecord + copied;
+            int inBlock = Math.min(length - copied, BLOCK_RECORDS - record % BLOCK_RECORDS);
+            ByteBuffer view = map.duplicate();
+            view.order(BYTE_ORDER).position(position(column, record, 8));
+            view.asDoubleBuffer().get(out, offset + copied, inBlock);
+            copied += inBlock;
+        }
+        return Math.max(copied, 0);
+    }
+
+    /**
+     * Reads a whole column into a new array
+     */
+    public double[] readColumn(int column) {
+        double[] out = new double[recordCount];
+        readColumn(column, 0, out, 0, recordCount);
+        return out;
+    }
+
+    /**
+     * Finds the last record logged at or before a time since start, using the footer index
+     * @return record index, or -1 if the time is before the first record
+     */
+    public int findRecord(double sinceStart) {
+        // Binary Search Blocks
+        int lo = 0, hi = blockCount - 1, block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockStartTimes[mid] <= sinceStart) {block = mid; lo = mid + 1;}
+            else hi = mid - 1;
+        }
+        if (block == -1) return -1;
+
+        // Binary Search Records in Block
+        lo = block * BLOCK_RECORDS;
+        hi = Math.min(lo + BLOCK_RECORDS, recordCount) - 1;
+        int record = lo;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (get(SINCE_START, mid) <= sinceStart) {record = mid; lo = mid + 1;}
+            else hi = mid - 1;
+        }
+        return record;
+    }
+
+    private int position(int column, int record, int width) {
+        if (record < 0 || record >= recordCount) throw new IndexOutOfBoundsException("record " + record + " of " + recordCount);
+        return (int) blockOffset(record / BLOCK_RECORDS) + columnOffset(column) + (record % BLOCK_RECORDS) * width;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
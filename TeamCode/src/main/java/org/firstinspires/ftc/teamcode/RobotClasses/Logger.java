@@ -2,124 +2,310 @@ package org.firstinspires.ftc.teamcode.RobotClasses;
 
 import android.annotation.SuppressLint;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Logs robot data to a binary file on the SD card
+ * <p>Samples are stored in a preallocated ring buffer of primitive columns so that logging from
+ * the control loop never allocates. A background thread writes the ring buffer to the file in
+ * fixed-size, column-major blocks.
+ * <p>File layout: 16 byte header, then blocks of {@link #BLOCK_RECORDS} records. Each block is
+ * the record count, then the timestamp column, then each double column, then the flag column.
+ * When logging stops normally a footer follows the last block: the time since start of the first
+ * record of every block, then the record count, block count and {@link #FOOTER_MAGIC}.
+ * Use {@linkplain LogReader} to read logs.
+ */
 @SuppressLint("SdCardPath")
 public class Logger {
 
     private static String basePath = "/sdcard/FIRST/robotLogs/RobotData";
-    private static FileWriter fileWriter;
-    private static BufferedReader bufferedReader;
-    private String data = "";
+    private static final String extension = ".bin";
+
+    // Log Format
+    static final int MAGIC = 0x524C4F47; // "RLOG"
+    static final int VERSION = 1;
+    static final int FOOTER_MAGIC = 0x52494458; // "RIDX"
+    static final int HEADER_BYTES = 16;
+    static final int TRAILER_BYTES = 16;
+    static final int BLOCK_RECORDS = 256;
+    static final int DOUBLE_COLUMNS = 10;
+    static final int BLOCK_BYTES = 8 + BLOCK_RECORDS * (8 + DOUBLE_COLUMNS * 8 + 1);
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // Double Columns
+    public static final int SINCE_START = 0;
+    public static final int X = 1;
+    public static final int Y = 2;
+    public static final int THETA = 3;
+    public static final int VELOCITY_X = 4;
+    public static final int VELOCITY_Y = 5;
+    public static final int VELOCITY_THETA = 6;
+    public static final int ACCEL_X = 7;
+    public static final int ACCEL_Y = 8;
+    public static final int ACCEL_THETA = 9;
+    public static final String[] COLUMN_NAMES = {"SinceStart","X","Y","Theta","VelocityX","VelocityY","VelocityTheta","AccelX","AccelY","AccelTheta"};
+
+    // Flag Bits
+    public static final int STONE_IN_ROBOT = 1;
+    public static final int STONE_CLAMPED = 1 << 1;
+    public static final int TRYING_TO_DEPOSIT = 1 << 2;
+    public static final int ARM_IS_HOME = 1 << 3;
+    public static final int ARM_IS_DOWN = 1 << 4;
+    public static final int ARM_IS_OUT = 1 << 5;
+
+    // Ring Buffer
+    private static final int RING_BLOCKS = 8;
+    private static final int RING_CAPACITY = RING_BLOCKS * BLOCK_RECORDS;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    private static final long FLUSH_PERIOD_NANOS = 500_000_000L;
+
+    private final long[] timestamps = new long[RING_CAPACITY];
+    private final double[][] columns = new double[DOUBLE_COLUMNS][RING_CAPACITY];
+    private final byte[] flags = new byte[RING_CAPACITY];
+    private volatile long head = 0; // samples logged
+    private volatile long tail = 0; // samples written in full blocks
+    private volatile boolean logging = false;
+    private int droppedSamples = 0;
+    private WriterThread writer;
 
     /**
-     * Creates a new file and writes first row
+     * Creates a new file and starts the writer thread
      * This method must be used before logging
      */
     public void startLogging() {
         try {
-            data = "";
+            if (logging) stopLogging();
+            head = 0;
+            tail = 0;
+            droppedSamples = 0;
             File robotDataLog = new File(getLogName(true));
-            fileWriter = new FileWriter(robotDataLog);
-            fileWriter.write("Timestamp,SinceStart,X,Y,Theta,VelocityX,VelocityY,VelocityTheta,AccelX,AccelY,AccelTheta,StoneInRobot,StoneClamped,TryingToDeposit,ArmIsHome,ArmIsDown,ArmIsOut\n");
+            writer = new WriterThread(new FileOutputStream(robotDataLog).getChannel());
+            logging = true;
+            writer.start();
         } catch (Exception e) {e.printStackTrace();}
     }
 
+    /**
+     * Writes and reads logs in another directory, for running the robot code off the robot
+     */
+    public static void setLogDirectory(String directory) {
+        basePath = new File(directory, "RobotData").getPath();
+    }
+
     /**
      * Searches the list of files to find the last file number that exists
      */
     public static double getLastFileNumber() {
         int logNum = 1;
         while (true) {
-            File currentFile = new File(basePath + logNum + ".csv");
+            File currentFile = new File(basePath + logNum + extension);
             if (!currentFile.exists()) break;
             logNum++;
         }
         return logNum - 1;
     }
 
+    /**
+     * Converts a file number to the path of that log file
+     */
+    public static String getLogPath(double fileNumber) {
+        return basePath + (int) fileNumber + extension;
+    }
+
     /**
      * Takes the file number from getLastFileNumber() and converts it to a file name
      */
     private static String getLogName(boolean fileWrite) {
-        System.out.println(basePath + (int)(getLastFileNumber()+ 1) + ".csv");
-        if (fileWrite) return basePath + (int)(getLastFileNumber()+ 1) + ".csv";
-        else return basePath + getLastFileNumber() + ".csv";
+        System.out.println(getLogPath(getLastFileNumber() + 1));
+        if (fileWrite) return getLogPath(getLastFileNumber() + 1);
+        else return getLogPath(getLastFileNumber());
     }
 
     /**
-     * Adds data to string
+     * Adds a sample to the ring buffer, does not allocate
+     * Samples are dropped if the writer thread falls a full ring behind
      */
     public void logData(double timeSinceSt, double x, double y, double theta, double velocityx, double velocityy, double velocitytheta, double accelx, double accely, double accelTheta, boolean stoneInRobot, boolean stoneClamped, boolean tryingToDeposit, boolean armIsHome, boolean armIsDown, boolean armIsOut) {
-        @SuppressLint("SimpleDateFormat") SimpleDateFormat df = new SimpleDateFormat("HH:mm:ss.SSS"); Date d = new Date();
-        data += df.format(d)+","+timeSinceSt+","+x+","+y+","+theta+","+velocityx+","+velocityy+","+velocitytheta+","+accelx+","+accely+","+accelTheta+","+stoneInRobot+","+stoneClamped+","+tryingToDeposit+","+armIsHome+","+armIsDown+","+armIsOut+"\n";
+        if (!logging) return;
+
+        long h = head;
+        if (h - tail >= RING_CAPACITY) {
+            droppedSamples++;
+            return;
+        }
+
+        int i = (int) (h & RING_MASK);
+        timestamps[i] = System.currentTimeMillis();
+        columns[SINCE_START][i] = timeSinceSt;
+        columns[X][i] = x;
+        columns[Y][i] = y;
+        columns[THETA][i] = theta;
+        columns[VELOCITY_X][i] = velocityx;
+        columns[VELOCITY_Y][i] = velocityy;
+        columns[VELOCITY_THETA][i] = velocitytheta;
+        columns[ACCEL_X][i] = accelx;
+        columns[ACCEL_Y][i] = accely;
+        columns[ACCEL_THETA][i] = accelTheta;
+        flags[i] = (byte) ((stoneInRobot ? STONE_IN_ROBOT : 0) | (stoneClamped ? STONE_CLAMPED : 0) | (tryingToDeposit ? TRYING_TO_DEPOSIT : 0)
+                | (armIsHome ? ARM_IS_HOME : 0) | (armIsDown ? ARM_IS_DOWN : 0) | (armIsOut ? ARM_IS_OUT : 0));
+        head = h + 1;
+
+        // Wake Writer Once a Block is Full
+        if (((h + 1) & (BLOCK_RECORDS - 1)) == 0) LockSupport.unpark(writer);
     }
 
     /**
-     * Writes string to file, closes file
+     * Writes remaining samples to file, closes file
      */
     public void stopLogging() {
+        if (!logging) return;
+        logging = false;
+        LockSupport.unpark(writer);
         try {
-            fileWriter.write(data);
-            fileWriter.close();
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        catch (Exception e) {e.printStackTrace();}
+        if (droppedSamples > 0) System.out.println("logger dropped " + droppedSamples + " samples");
+        writer = null;
     }
 
     /**
-     * Reads position from last written file
+     * Gets the number of samples dropped because the writer thread fell behind
      */
-    public static double[] readPos() {
-        String curLine; int lineNum = 0;
-        double[] robotPos = new double[3];
+    public int getDroppedSamples() {return droppedSamples;}
 
-        try {
-            bufferedReader = new BufferedReader(new FileReader(getLogName(false)));
-            while ((curLine = bufferedReader.readLine()) != null) {
-
-                if (lineNum != 0) {
-                    String[] data = curLine.split(","); //System.out.println(Arrays.toString(data));
-                    robotPos[0] = Double.parseDouble(data[2]);
-                    robotPos[1] = Double.parseDouble(data[3]);
-                    robotPos[2] = Double.parseDouble(data[4]);
-                    //System.out.println(Arrays.toString(robotPos);
+    /**
+     * Byte offset of a column within a block, -1 is the timestamp column and DOUBLE_COLUMNS is the flag column
+     */
+    static int columnOffset(int column) {
+        return 8 + BLOCK_RECORDS * 8 * (column + 1);
+    }
+
+    /**
+     * Byte offset of a block within the file
+     */
+    static long blockOffset(long block) {
+        return HEADER_BYTES + block * BLOCK_BYTES;
+    }
+
+    /**
+     * Drains the ring buffer to the file in fixed-size blocks
+     * The block being filled is rewritten in place every flush period so a crash loses at most one period of data
+     */
+    private class WriterThread extends Thread {
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES).order(BYTE_ORDER);
+        private long partialStart = -1;
+        private int partialCount = 0;
+        private double[] blockStartTimes = new double[64];
+
+        private WriterThread(FileChannel channel) {
+            this.channel = channel;
+            setName("Logger");
+        }
+
+        @Override
+        public void run() {
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(BYTE_ORDER);
+                header.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_RECORDS).putInt(DOUBLE_COLUMNS);
+                header.flip();
+                write(header, 0);
+
+                while (true) {
+                    boolean stopping = !logging;
+                    long h = head;
+
+                    // Write Full Blocks
+                    while (h - tail >= BLOCK_RECORDS) {
+                        writeBlock(tail, BLOCK_RECORDS);
+                        tail += BLOCK_RECORDS;
+                    }
+
+                    // Rewrite Partial Block if it Changed
+                    int count = (int) (h - tail);
+                    if (count > 0 && (partialStart != tail || partialCount != count)) {
+                        writeBlock(tail, count);
+                        partialStart = tail;
+                        partialCount = count;
+                    }
+
+                    if (stopping) {
+                        writeFooter(h);
+                        break;
+                    }
+                    LockSupport.parkNanos(this, FLUSH_PERIOD_NANOS);
                 }
-                lineNum++;
+                channel.force(false);
+            } catch (IOException e) {e.printStackTrace();}
+            finally {
+                try {
+                    channel.close();
+                } catch (IOException e) {e.printStackTrace();}
             }
-            bufferedReader.close();
-        } catch (Exception ex) {
-            robotPos[0] = 0; robotPos[1] = 0; robotPos[2] = 0;
-            System.out.println("read error, using default values :-(");
-            ex.printStackTrace();
         }
 
-        return robotPos;
-    }
-
-    public ArrayList<double[]> replay(String path) {
-        String curLine;
-        int lineNum = 0;
-        ArrayList<double[]> dataArray = new ArrayList<>();
-        try {
-            File robotDataLog = new File(path);
-            bufferedReader = new BufferedReader(new FileReader(robotDataLog));
+        private void writeBlock(long start, int count) throws IOException {
+            int first = (int) (start & RING_MASK);
+            int blockNum = (int) (start / BLOCK_RECORDS);
+            if (blockNum >= blockStartTimes.length) blockStartTimes = Arrays.copyOf(blockStartTimes, blockStartTimes.length * 2);
+            blockStartTimes[blockNum] = columns[SINCE_START][first];
 
-            while ((curLine = bufferedReader.readLine()) != null) {
-                if (lineNum != 0) {
-                    String[] data = curLine.split(",");
-                    dataArray.add(new double[]{Double.parseDouble(data[1]), Double.parseDouble(data[2]), Double.parseDouble(data[3]), Double.parseDouble(data[4])});
+            block.clear();
+            block.putInt(0, count);
+            for (int r = 0; r < count; r++) {
+                int i = first + r;
+                block.putLong(columnOffset(-1) + r * 8, timestamps[i]);
+                for (int c = 0; c < DOUBLE_COLUMNS; c++) {
+                    block.putDouble(columnOffset(c) + r * 8, columns[c][i]);
                 }
-                lineNum++;
+                block.put(columnOffset(DOUBLE_COLUMNS) + r, flags[i]);
+            }
+            write(block, blockOffset(blockNum));
+        }
+
+        private void writeFooter(long recordCount) throws IOException {
+            int blockCount = (int) ((recordCount + BLOCK_RECORDS - 1) / BLOCK_RECORDS);
+            ByteBuffer footer = ByteBuffer.allocate(blockCount * 8 + TRAILER_BYTES).order(BYTE_ORDER);
+            for (int b = 0; b < blockCount; b++) {
+                footer.putDouble(blockStartTimes[b]);
+            }
+            footer.putLong(recordCount).putInt(blockCount).putInt(FOOTER_MAGIC);
+            footer.flip();
+            write(footer, blockOffset(blockCount));
+        }
+
+        private void write(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
             }
-            bufferedReader.close();
-        } catch (IOException e) {e.printStackTrace();}
-        return dataArray;
+        }
+    }
+
+    /**
+     * Reads position from last written file
+     */
+    public static double[] readPos() {
+        double[] robotPos = null;
+
+        try (LogReader reader = new LogReader(getLogName(false))) {
+            robotPos = reader.getLastPose();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+
+        if (robotPos == null) {
+            robotPos = new double[3];
+            System.out.println("read error, using default values :-(");
+        }
+        return robotPos;
     }
 }
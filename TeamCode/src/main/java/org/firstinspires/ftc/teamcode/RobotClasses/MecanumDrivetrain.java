@@ -4,25 +4,16 @@ import android.util.Log;
 
 import com.acmerobotics.dashboard.config.Config;
 
-import com.qualcomm.hardware.bosch.BNO055IMU;
-import com.qualcomm.hardware.lynx.LynxEmbeddedIMU;
-import com.qualcomm.hardware.lynx.LynxI2cDeviceSynchV2;
-import com.qualcomm.hardware.lynx.LynxModule;
-import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataCommand;
-import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataResponse;
-import com.qualcomm.hardware.modernrobotics.ModernRoboticsAnalogOpticalDistanceSensor;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
-import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.hardware.I2cDeviceSynchImplOnSimple;
-import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
 
-import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
-import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
-import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
-import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.teamcode.Hardware.BulkData;
+import org.firstinspires.ftc.teamcode.Hardware.BulkReadSource;
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.Imu;
+import org.firstinspires.ftc.teamcode.Hardware.Motor;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
 
 @SuppressWarnings("FieldCanBeLocal")
 @Config
@@ -33,22 +24,19 @@ public class MecanumDrivetrain {
     double encoderCountsPerRevolution = 537.6;
 
     // Motors of the drivetrain
-    private DcMotorEx motorFrontRight;
-    private DcMotorEx motorFrontLeft;
-    private DcMotorEx motorBackRight;
-    private DcMotorEx motorBackLeft;
-    private ModernRoboticsAnalogOpticalDistanceSensor stoneSensor;
+    private Motor motorFrontRight;
+    private Motor motorFrontLeft;
+    private Motor motorBackRight;
+    private Motor motorBackLeft;
 
     // OpMode Stuff
     private LinearOpMode opMode;
-    private HardwareMap hardwareMap;
 
     // Objects for IMU and Rev Hub
-    private LynxEmbeddedIMU imu;
-    private LynxModule module;
+    private Imu imu;
+    private BulkReadSource module;
 
     // IMU related variables for storing states
-    private Orientation angles;
     private double lastheading = 0;
     private double deltaheading = 0;
     public double currentheading = 0;
@@ -98,16 +86,18 @@ public class MecanumDrivetrain {
 
     // Constructor
     public MecanumDrivetrain(LinearOpMode opMode, double initialx, double initialy, double initialtheta, boolean isRedAuto) {
+        this(opMode, new FtcRobotHardware(opMode), initialx, initialy, initialtheta, isRedAuto);
+    }
+
+    public MecanumDrivetrain(LinearOpMode opMode, RobotHardware hardware, double initialx, double initialy, double initialtheta, boolean isRedAuto) {
         this.opMode = opMode;
-        this.hardwareMap = opMode.hardwareMap;
 
-        module = hardwareMap.get(LynxModule.class,"Drivetrain Hub");
+        module = hardware.bulkReadSource("Drivetrain Hub");
 
-        motorFrontRight = hardwareMap.get(DcMotorEx.class,"motorFrontRight");
-        motorFrontLeft = hardwareMap.get(DcMotorEx.class,"motorFrontLeft");
-        motorBackRight = hardwareMap.get(DcMotorEx.class,"motorBackRight");
-        motorBackLeft = hardwareMap.get(DcMotorEx.class,"motorBackLeft");
-        stoneSensor = hardwareMap.get(ModernRoboticsAnalogOpticalDistanceSensor.class, "stoneSensor");
+        motorFrontRight = hardware.motor("motorFrontRight");
+        motorFrontLeft = hardware.motor("motorFrontLeft");
+        motorBackRight = hardware.motor("motorBackRight");
+        motorBackLeft = hardware.motor("motorBackLeft");
 
         motorFrontLeft.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
         motorFrontRight.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
@@ -122,11 +112,7 @@ public class MecanumDrivetrain {
         motorFrontRight.setDirection(DcMotorSimple.Direction.REVERSE);
         motorBackRight.setDirection(DcMotorSimple.Direction.REVERSE);
 
-        imu = new LynxEmbeddedIMU(new MecanumDrivetrain.BetterI2cDeviceSynchImplOnSimple(
-                new LynxI2cDeviceSynchV2(hardwareMap.appContext, module, 0), true
-        ));
-
-        imu.initialize(new BNO055IMU.Parameters());
+        imu = hardware.imu("Drivetrain Hub");
 
         x = initialx;
         y = initialy;
@@ -139,37 +125,10 @@ public class MecanumDrivetrain {
             thetak = 1.15;
         }
 
-        opMode.telemetry.addLine("ExH Version: " + getConciseLynxFirmwareVersion(module));
+        opMode.telemetry.addLine("ExH Version: " + module.getFirmwareVersion());
         opMode.telemetry.update();
     }
 
-    private class BetterI2cDeviceSynchImplOnSimple extends I2cDeviceSynchImplOnSimple {
-        private BetterI2cDeviceSynchImplOnSimple(I2cDeviceSynchSimple simple, boolean isSimpleOwned) {
-            super(simple, isSimpleOwned);
-        }
-
-        @Override
-        public void setReadWindow(ReadWindow window) {
-            // intentionally do nothing
-        }
-    }
-
-    private static String getConciseLynxFirmwareVersion(LynxModule module) {
-        String rawVersion = module.getFirmwareVersionString();
-        String[] parts = rawVersion.split(" ");
-        StringBuilder versionBuilder = new StringBuilder();
-        for (int i = 0; i < 3; i++) {
-            String part = parts[3 + 2*i];
-            if (i == 2) {
-                versionBuilder.append(part);
-            } else {
-                versionBuilder.append(part, 0, part.length() - 1);
-                versionBuilder.append(".");
-            }
-        }
-        return versionBuilder.toString();
-    }
-
     public void setControls(double xdot, double ydot, double w){
         double FRpower;
         double BLpower;
@@ -287,21 +246,13 @@ public class MecanumDrivetrain {
         setControls(xdot, ydot, w);
     }
 
-    public LynxGetBulkInputDataResponse RevBulkData(){
-        LynxGetBulkInputDataResponse response;
-        try {
-            LynxGetBulkInputDataCommand command = new LynxGetBulkInputDataCommand(module);
-            response = command.sendReceive();
-        } catch (Exception e) {
-            opMode.telemetry.addData("Exception", "bulk read exception");
-            response = null;
-        }
-        return response;
+    public BulkData RevBulkData(){
+        return module.read();
     }
 
     public void updatePose(){
         try {
-            LynxGetBulkInputDataResponse response = RevBulkData();
+            BulkData response = RevBulkData();
             pod1 = -response.getEncoder(3) * 0.00300622055 * 2;
             pod2 = response.getEncoder(0) * 0.00300622055 * 2 ;
             pod3 = -response.getEncoder(2) * 0.00300622055 * 2;
@@ -348,8 +299,8 @@ public class MecanumDrivetrain {
     }
 
     public double getHeadingImu(){
-        angles = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS);
-        deltaheading = angles.firstAngle - lastheading;
+        double heading = imu.getHeading();
+        deltaheading = heading - lastheading;
 
         //opMode.telemetry.addData("delta", deltaheading);
 
@@ -359,14 +310,13 @@ public class MecanumDrivetrain {
             deltaheading -= 2*Math.PI ;
 
         currentheading += deltaheading;
-        lastheading = angles.firstAngle;
+        lastheading = heading;
 
         return currentheading;
     }
 
     public void resetHeadingIMU(){
-        angles = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS);
-        lastheading = angles.firstAngle;
+        lastheading = imu.getHeading();
         currentheading = 0;
     }
 
@@ -6,9 +6,11 @@ import com.acmerobotics.dashboard.FtcDashboard;
 import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
-import com.qualcomm.robotcore.hardware.Servo;
-import com.qualcomm.robotcore.hardware.VoltageSensor;
 
+import org.firstinspires.ftc.teamcode.Hardware.Clock;
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.ServoOutput;
 import org.firstinspires.ftc.teamcode.Splines.Waypoint;
 
 @SuppressWarnings("FieldCanBeLocal")
@@ -21,7 +23,7 @@ public class Robot {
     public FoundationGrabber grabber;
     public CapstoneDeposit capstoneDeposit;
     public Logger logger;
-    private Servo extendoServo;
+    private ServoOutput extendoServo;
 
 
     // State Booleans
@@ -57,22 +59,30 @@ public class Robot {
 
     // OpMode Stuff
     private LinearOpMode op;
+    private RobotHardware hardware;
+    public Clock clock;
     private FtcDashboard dashboard;
     private TelemetryPacket packet;
 
     // Constructor
     public Robot(LinearOpMode op, double initX, double initY, double initTheta, boolean isRed) {
-        drivetrain = new MecanumDrivetrain(op, initX, initY, initTheta, isRed);
-        intake = new Intake(op);
-        stacker = new Stacker(op);
-        grabber = new FoundationGrabber(op);
-        capstoneDeposit = new CapstoneDeposit(op);
+        this(op, new FtcRobotHardware(op), initX, initY, initTheta, isRed);
+    }
+
+    public Robot(LinearOpMode op, RobotHardware hardware, double initX, double initY, double initTheta, boolean isRed) {
+        drivetrain = new MecanumDrivetrain(op, hardware, initX, initY, initTheta, isRed);
+        intake = new Intake(op, hardware);
+        stacker = new Stacker(op, hardware);
+        grabber = new FoundationGrabber(op, hardware);
+        capstoneDeposit = new CapstoneDeposit(op, hardware);
         logger = new Logger();
 
-        extendoServo = op.hardwareMap.get(Servo.class, "extendoServo");
+        extendoServo = hardware.servo("extendoServo");
         extendoServo.setPosition(extendoHomePos);
 
         this.op = op;
+        this.hardware = hardware;
+        clock = hardware.clock();
         dashboard = FtcDashboard.getInstance();
         packet = new TelemetryPacket();
 
@@ -84,7 +94,7 @@ public class Robot {
 
         // Remember First Loop Time for Time Since Start
         if (firstLoop) {
-            startTime = System.currentTimeMillis();
+            startTime = clock.millis();
             firstLoop = false;
         }
 
@@ -138,18 +148,18 @@ public class Robot {
 
             // When Stone is Intaked Save Time for Clamping Delay
             else if (stoneInRobot && !tryingToDeposit && stacker.isArmHome() && !stoneInTimeSaved) {
-                stoneInTime = System.currentTimeMillis();
+                stoneInTime = clock.millis();
                 stoneInTimeSaved = true;
                 intake.pushStoneIn();
             }
 
             // Move Arm to Clamping Position When Delay is Over
-            else if (stoneInRobot && stacker.isArmHome() && !tryingToDeposit && stoneInTimeSaved && (System.currentTimeMillis()-stoneInTime)>armDownWaitTime) {
+            else if (stoneInRobot && stacker.isArmHome() && !tryingToDeposit && stoneInTimeSaved && (clock.millis()-stoneInTime)>armDownWaitTime) {
                 stacker.goDown();
             }
 
             // Move Intake Servo Once Stone is Clamped
-            else if (stoneInRobot && stacker.isArmDown() && stacker.stoneClamped && !tryingToDeposit && stoneInTimeSaved && (System.currentTimeMillis()-stoneInTime)>stonePushWaitTime) {
+            else if (stoneInRobot && stacker.isArmDown() && stacker.stoneClamped && !tryingToDeposit && stoneInTimeSaved && (clock.millis()-stoneInTime)>stonePushWaitTime) {
                 intake.stoneServoHome();
                 stoneInTimeSaved = false;
             }
@@ -195,18 +205,18 @@ public class Robot {
 
             // When Stone is Intaked Save Time for Clamping Delay
             else if (stoneInRobot && !tryingToDeposit && stacker.isArmHome() && !stoneInTimeSaved) {
-                stoneInTime = System.currentTimeMillis();
+                stoneInTime = clock.millis();
                 stoneInTimeSaved = true;
                 intake.pushStoneIn();
             }
 
             // Move Arm to Clamping Position When Delay is Over
-            else if (stoneInRobot && stacker.isArmHome() && !tryingToDeposit && stoneInTimeSaved && (System.currentTimeMillis()-stoneInTime)>armDownWaitTime) {
+            else if (stoneInRobot && stacker.isArmHome() && !tryingToDeposit && stoneInTimeSaved && (clock.millis()-stoneInTime)>armDownWaitTime) {
                 stacker.goDown();
             }
 
             // Move Intake Servo Once Stone is Clamped
-            else if (stoneInRobot && stacker.isArmDown() && stacker.stoneClamped && !tryingToDeposit && stoneInTimeSaved && (System.currentTimeMillis()-stoneInTime)>stonePushWaitTime) {
+            else if (stoneInRobot && stacker.isArmDown() && stacker.stoneClamped && !tryingToDeposit && stoneInTimeSaved && (clock.millis()-stoneInTime)>stonePushWaitTime) {
                 intake.stoneServoHome();
                 stoneInTimeSaved = false;
             }
@@ -230,7 +240,7 @@ public class Robot {
         stoneInRobot = drivetrain.stoneInRobot;
 
         // Calculating Velocity/Acceleration
-        double curTime = (double) System.currentTimeMillis() / 1000;
+        double curTime = (double) clock.millis() / 1000;
         double timeDiff = curTime - prevTime;
         xdot = (drivetrain.x - prevX) / timeDiff;
         ydot = (drivetrain.y - prevY) / timeDiff;
@@ -241,7 +251,7 @@ public class Robot {
 
         // Log Data
         if (cycleCounter % loggerUpdatePeriod == 0) {
-            logger.logData(System.currentTimeMillis()-startTime,drivetrain.x,drivetrain.y,drivetrain.currentheading,xdot,ydot,w,xdotdot,ydotdot,a,stoneInRobot,stacker.stoneClamped,tryingToDeposit,stacker.isArmHome(),stacker.isArmDown(),stacker.isArmOut());
+            logger.logData(clock.millis()-startTime,drivetrain.x,drivetrain.y,drivetrain.currentheading,xdot,ydot,w,xdotdot,ydotdot,a,stoneInRobot,stacker.stoneClamped,tryingToDeposit,stacker.isArmHome(),stacker.isArmDown(),stacker.isArmOut());
         }
 
         // Remember Old Values to Calculate Velocity/Acceleration
@@ -325,13 +335,6 @@ public class Robot {
     }
 
     public double getBatteryVoltage() {
-        double result = -1;
-        for (VoltageSensor sensor : op.hardwareMap.voltageSensor) {
-            double voltage = sensor.getVoltage();
-            if (voltage > 0) {
-                result = Math.min(result, voltage);
-            }
-        }
-        return result;
+        return hardware.getBatteryVoltage();
     }
 }
\ No newline at end of file
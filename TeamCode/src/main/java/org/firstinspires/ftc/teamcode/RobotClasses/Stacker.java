@@ -2,24 +2,25 @@ package org.firstinspires.ftc.teamcode.RobotClasses;
 
 import com.acmerobotics.dashboard.config.Config;
 
-import com.qualcomm.hardware.lynx.LynxModule;
-import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataCommand;
-import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataResponse;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.DcMotorEx;
-import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.teamcode.Hardware.BulkData;
+import org.firstinspires.ftc.teamcode.Hardware.BulkReadSource;
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.Motor;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.ServoOutput;
 
 @SuppressWarnings("FieldCanBeLocal")
 //@Config
 public class Stacker {
     
     // Electronics
-    private LynxModule module;
-    private DcMotorEx liftMotor;
-    private DcMotorEx depositMotor;
-    private Servo stoneClamp;
+    private BulkReadSource module;
+    private Motor liftMotor;
+    private Motor depositMotor;
+    private ServoOutput stoneClamp;
 
     // Clamp Positions
     private final double clampPos = 0.15;
@@ -64,7 +65,6 @@ public class Stacker {
 
     // OpMode Stuff
     private LinearOpMode op;
-    private HardwareMap hardwareMap;
 
     // Caching Stuff
     private int armLastTargetPos = 0;
@@ -75,13 +75,16 @@ public class Stacker {
     private boolean autofirstblock = false;
 
     public Stacker(LinearOpMode op) {
+        this(op, new FtcRobotHardware(op));
+    }
+
+    public Stacker(LinearOpMode op, RobotHardware hardware) {
         this.op = op;
-        this.hardwareMap = op.hardwareMap;
 
-        module = hardwareMap.get(LynxModule.class,"Other Stuff");
-        liftMotor = hardwareMap.get(DcMotorEx.class, "liftMotor");
-        depositMotor = hardwareMap.get(DcMotorEx.class, "depositMotor");
-        stoneClamp = hardwareMap.get(Servo.class, "stoneClamp");
+        module = hardware.bulkReadSource("Other Stuff");
+        liftMotor = hardware.motor("liftMotor");
+        depositMotor = hardware.motor("depositMotor");
+        stoneClamp = hardware.servo("stoneClamp");
         
         liftMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
         depositMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
@@ -222,7 +225,7 @@ public class Stacker {
 
     // Stack Level Methods
     public void nextLevel() {
-        currentStackHeight = Math.min(currentStackHeight + 1, 13);
+        currentStackHeight = Math.min(currentStackHeight + 1, liftPos.length - 1);
     }
     public void lastLevel() {
         currentStackHeight = Math.max(currentStackHeight - 1, 0);
@@ -264,16 +267,8 @@ public class Stacker {
     }
 
     // Arm/Lift Bulk Read Methods
-    public LynxGetBulkInputDataResponse RevBulkData(){
-        LynxGetBulkInputDataResponse response;
-        try {
-            LynxGetBulkInputDataCommand command = new LynxGetBulkInputDataCommand(module);
-            response = command.sendReceive();
-        } catch (Exception e) {
-            op.telemetry.addData("Exception", "bulk read exception");
-            response = null;
-        }
-        return response;
+    public BulkData RevBulkData(){
+        return module.read();
     }
 //    public void AutoFirstBlockMode(){
 //        if(autofirstblock){
@@ -292,7 +287,7 @@ public class Stacker {
 //    }
 
     public void update() {
-        LynxGetBulkInputDataResponse response = RevBulkData();
+        BulkData response = RevBulkData();
 
         armTicks = response.getEncoder(2);
         liftTicks = response.getEncoder(3);
@@ -3,22 +3,33 @@ package org.firstinspires.ftc.teamcode.Splines;
 import java.util.ArrayList;
 
 public class Path {
-    private ArrayList<Spline[]> splines = new ArrayList<Spline[]>();
-    private ArrayList<Double> waypointTimes = new ArrayList<Double>();
-    private ArrayList<Waypoint> waypoints;
+    // Flattened Splines: 6 Coefficients per Segment, Constant Term First
+    private double[] xcoeffs;
+    private double[] ycoeffs;
+    private double[] timeScalings;
+    private double[] segmentStartTimes;
+    private double[] segmentEndTimes;
+    private int segmentCount;
     private double totaltime;
 
-    public Path(ArrayList<Waypoint> waypoints){
-        // Defining waypoint Arraylist
-        this.waypoints = waypoints;
+    // Last Segment Used, Control Loop Queries Move Forward in Time
+    private int cursor = 0;
 
+    public Path(ArrayList<Waypoint> waypoints){
         // Define Splinegenerater, All Splines Necessary
         SplineGenerator splinegen = new SplineGenerator();
 
         // Find Total Time to Make Sure Nothing is Going Wrong on Pose Calls
         totaltime = waypoints.get(waypoints.size()-1).time;
 
-        for (int i = 0; i < waypoints.size()-1; i++) {
+        segmentCount = waypoints.size()-1;
+        xcoeffs = new double[6 * segmentCount];
+        ycoeffs = new double[6 * segmentCount];
+        timeScalings = new double[segmentCount];
+        segmentStartTimes = new double[segmentCount];
+        segmentEndTimes = new double[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
             // Get Relevant waypoints
             Waypoint waypoint1 = waypoints.get(i);
             Waypoint waypoint2 = waypoints.get(i+1);
@@ -43,34 +54,70 @@ public class Path {
             // Make Sure waypoints Are Correct
             assert waypoint2.time>waypoint1.time: "Waypoint times are not correct";
 
-            // Generate Splines and Add Them to Array
+            // Generate Splines and Copy Them Into Flat Arrays
             Spline[] segment = splinegen.SplineBetweenTwoPoints(startx, starty, endx, endy, starttheta, endtheta,
                     startxdot, endxdot, startydot, endydot, startxdotdot, endxdotdot, startydotdot, endydotdot, time);
-            splines.add(segment);
+            segment[0].getCoefficients(xcoeffs, 6 * i);
+            segment[1].getCoefficients(ycoeffs, 6 * i);
+            timeScalings[i] = segment[0].getTimeScaling();
 
-            // Add Time
-            waypointTimes.add(waypoint2.time);
+            // Add Times
+            segmentStartTimes[i] = waypoint1.time;
+            segmentEndTimes[i] = waypoint2.time;
         }
     }
 
     public Pose getRobotPose(double time){
-        int splineindex = 0;
+        return getRobotPose(time, new Pose(0, 0, 0));
+    }
 
+    /**
+     * Evaluates the path without allocating
+     * @param out pose that the result is written into
+     * @return out
+     */
+    public Pose getRobotPose(double time, Pose out){
+        int i = findSegment(time);
+        double t = (time - segmentStartTimes[i]) * timeScalings[i];
+        int c = 6 * i;
+
+        double x = ((((xcoeffs[c+5] * t + xcoeffs[c+4]) * t + xcoeffs[c+3]) * t + xcoeffs[c+2]) * t + xcoeffs[c+1]) * t + xcoeffs[c];
+        double y = ((((ycoeffs[c+5] * t + ycoeffs[c+4]) * t + ycoeffs[c+3]) * t + ycoeffs[c+2]) * t + ycoeffs[c+1]) * t + ycoeffs[c];
+        double xdot = (((5 * xcoeffs[c+5] * t + 4 * xcoeffs[c+4]) * t + 3 * xcoeffs[c+3]) * t + 2 * xcoeffs[c+2]) * t + xcoeffs[c+1];
+        double ydot = (((5 * ycoeffs[c+5] * t + 4 * ycoeffs[c+4]) * t + 3 * ycoeffs[c+3]) * t + 2 * ycoeffs[c+2]) * t + ycoeffs[c+1];
+
+        out.set(x, y, Math.atan2(ydot, xdot));
+        return out;
+    }
+
+    /**
+     * Finds the first segment that ends after time, or the last segment if the path is over
+     */
+    private int findSegment(double time){
         if(totaltime <= time){
-            splineindex = waypointTimes.size() - 1;
-        } else{
-            for (int i = 0; i < waypointTimes.size(); i++) {
-                if(waypointTimes.get(i) > time){
-                    splineindex = i;
-                    break;
-                }
+            return segmentCount - 1;
+        }
+
+        // Check Current and Next Segment Before Searching
+        if(time < segmentEndTimes[cursor] && (cursor == 0 || time >= segmentEndTimes[cursor-1])){
+            return cursor;
+        }
+        if(cursor+1 < segmentCount && time < segmentEndTimes[cursor+1] && time >= segmentEndTimes[cursor]){
+            return ++cursor;
+        }
+
+        // Binary Search
+        int lo = 0;
+        int hi = segmentCount - 1;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(segmentEndTimes[mid] > time){
+                hi = mid;
+            } else{
+                lo = mid + 1;
             }
         }
-        double splinetime = time - waypoints.get(splineindex).time;
-        Spline[] currentspline = splines.get(splineindex);
-        double x = currentspline[0].position(splinetime);
-        double y = currentspline[1].position(splinetime);
-        double theta = Math.atan2(currentspline[1].velocity(splinetime), currentspline[0].velocity(splinetime));
-        return new Pose(x, y, theta);
+        cursor = lo;
+        return lo;
     }
 }
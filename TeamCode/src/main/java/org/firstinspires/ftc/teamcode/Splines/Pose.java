@@ -10,6 +10,13 @@ public class Pose {
         this.y = y;
         this.theta = theta;
     }
+
+    void set(double x, double y, double theta) {
+        this.x = x;
+        this.y = y;
+        this.theta = theta;
+    }
+
     public double getX() {
         return x;
     }
@@ -11,8 +11,6 @@ public class Spline {
     private double a4;
     private double a5;
     private double timeScaling;
-    private double[][] ainversearray = {{10,-4,0.5},{-15,7,-1},{6,-3,0.5}};
-    private SimpleMatrix ainverse = new SimpleMatrix(ainversearray);
 
     public Spline(double a0, double a1, double a2, double a3, double a4, double a5){
         this.a0 = a0;
@@ -29,16 +27,15 @@ public class Spline {
         this.a1 = startv;
         this.a2 = starta/2;
 
-        // Constants of System of Equation Matrix
-        double[][] barray = {{endx - startx - startv - starta/2, endv - startv - starta, enda - starta}};
-        SimpleMatrix b = new SimpleMatrix(barray);
-
-        // Solve for Rest of Coefficients
-        SimpleMatrix z = ainverse.mult(b.transpose());
+        // Constants of System of Equation
+        double b0 = endx - startx - startv - starta/2;
+        double b1 = endv - startv - starta;
+        double b2 = enda - starta;
 
-        this.a3 = z.get(0,0);
-        this.a4 = z.get(1,0);
-        this.a5 = z.get(2,0);
+        // Solve for Rest of Coefficients, Closed Form of {{10,-4,0.5},{-15,7,-1},{6,-3,0.5}} * b
+        this.a3 = 10 * b0 - 4 * b1 + 0.5 * b2;
+        this.a4 = -15 * b0 + 7 * b1 - b2;
+        this.a5 = 6 * b0 - 3 * b1 + 0.5 * b2;
         this.timeScaling = 1/time;
     }
     // Broken -> Generates Loops
@@ -75,15 +72,53 @@ public class Spline {
         this.a5 = z.get(5,0);
     }
 
+    /**
+     * Copies a0 through a5 into an array
+     */
+    void getCoefficients(double[] out, int offset){
+        out[offset] = a0;
+        out[offset+1] = a1;
+        out[offset+2] = a2;
+        out[offset+3] = a3;
+        out[offset+4] = a4;
+        out[offset+5] = a5;
+    }
+
+    double getTimeScaling(){
+        return timeScaling;
+    }
+
     public double position(double time){
         time = timeScaling * time;
-        double position = a0 + a1 * time + a2 * Math.pow(time,2) + a3 * Math.pow(time,3) + a4 * Math.pow(time,4) + a5 * Math.pow(time,5);
-        return position;
+        return ((((a5 * time + a4) * time + a3) * time + a2) * time + a1) * time + a0;
     }
 
     public double velocity(double time){
         time = timeScaling * time;
-        double velocity = a1 + 2 * a2 * time + 3 * a3 * Math.pow(time,2)+ 4 * a4 * Math.pow(time,3) + 5 * a5 * Math.pow(time,4);
-        return velocity;
+        return (((5 * a5 * time + 4 * a4) * time + 3 * a3) * time + 2 * a2) * time + a1;
+    }
+
+    public double acceleration(double time){
+        time = timeScaling * time;
+        return ((20 * a5 * time + 12 * a4) * time + 6 * a3) * time + 2 * a2;
+    }
+
+    public double jerk(double time){
+        time = timeScaling * time;
+        return (60 * a5 * time + 24 * a4) * time + 6 * a3;
+    }
+
+    /**
+     * Samples position and velocity at many times, scaling each time once
+     * @param outVel may be null if only positions are needed
+     */
+    public void evaluate(double[] times, double[] outPos, double[] outVel){
+        for (int i = 0; i < times.length; i++) {
+            double time = timeScaling * times[i];
+            outPos[i] = ((((a5 * time + a4) * time + a3) * time + a2) * time + a1) * time + a0;
+            if (outVel != null) {
+                outVel[i] = (((5 * a5 * time + 4 * a4) * time + 3 * a3) * time + 2 * a2) * time + a1;
+            }
+        }
     }
-}
\ No newline at end of file
+}
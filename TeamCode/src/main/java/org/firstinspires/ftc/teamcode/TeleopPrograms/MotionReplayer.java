@@ -3,19 +3,20 @@ package org.firstinspires.ftc.teamcode.TeleopPrograms;
 import com.acmerobotics.dashboard.config.Config;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
-import com.qualcomm.robotcore.util.ElapsedTime;
 
+import org.firstinspires.ftc.teamcode.RobotClasses.LogReader;
 import org.firstinspires.ftc.teamcode.RobotClasses.Logger;
 import org.firstinspires.ftc.teamcode.RobotClasses.Robot;
 
-import java.util.ArrayList;
-
 @TeleOp
 @Config
 public class MotionReplayer extends LinearOpMode {
 
     private Robot robot;
-    private ArrayList<double[]> data;
+    private double[] time = new double[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] theta = new double[0];
     private int counter = 0;
     private double curtime = 0;
     public static double fileNumber = Logger.getLastFileNumber();
@@ -25,22 +26,25 @@ public class MotionReplayer extends LinearOpMode {
         robot = new Robot(this, 9, 111, 0, false);
 
         waitForStart();
-        try {
-            data = robot.logger.replay("/sdcard/FIRST/robotLogs/RobotData" + fileNumber + ".csv");
+        try (LogReader reader = new LogReader(Logger.getLogPath(fileNumber))) {
+            time = reader.readColumn(Logger.SINCE_START);
+            x = reader.readColumn(Logger.X);
+            y = reader.readColumn(Logger.Y);
+            theta = reader.readColumn(Logger.THETA);
         } catch (Exception e) {
-            data = new ArrayList<>();
+            e.printStackTrace();
         }
 
         while (opModeIsActive()) {
-            if (data.size() > 0) {
-                curtime = data.get(counter)[0];
-                robot.drawRobot(data.get(counter)[1], data.get(counter)[2], data.get(counter)[3]);
+            if (time.length > 0) {
+                curtime = time[counter];
+                robot.drawRobot(x[counter], y[counter], theta[counter]);
                 robot.sendPacket();
-                sleep((long) curtime - (long) data.get(Math.max(0,counter-1))[0]);
-                counter = Math.min(counter+1, data.size()-1);
+                sleep((long) curtime - (long) time[Math.max(0,counter-1)]);
+                counter = Math.min(counter+1, time.length-1);
             } else {
                 stop();
             }
         }
     }
-}
\ No newline at end of file
+}
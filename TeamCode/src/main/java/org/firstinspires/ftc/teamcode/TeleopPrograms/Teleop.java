@@ -7,6 +7,8 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
+import org.firstinspires.ftc.teamcode.Hardware.FtcRobotHardware;
+import org.firstinspires.ftc.teamcode.Hardware.RobotHardware;
 import org.firstinspires.ftc.teamcode.RobotClasses.Logger;
 import org.firstinspires.ftc.teamcode.RobotClasses.Robot;
 
@@ -27,7 +29,7 @@ public class Teleop extends LinearOpMode {
     public void runOpMode() {
         double[] initialPosition = Logger.readPos();
         telemetry.addData("Starting Position", Arrays.toString(initialPosition)); telemetry.update();
-        robot = new Robot(this, initialPosition[0], initialPosition[1], Math.PI/2, true);
+        robot = new Robot(this, createHardware(), initialPosition[0], initialPosition[1], Math.PI/2, true);
         robot.logger.startLogging();
         robot.stacker.unClampStone();
         robot.stacker.goHome();
@@ -138,4 +140,11 @@ public class Teleop extends LinearOpMode {
 
         robot.logger.stopLogging();
     }
+
+    /**
+     * Hardware the robot runs on, overridden to run this op mode against a simulation
+     */
+    protected RobotHardware createHardware() {
+        return new FtcRobotHardware(this);
+    }
 }
@@ -8,11 +8,13 @@ import com.qualcomm.robotcore.util.ElapsedTime;
 import org.ejml.simple.SimpleMatrix;
 import org.firstinspires.ftc.teamcode.RobotClasses.Robot;
 import org.firstinspires.ftc.teamcode.iLQR.Optimizer;
+import org.firstinspires.ftc.teamcode.iLQR.RecedingHorizonController;
 
 @Autonomous @Disabled
 public class iLQRAutotest extends LinearOpMode {
 
     private ElapsedTime time = new ElapsedTime();
+    private boolean recedingHorizon = false; // true = replan with RecedingHorizonController instead of replaying one solve
 
     @Override
     public void runOpMode() throws InterruptedException {
@@ -35,6 +37,11 @@ public class iLQRAutotest extends LinearOpMode {
 
         Optimizer optim = new Optimizer(A,B,timestep);
 
+        if(recedingHorizon){
+            runRecedingHorizon(robot, optim, xf);
+            return;
+        }
+
         SimpleMatrix startx = new SimpleMatrix(x0);
         SimpleMatrix finalx = new SimpleMatrix(xf);
 
@@ -42,6 +49,9 @@ public class iLQRAutotest extends LinearOpMode {
         Klis = (SimpleMatrix[])a[0];
         dlis = (SimpleMatrix[])a[1];
         xlis = (SimpleMatrix[])a[2];
+        telemetry.addData("iLQR Iterations", optim.getIterations());
+        telemetry.addData("iLQR Solve Time (ms)", optim.getSolveTimeMs());
+        telemetry.update();
         double [][] uarr = {{0},{0}};
         SimpleMatrix u = new SimpleMatrix(uarr);
 
@@ -51,7 +61,7 @@ public class iLQRAutotest extends LinearOpMode {
             if(counter < (int)(seconds/timestep)-1){
                 double[][] xarr = {{robot.drivetrain.x}, {robot.drivetrain.y}};
                 SimpleMatrix x = new SimpleMatrix(xarr);
-                u = ((Klis[counter].scale(1)).mult(xlis[counter].minus(x)).negative()).plus(dlis[counter].scale(0));
+                u = Klis[counter].mult(x.minus(xlis[counter])).plus(dlis[counter]);
 //                robot.drivetrain.setGlobalControls(u.get(0,0)/64,u.get(1,0)/64,0);
                 robot.drivetrain.setTargetPoint(xlis[counter].get(0,0),xlis[counter].get(1,0),0);
 
@@ -69,4 +79,26 @@ public class iLQRAutotest extends LinearOpMode {
 
         }
     }
+
+    /**
+     * Replans from the current odometry pose on a worker thread while driving the latest plan
+     */
+    private void runRecedingHorizon(Robot robot, Optimizer optim, double[][] xf){
+        RecedingHorizonController mpc = new RecedingHorizonController(optim, 1, 0.05);
+        double[] target = new double[2];
+        mpc.start(robot.drivetrain.x, robot.drivetrain.y, xf[0][0], xf[1][0]);
+
+        while(opModeIsActive()){
+            mpc.setPose(robot.drivetrain.x, robot.drivetrain.y);
+            if(mpc.getTargetPoint(target)){
+                robot.drivetrain.setTargetPoint(target[0], target[1], 0);
+            }
+            telemetry.addData("Replans", mpc.getReplans());
+            telemetry.addData("Solve Time (ms)", mpc.getLastSolveTimeMs());
+            telemetry.update();
+
+            robot.update();
+        }
+        mpc.stop();
+    }
 }
@@ -0,0 +1,16 @@
+package org.firstinspires.ftc.teamcode.iLQR;
+
+/**
+ * Source of obstacle cost and its derivatives for the optimizer, either the exact
+ * {@linkplain Field} or a precomputed {@linkplain FieldCostTable}
+ */
+public interface CostField {
+
+    double ObstacleCost(double x, double y);
+
+    /**
+     * Writes the obstacle cost gradient and Hessian at (x, y) into q[qOffset] and Q[QOffset]
+     * @return obstacle cost at (x, y)
+     */
+    double ObstacleCostDerivatives(double x, double y, double[] q, int qOffset, double[] Q, int QOffset);
+}
@@ -1,14 +1,28 @@
 package org.firstinspires.ftc.teamcode.iLQR;
 
-import org.ejml.simple.SimpleEVD;
 import org.ejml.simple.SimpleMatrix;
 
 
 import java.util.ArrayList;
 
-public class Field {
+/**
+ * Obstacles on the 144x144 field
+ * <p>Obstacles are bucketed into a uniform grid of {@link #cellSize} inch cells, each cell listing
+ * the obstacles whose range reaches it, so a query only checks the obstacles near the point.
+ * Points off the field use the nearest edge cell. The grid is rebuilt on the next query after an
+ * obstacle is added.
+ */
+public class Field implements CostField {
     private ArrayList<Obstacle> obstacles = new ArrayList<Obstacle>();
 
+    // Spatial Index
+    private static final double fieldSize = 144;
+    private static final double cellSize = 12;
+    private static final int cells = (int) Math.ceil(fieldSize/cellSize);
+    private Obstacle[] cellObstacles = new Obstacle[0];
+    private final int[] cellStart = new int[cells*cells+1];
+    private boolean indexDirty = true;
+
     public Field(ArrayList<Obstacle> obstacles){
         this.obstacles = obstacles;
 
@@ -16,40 +30,148 @@ public class Field {
 
     public void addObstacle(Obstacle obst){
         obstacles.add(obst);
+        indexDirty = true;
     }
     public SimpleMatrix ObstacleCostHessian(Point2D robotPos){
-        double[][] Qarr = {{0,0},{0,0}};
-        SimpleMatrix Q = new SimpleMatrix(Qarr);
-        for (int i = 0; i < obstacles.size(); i++) {
-            if(obstacles.get(i).isInRange(robotPos)){
-                 Q = Q.plus(obstacles.get(i).computeHessian(robotPos));
+        double[] Q = new double[4];
+        ObstacleCostHessian(robotPos.getX(), robotPos.getY(), Q, 0);
+        return new SimpleMatrix(2, 2, true, Q);
+
+    }
+    public SimpleMatrix ObstacleCostGradient(Point2D robotPos){
+        double[] q = new double[2];
+        ObstacleCostGradient(robotPos.getX(), robotPos.getY(), q, 0);
+        return new SimpleMatrix(2, 1, true, q);
+
+    }
+    public double ObstacleCost(Point2D robotPos){
+        return ObstacleCost(robotPos.getX(), robotPos.getY());
+
+    }
+
+    /**
+     * Writes the summed obstacle cost Hessian at (x, y) into the row-major 2x2 matrix at Q[offset]
+     */
+    public void ObstacleCostHessian(double x, double y, double[] Q, int offset){
+        Mat2.set(Q, offset, 0, 0, 0, 0);
+        int cell = cellIndex(x, y);
+        for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+            if(cellObstacles[i].isInRange(x, y)){
+                cellObstacles[i].addHessian(x, y, Q, offset);
             }
 
         }
-        return Q;
 
     }
-    public SimpleMatrix ObstacleCostGradient(Point2D robotPos){
-        double[][] qarr = {{0},{0}};
-        SimpleMatrix q = new SimpleMatrix(qarr);
-        for (int i = 0; i < obstacles.size(); i++) {
-            if(obstacles.get(i).isInRange(robotPos)){
-                q = q.plus(obstacles.get(i).computeGradient(robotPos));
+
+    /**
+     * Writes the summed obstacle cost gradient at (x, y) into the 2-vector at q[offset]
+     */
+    public void ObstacleCostGradient(double x, double y, double[] q, int offset){
+        q[offset] = 0;
+        q[offset+1] = 0;
+        int cell = cellIndex(x, y);
+        for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+            if(cellObstacles[i].isInRange(x, y)){
+                cellObstacles[i].addGradient(x, y, q, offset);
             }
 
         }
-        return q;
 
     }
-    public double ObstacleCost(Point2D robotPos){
+    @Override
+    public double ObstacleCost(double x, double y){
         double cost = 0;
-        for (int i = 0; i < obstacles.size(); i++) {
-            if(obstacles.get(i).isInRange(robotPos)){
-                cost += obstacles.get(i).computeCost(robotPos);
+        int cell = cellIndex(x, y);
+        for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+            if(cellObstacles[i].isInRange(x, y)){
+                cost += cellObstacles[i].computeCost(x, y);
+            }
+
+        }
+        return cost;
+
+    }
+
+    /**
+     * Writes the summed obstacle cost gradient and Hessian at (x, y) into q[qOffset] and Q[QOffset]
+     * in one pass, evaluating each nearby obstacle's exponential once
+     * @return summed obstacle cost at (x, y)
+     */
+    @Override
+    public double ObstacleCostDerivatives(double x, double y, double[] q, int qOffset, double[] Q, int QOffset){
+        double cost = 0;
+        q[qOffset] = 0;
+        q[qOffset+1] = 0;
+        Mat2.set(Q, QOffset, 0, 0, 0, 0);
+        int cell = cellIndex(x, y);
+        for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+            if(cellObstacles[i].isInRange(x, y)){
+                cost += cellObstacles[i].addDerivatives(x, y, q, qOffset, Q, QOffset);
             }
 
         }
         return cost;
 
     }
+
+    /**
+     * Hash of every obstacle's parameters, used to tell whether a saved {@linkplain FieldCostTable} is stale
+     */
+    public long signature(){
+        long hash = 17;
+        for (int i = 0; i < obstacles.size(); i++) {
+            hash = 31*hash + obstacles.get(i).signature();
+        }
+        return hash;
+    }
+
+    private int cellIndex(double x, double y){
+        if(indexDirty){
+            buildIndex();
+        }
+        return cellRow(y)*cells + cellColumn(x);
+    }
+
+    private static int cellColumn(double x){
+        return Math.max(0, Math.min(cells-1, (int) Math.floor(x/cellSize)));
+    }
+
+    private static int cellRow(double y){
+        return cellColumn(y);
+    }
+
+    /**
+     * Buckets every obstacle into each cell its range's bounding box touches, stored as one array
+     * with per-cell start offsets
+     */
+    private void buildIndex(){
+        int[] counts = new int[cells*cells];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < obstacles.size(); i++) {
+                Obstacle obstacle = obstacles.get(i);
+                double r = obstacle.getInfluenceRadius();
+                double ox = obstacle.getPosition().getX();
+                double oy = obstacle.getPosition().getY();
+                for (int row = cellRow(oy-r); row <= cellRow(oy+r); row++) {
+                    for (int col = cellColumn(ox-r); col <= cellColumn(ox+r); col++) {
+                        int cell = row*cells + col;
+                        if(pass == 0){
+                            counts[cell]++;
+                        } else{
+                            cellObstacles[cellStart[cell] + counts[cell]++] = obstacle;
+                        }
+                    }
+                }
+            }
+            if(pass == 0){
+                for (int cell = 0; cell < counts.length; cell++) {
+                    cellStart[cell+1] = cellStart[cell] + counts[cell];
+                    counts[cell] = 0;
+                }
+                cellObstacles = new Obstacle[cellStart[counts.length]];
+            }
+        }
+        indexDirty = false;
+    }
 }
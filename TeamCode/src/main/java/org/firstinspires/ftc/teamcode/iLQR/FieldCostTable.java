@@ -0,0 +1,194 @@
+package org.firstinspires.ftc.teamcode.iLQR;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Static {@linkplain Field} baked into a grid of obstacle cost, gradient and Hessian values
+ * <p>Each grid node stores cost, gradient x, gradient y, Hessian xx, xy and yy next to each other,
+ * and queries bilinearly interpolate the four surrounding nodes, so optimizer inner loops do no
+ * exponentials. Points off the field are clamped to the edge of the grid. Obstacle cost drops to
+ * zero at the edge of each obstacle's range, so within one grid cell of that edge the table blends
+ * the step instead of reproducing it.
+ * <p>Tables are saved with the field's {@linkplain Field#signature()} and only loaded back when the
+ * obstacles and resolution still match, otherwise the table is rebuilt and saved again.
+ */
+public class FieldCostTable implements CostField {
+
+    private static final int MAGIC = 0x46434F53; // "FCOS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int CHANNELS = 6;
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final double fieldSize = 144;
+
+    private final double resolution;
+    private final double inverseResolution;
+    private final int nodes;
+    private final double maxNode;
+    private final long signature;
+    private final double[] table;
+
+    /**
+     * Builds the table by sampling the exact field at every node
+     * @param resolution grid spacing (in)
+     */
+    public FieldCostTable(Field field, double resolution) {
+        this(resolution, field.signature());
+        double[] q = new double[2];
+        double[] Q = new double[4];
+        for (int row = 0; row < nodes; row++) {
+            for (int col = 0; col < nodes; col++) {
+                int i = (row*nodes + col)*CHANNELS;
+                table[i] = field.ObstacleCostDerivatives(col*resolution, row*resolution, q, 0, Q, 0);
+                table[i+1] = q[0];
+                table[i+2] = q[1];
+                table[i+3] = Q[0];
+                table[i+4] = Q[1];
+                table[i+5] = Q[3];
+            }
+        }
+    }
+
+    private FieldCostTable(double resolution, long signature) {
+        this.resolution = resolution;
+        this.signature = signature;
+        inverseResolution = 1/resolution;
+        nodes = (int) Math.ceil(fieldSize/resolution) + 1;
+        maxNode = nodes - 1;
+        table = new double[nodes*nodes*CHANNELS];
+    }
+
+    /**
+     * Loads a saved table for the field, or builds and saves one if the file is missing or stale
+     */
+    public static FieldCostTable loadOrBuild(Field field, double resolution, String path) {
+        try {
+            FieldCostTable table = load(path);
+            if (table.signature == field.signature() && table.resolution == resolution) {
+                return table;
+            }
+        } catch (IOException e) {
+            System.out.println("no cost table at " + path + ", building");
+        }
+
+        FieldCostTable table = new FieldCostTable(field, resolution);
+        try {
+            table.save(path);
+        } catch (IOException e) {e.printStackTrace();}
+        return table;
+    }
+
+    /**
+     * Reads a table written by {@link #save}
+     */
+    public static FieldCostTable load(String path) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(path, "r").getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(BYTE_ORDER);
+            read(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a cost table: " + path);
+            }
+            double resolution = header.getDouble();
+            long signature = header.getLong();
+            FieldCostTable table = new FieldCostTable(resolution, signature);
+            if (header.getInt() != table.nodes || channel.size() != HEADER_BYTES + table.table.length*8L) {
+                throw new IOException("Corrupt cost table: " + path);
+            }
+
+            ByteBuffer data = ByteBuffer.allocateDirect(table.table.length*8).order(BYTE_ORDER);
+            read(channel, data, HEADER_BYTES);
+            data.flip();
+            data.asDoubleBuffer().get(table.table);
+            return table;
+        }
+    }
+
+    /**
+     * Writes the table to a file, creating parent directories as needed
+     */
+    public void save(String path) throws IOException {
+        File file = new File(path);
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_BYTES + table.length*8).order(BYTE_ORDER);
+            buffer.putInt(MAGIC).putInt(VERSION).putDouble(resolution).putLong(signature).putInt(nodes).putInt(0);
+            buffer.asDoubleBuffer().put(table);
+            buffer.position(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    @Override
+    public double ObstacleCost(double x, double y) {
+        double gx = clamp(x*inverseResolution);
+        double gy = clamp(y*inverseResolution);
+        int col = cell(gx);
+        int row = cell(gy);
+        int i = (row*nodes + col)*CHANNELS;
+        int above = i + nodes*CHANNELS;
+        double fx = gx - col;
+        double fy = gy - row;
+        double bottom = table[i] + fx*(table[i+CHANNELS] - table[i]);
+        double top = table[above] + fx*(table[above+CHANNELS] - table[above]);
+        return bottom + fy*(top - bottom);
+    }
+
+    @Override
+    public double ObstacleCostDerivatives(double x, double y, double[] q, int qOffset, double[] Q, int QOffset) {
+        double gx = clamp(x*inverseResolution);
+        double gy = clamp(y*inverseResolution);
+        int col = cell(gx);
+        int row = cell(gy);
+        int i = (row*nodes + col)*CHANNELS;
+        int above = i + nodes*CHANNELS;
+
+        // Bilinear Weights of the Four Corners
+        double fx = gx - col;
+        double fy = gy - row;
+        double w11 = fx*fy;
+        double w10 = fx - w11;
+        double w01 = fy - w11;
+        double w00 = 1 - fx - w01;
+
+        double[] t = table;
+        int j = i + CHANNELS;
+        int k = above + CHANNELS;
+        q[qOffset] = w00*t[i+1] + w10*t[j+1] + w01*t[above+1] + w11*t[k+1];
+        q[qOffset+1] = w00*t[i+2] + w10*t[j+2] + w01*t[above+2] + w11*t[k+2];
+        double cross = w00*t[i+4] + w10*t[j+4] + w01*t[above+4] + w11*t[k+4];
+        Mat2.set(Q, QOffset, w00*t[i+3] + w10*t[j+3] + w01*t[above+3] + w11*t[k+3], cross, cross,
+                w00*t[i+5] + w10*t[j+5] + w01*t[above+5] + w11*t[k+5]);
+        return w00*t[i] + w10*t[j] + w01*t[above] + w11*t[k];
+    }
+
+    /**
+     * Clamps a grid coordinate to the table
+     */
+    private double clamp(double g) {
+        return g < 0 ? 0 : g > maxNode ? maxNode : g;
+    }
+
+    /**
+     * Lower node of the cell containing a clamped grid coordinate
+     */
+    private int cell(double g) {
+        return Math.min((int) g, nodes - 2);
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of cost table");
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcode.iLQR;
+
+/**
+ * Fixed-size 2x2 matrix and 2-vector kernels on primitive arrays, used instead of SimpleMatrix
+ * in the optimizer's inner loops so nothing is allocated per operation.
+ * <p>Matrices are 4 doubles in row-major order starting at an offset, vectors are 2 doubles.
+ * Every kernel reads all of its inputs before writing, so outputs may alias inputs.
+ */
+final class Mat2 {
+
+    private Mat2() {}
+
+    static void set(double[] m, int mo, double m00, double m01, double m10, double m11) {
+        m[mo] = m00;
+        m[mo+1] = m01;
+        m[mo+2] = m10;
+        m[mo+3] = m11;
+    }
+
+    static void identity(double[] m, int mo, double scale) {
+        set(m, mo, scale, 0, 0, scale);
+    }
+
+    /**
+     * out = a + b, over n elements (2 for vectors, 4 for matrices)
+     */
+    static void add(double[] a, int ao, double[] b, int bo, double[] out, int oo, int n) {
+        for (int i = 0; i < n; i++) {
+            out[oo+i] = a[ao+i] + b[bo+i];
+        }
+    }
+
+    /**
+     * out = a - b, over n elements (2 for vectors, 4 for matrices)
+     */
+    static void sub(double[] a, int ao, double[] b, int bo, double[] out, int oo, int n) {
+        for (int i = 0; i < n; i++) {
+            out[oo+i] = a[ao+i] - b[bo+i];
+        }
+    }
+
+    /**
+     * a = a * s, over n elements (2 for vectors, 4 for matrices)
+     */
+    static void scale(double[] a, int ao, double s, int n) {
+        for (int i = 0; i < n; i++) {
+            a[ao+i] *= s;
+        }
+    }
+
+    /**
+     * out = a * b
+     */
+    static void mult(double[] a, int ao, double[] b, int bo, double[] out, int oo) {
+        double o00 = a[ao] * b[bo] + a[ao+1] * b[bo+2];
+        double o01 = a[ao] * b[bo+1] + a[ao+1] * b[bo+3];
+        double o10 = a[ao+2] * b[bo] + a[ao+3] * b[bo+2];
+        double o11 = a[ao+2] * b[bo+1] + a[ao+3] * b[bo+3];
+        set(out, oo, o00, o01, o10, o11);
+    }
+
+    /**
+     * out = a^T * b
+     */
+    static void multTransA(double[] a, int ao, double[] b, int bo, double[] out, int oo) {
+        double o00 = a[ao] * b[bo] + a[ao+2] * b[bo+2];
+        double o01 = a[ao] * b[bo+1] + a[ao+2] * b[bo+3];
+        double o10 = a[ao+1] * b[bo] + a[ao+3] * b[bo+2];
+        double o11 = a[ao+1] * b[bo+1] + a[ao+3] * b[bo+3];
+        set(out, oo, o00, o01, o10, o11);
+    }
+
+    /**
+     * out = a * v
+     */
+    static void multVec(double[] a, int ao, double[] v, int vo, double[] out, int oo) {
+        double o0 = a[ao] * v[vo] + a[ao+1] * v[vo+1];
+        double o1 = a[ao+2] * v[vo] + a[ao+3] * v[vo+1];
+        out[oo] = o0;
+        out[oo+1] = o1;
+    }
+
+    /**
+     * out = a^T * v
+     */
+    static void multTransAVec(double[] a, int ao, double[] v, int vo, double[] out, int oo) {
+        double o0 = a[ao] * v[vo] + a[ao+2] * v[vo+1];
+        double o1 = a[ao+1] * v[vo] + a[ao+3] * v[vo+1];
+        out[oo] = o0;
+        out[oo+1] = o1;
+    }
+
+    /**
+     * v^T * m * v
+     */
+    static double quadForm(double[] m, int mo, double[] v, int vo) {
+        double v0 = v[vo];
+        double v1 = v[vo+1];
+        return v0 * (m[mo] * v0 + m[mo+1] * v1) + v1 * (m[mo+2] * v0 + m[mo+3] * v1);
+    }
+
+    static double det(double[] a, int ao) {
+        return a[ao] * a[ao+3] - a[ao+1] * a[ao+2];
+    }
+
+    /**
+     * out = a^-1
+     * @return false if a is singular, out is left unchanged
+     */
+    static boolean invert(double[] a, int ao, double[] out, int oo) {
+        double det = det(a, ao);
+        if (det == 0) {
+            return false;
+        }
+        double inv = 1 / det;
+        set(out, oo, a[ao+3] * inv, -a[ao+1] * inv, -a[ao+2] * inv, a[ao] * inv);
+        return true;
+    }
+}
@@ -23,34 +23,97 @@ public class Obstacle {
         beta = 1/(Math.pow(obstacleRadius,2));
     }
     public double computeCost(Point2D robotPos){
-        double cost = alpha*Math.pow(Math.E, -beta*robotPos.distance(position));
+        return computeCost(robotPos.getX(), robotPos.getY());
+    }
+    public double computeCost(double x, double y){
+        double cost = alpha*Math.exp(-beta*distance(x, y));
         return cost;
     }
     public SimpleMatrix computeGradient(Point2D robotPos){
-        double cost = computeCost(robotPos);
-        double[][] garr = {{2*beta *(position.getX()-robotPos.getX())},{2*beta*(position.getY()-robotPos.getY())}};
-        SimpleMatrix g = new SimpleMatrix(garr);
-        g = g.scale(cost);
-        return g;
+        double[] g = new double[2];
+        addGradient(robotPos.getX(), robotPos.getY(), g, 0);
+        return new SimpleMatrix(2, 1, true, g);
     }
     public SimpleMatrix computeHessian(Point2D robotPos){
-        double cost = computeCost(robotPos);
-        double[][] Harr = {{4*(Math.pow(beta,2))*(Math.pow(robotPos.getX()-position.getX(),2))-2*beta,
-                            4*(Math.pow(beta,2))*(robotPos.getX()-position.getX())*(robotPos.getY()-position.getY())},
-                           {4*(Math.pow(beta,2))*(robotPos.getX()-position.getX())*(robotPos.getY()-position.getY()),
-                                   4*(Math.pow(beta,2))*(Math.pow(robotPos.getY()-position.getY(),2))-2*beta}};
+        double[] H = new double[4];
+        addHessian(robotPos.getX(), robotPos.getY(), H, 0);
+        return new SimpleMatrix(2, 2, true, H);
+    }
 
-        SimpleMatrix H = new SimpleMatrix(Harr);
-        H = H.scale(cost);
-        return H;
+    /**
+     * Adds the cost gradient at (x, y) to the 2-vector at g[offset]
+     */
+    public void addGradient(double x, double y, double[] g, int offset){
+        double cost = computeCost(x, y);
+        g[offset] += cost*2*beta*(position.getX()-x);
+        g[offset+1] += cost*2*beta*(position.getY()-y);
     }
-    public boolean isInRange(Point2D robotPos){
-        if(robotPos.distance(position)<=(obstacleRadius+range)){
-            return true;
-        }
-        else{
-            return false;
+
+    /**
+     * Adds the cost Hessian at (x, y) to the row-major 2x2 matrix at H[offset]
+     */
+    public void addHessian(double x, double y, double[] H, int offset){
+        double cost = computeCost(x, y);
+        double dx = x-position.getX();
+        double dy = y-position.getY();
+        double fourBetaSq = 4*beta*beta;
+        double cross = cost*fourBetaSq*dx*dy;
+        H[offset] += cost*(fourBetaSq*dx*dx-2*beta);
+        H[offset+1] += cross;
+        H[offset+2] += cross;
+        H[offset+3] += cost*(fourBetaSq*dy*dy-2*beta);
+    }
+
+    /**
+     * Adds the cost gradient and Hessian at (x, y) to g[go] and H[ho], evaluating the exponential once
+     * @return cost at (x, y)
+     */
+    public double addDerivatives(double x, double y, double[] g, int go, double[] H, int ho){
+        double cost = computeCost(x, y);
+        double dx = x-position.getX();
+        double dy = y-position.getY();
+        double twoBeta = 2*beta;
+        double fourBetaSq = twoBeta*twoBeta;
+        double cross = cost*fourBetaSq*dx*dy;
+        g[go] -= cost*twoBeta*dx;
+        g[go+1] -= cost*twoBeta*dy;
+        H[ho] += cost*(fourBetaSq*dx*dx-twoBeta);
+        H[ho+1] += cross;
+        H[ho+2] += cross;
+        H[ho+3] += cost*(fourBetaSq*dy*dy-twoBeta);
+        return cost;
+    }
+
+    /**
+     * Gets the distance from the obstacle center beyond which cost is not counted
+     */
+    double getInfluenceRadius(){
+        return obstacleRadius+range;
+    }
+
+    Point2D getPosition(){
+        return position;
+    }
+
+    long signature(){
+        double[] parameters = {position.getX(), position.getY(), obstacleRadius, alpha, beta, range};
+        long hash = 17;
+        for (double p : parameters) {
+            hash = 31*hash + Double.doubleToLongBits(p);
         }
+        return hash;
     }
 
+    public boolean isInRange(Point2D robotPos){
+        return isInRange(robotPos.getX(), robotPos.getY());
+    }
+    public boolean isInRange(double x, double y){
+        return distance(x, y)<=(obstacleRadius+range);
+    }
+
+    private double distance(double x, double y){
+        double dx = position.getX()-x;
+        double dy = position.getY()-y;
+        return Math.sqrt(dx*dx+dy*dy);
+    }
 }
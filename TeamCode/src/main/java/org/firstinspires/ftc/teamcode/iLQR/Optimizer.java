@@ -5,13 +5,81 @@ import org.ejml.simple.SimpleMatrix;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.add;
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.mult;
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.multTransA;
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.multTransAVec;
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.multVec;
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.scale;
+import static org.firstinspires.ftc.teamcode.iLQR.Mat2.sub;
 
+
+/**
+ * iLQR trajectory optimizer for the 2 state (x, y), 2 control system x' = Ax + Bu
+ * <p>Cost is the sum over the trajectory of (xf - x)^T Q (xf - x) plus obstacle cost at every
+ * state, and u^T R u for every control. Each iteration linearizes about the current trajectory,
+ * solves the backward pass with Levenberg-Marquardt regularization on Q_uu, then does a
+ * backtracking (Armijo) line search on the feedforward term of the forward rollout. Iterations
+ * stop when the relative cost decrease falls below {@link #costConvergence}.
+ * <p>All intermediates are primitive arrays worked on in place with the {@linkplain Mat2} kernels.
+ * Per-timestep matrices are stored back to back: 4 doubles per matrix and 2 per vector.
+ */
 public class Optimizer {
     private double timestep;
-    private SimpleMatrix A;
-    private SimpleMatrix B;
-    private final double costConvergence = 10;
+    private double[] A = new double[4];
+    private double[] B = new double[4];
+    private final double costConvergence = 1e-4; // relative decrease
+    private final int maxIterations = 100;
     private Field field;
+    private CostField costField;
+
+    // Line Search
+    private final double[] alphas = {1, 0.5, 0.25, 0.125, 0.0625, 0.03125, 0.015625, 0.0078125};
+    private final double armijoFactor = 1e-4;
+
+    // Regularization
+    private final double muMin = 1e-6;
+    private final double muMax = 1e10;
+    private final double muFactor = 10;
+    private double mu = 0;
+
+    // Cost Weights
+    private final double[] Q = new double[4];
+    private final double[] R = new double[4];
+
+    // Backward Pass Scratch
+    private final double[] Vx = new double[2];
+    private final double[] Vxx = new double[4];
+    private final double[] Qx = new double[2];
+    private final double[] Qu = new double[2];
+    private final double[] Qxx = new double[4];
+    private final double[] Qux = new double[4];
+    private final double[] Quu = new double[4];
+    private final double[] QuuInv = new double[4];
+    private final double[] tmpv = new double[2];
+    private final double[] tmpv2 = new double[2];
+    private final double[] tmpm = new double[4];
+    private final double[] tmpm2 = new double[4];
+    private final double[] end = new double[2];
+    private double expectedLinear;
+    private double expectedQuadratic;
+
+    // Trajectory Storage, Reallocated Only When the Horizon Changes
+    private int horizon = -1;
+    private double[] lxxlis;
+    private double[] lxlis;
+    private double[] Klis;
+    private double[] dlis;
+    private double[] ulis;
+    private double[] xlist;
+    private double[] newulis;
+    private double[] newxlist;
+
+    // Metrics From the Last Solve
+    private int iterations;
+    private double solveTimeMs;
+    private final double[] costHistory = new double[maxIterations+1];
+    private final double[] iterationTimesMs = new double[maxIterations];
 
     public Optimizer(SimpleMatrix A, SimpleMatrix B, double timestep){
         //create field with all obstacles
@@ -26,123 +94,322 @@ public class Optimizer {
         Obstacle neutralbridgeblue = new Obstacle(new Point2D(87,72),9,50,2);
 
         field = new Field(new ArrayList<>(Arrays.asList(alliancebotredparked,alliancebotblueparked,alliancebotredstart,alliancebotbluestart,neutralbridgered,neutralbridgecenter,neutralbridgeblue)));
+        costField = field;
 
         //get system information
         //get timestep
         this.timestep = timestep;
-        this.A = A;
-        this.B = B;
+        Mat2.set(this.A, 0, A.get(0,0), A.get(0,1), A.get(1,0), A.get(1,1));
+        Mat2.set(this.B, 0, B.get(0,0), B.get(0,1), B.get(1,0), B.get(1,1));
+
+        Mat2.identity(Q, 0, 30);
+        Mat2.identity(R, 0, 1);
     }
-    public Object[] solveForControls(SimpleMatrix A, SimpleMatrix B, SimpleMatrix[] Q, SimpleMatrix[] R,
-                                 SimpleMatrix[] q, SimpleMatrix[] r, SimpleMatrix Qf, SimpleMatrix qf){
-        int H = Q.length;
-        SimpleMatrix V_x = qf;
-        SimpleMatrix V_xx = Qf;
-        SimpleMatrix [] K = new SimpleMatrix[H];
-        SimpleMatrix [] d = new SimpleMatrix[H];
-        for(int i = 0; i<H; i++){
-            // Calculating linear approximations of the cost to go function
-            SimpleMatrix Q_x = q[H-i-1].plus(A.transpose().mult(V_x));
-            SimpleMatrix Q_u = r[H-i-1].plus(B.transpose().mult(V_x));
-
-            //Quadratic Approximations of the cost to go function
-            SimpleMatrix Q_xx = Q[H-i-1].plus(A.transpose().mult(V_xx.mult(A)));
-            //l_ux is zero since there are no cross terms
-            //Q_ux = l_ux[t] + np.dot(B.T, np.dot(V_xx, A))
-            SimpleMatrix Q_ux = B.transpose().mult(V_xx.mult(A));
-            SimpleMatrix Q_uu = R[H-i-1].plus(B.transpose().mult(V_xx.mult(B)));
-
-            //finding inverse of the second partial with respect to control u
-            SimpleMatrix Q_uu_inv = Q_uu.invert();
-
-            //5b) k = -np.dot(Q_uu^-1, Q_u)
-            d[H-i-1] = (Q_uu_inv.mult(Q_u)).negative();
-            K[H-i-1] = (Q_uu_inv.mult(Q_ux)).negative();
-
-            //updating cost to go approximations
-            V_x = Q_x.minus(K[H-i-1].transpose().mult(Q_uu.mult(d[H-i-1])));
-            // 6c) V_xx = Q_xx - np.dot(-K^T, np.dot(Q_uu, K))
-            V_xx = Q_xx.minus(K[H-i-1].transpose().mult(Q_uu.mult(K[H-i-1])));
 
+
+    /**
+     * Uses a precomputed {@linkplain FieldCostTable} of the field for obstacle cost, loaded from
+     * path if it is up to date, otherwise built and saved there
+     * @param resolution grid spacing of the table (in)
+     */
+    public void useCostTable(double resolution, String path){
+        costField = FieldCostTable.loadOrBuild(field, resolution, path);
+    }
+
+    /**
+     * Goes back to evaluating every obstacle exactly
+     */
+    public void useExactField(){
+        costField = field;
+    }
+
+    /**
+     * Backward pass about the current trajectory, fills in gains K and feedforward terms d
+     * @return false if Q_uu was not positive definite even after regularization
+     */
+    private boolean backwardPass(int H){
+        expectedLinear = 0;
+        expectedQuadratic = 0;
+
+        // Terminal Cost to Go
+        System.arraycopy(lxlis, 2*H, Vx, 0, 2);
+        System.arraycopy(lxxlis, 4*H, Vxx, 0, 4);
+
+        for(int t = H-1; t>=0; t--){
+            int m = 4*t;
+            int v = 2*t;
+
+            // Q_x = l_x + A^T V_x, Q_u = 2Ru + B^T V_x
+            multTransAVec(A, 0, Vx, 0, Qx, 0);
+            add(lxlis, v, Qx, 0, Qx, 0, 2);
+            multVec(R, 0, ulis, v, Qu, 0);
+            scale(Qu, 0, 2, 2);
+            multTransAVec(B, 0, Vx, 0, tmpv, 0);
+            add(Qu, 0, tmpv, 0, Qu, 0, 2);
+
+            // Q_xx = l_xx + A^T V_xx A, Q_ux = B^T V_xx A, Q_uu = 2R + B^T V_xx B
+            mult(Vxx, 0, A, 0, tmpm, 0);
+            multTransA(A, 0, tmpm, 0, Qxx, 0);
+            add(lxxlis, m, Qxx, 0, Qxx, 0, 4);
+            multTransA(B, 0, tmpm, 0, Qux, 0);
+            mult(Vxx, 0, B, 0, tmpm, 0);
+            multTransA(B, 0, tmpm, 0, Quu, 0);
+            add(R, 0, Quu, 0, Quu, 0, 4);
+            add(R, 0, Quu, 0, Quu, 0, 4);
+
+            // Regularize and Invert Q_uu, Must be Positive Definite
+            Mat2.set(tmpm, 0, Quu[0] + mu, Quu[1], Quu[2], Quu[3] + mu);
+            if(tmpm[0] <= 0 || Mat2.det(tmpm, 0) <= 0 || !Mat2.invert(tmpm, 0, QuuInv, 0)){
+                return false;
+            }
+
+            // d = -Q_uu^-1 Q_u, K = -Q_uu^-1 Q_ux
+            multVec(QuuInv, 0, Qu, 0, dlis, v);
+            scale(dlis, v, -1, 2);
+            mult(QuuInv, 0, Qux, 0, Klis, m);
+            scale(Klis, m, -1, 4);
+
+            // Expected Cost Reduction Terms
+            expectedLinear += dlis[v] * Qu[0] + dlis[v+1] * Qu[1];
+            expectedQuadratic += 0.5 * Mat2.quadForm(Quu, 0, dlis, v);
+
+            // V_x = Q_x + K^T Q_uu d + K^T Q_u + Q_ux^T d
+            multVec(Quu, 0, dlis, v, tmpv, 0);
+            add(tmpv, 0, Qu, 0, tmpv, 0, 2);
+            multTransAVec(Klis, m, tmpv, 0, tmpv, 0);
+            multTransAVec(Qux, 0, dlis, v, tmpv2, 0);
+            add(Qx, 0, tmpv, 0, Vx, 0, 2);
+            add(Vx, 0, tmpv2, 0, Vx, 0, 2);
+
+            // V_xx = Q_xx + K^T Q_uu K + K^T Q_ux + Q_ux^T K
+            mult(Quu, 0, Klis, m, tmpm, 0);
+            add(tmpm, 0, Qux, 0, tmpm, 0, 4);
+            multTransA(Klis, m, tmpm, 0, tmpm, 0);
+            multTransA(Qux, 0, Klis, m, tmpm2, 0);
+            add(Qxx, 0, tmpm, 0, Vxx, 0, 4);
+            add(Vxx, 0, tmpm2, 0, Vxx, 0, 4);
+
+            // Keep V_xx Symmetric
+            double offDiagonal = 0.5 * (Vxx[1] + Vxx[2]);
+            Vxx[1] = offDiagonal;
+            Vxx[2] = offDiagonal;
         }
-        return new Object[]{K, d};
+        return true;
+    }
+
+    /**
+     * Rolls the system forward with u = u_nominal + alpha * d + K(x - x_nominal)
+     * @return cost of the new trajectory in newxlist/newulis
+     */
+    private double forwardPass(int H, double alpha){
+        double cost = 0;
+        newxlist[0] = xlist[0];
+        newxlist[1] = xlist[1];
+        for(int t = 0; t < H; t++){
+            int m = 4*t;
+            int v = 2*t;
+
+            sub(newxlist, v, xlist, v, tmpv, 0, 2);
+            multVec(Klis, m, tmpv, 0, tmpv, 0);
+            newulis[v] = ulis[v] + alpha * dlis[v] + tmpv[0];
+            newulis[v+1] = ulis[v+1] + alpha * dlis[v+1] + tmpv[1];
 
+            // x = Ax + Bu
+            multVec(A, 0, newxlist, v, tmpv, 0);
+            multVec(B, 0, newulis, v, tmpv2, 0);
+            add(tmpv, 0, tmpv2, 0, newxlist, v+2, 2);
+
+            cost += stateCost(newxlist, v) + Mat2.quadForm(R, 0, newulis, v);
+        }
+        return cost + stateCost(newxlist, 2*H);
     }
-    public Object[] optimizePath(SimpleMatrix startPoint, SimpleMatrix endxPoint, double seconds){
-        SimpleMatrix Q = SimpleMatrix.identity(2).scale(30);
-        SimpleMatrix R = SimpleMatrix.identity(2).scale(1);
 
-        double[][] qarr = {{0},{0}};
-        SimpleMatrix q = new SimpleMatrix(qarr);
+    /**
+     * Cost of the nominal trajectory, used before the first iteration
+     */
+    private double rollout(int H){
+        double cost = 0;
+        for(int t = 0; t < H; t++){
+            int v = 2*t;
+            multVec(A, 0, xlist, v, tmpv, 0);
+            multVec(B, 0, ulis, v, tmpv2, 0);
+            add(tmpv, 0, tmpv2, 0, xlist, v+2, 2);
+            cost += stateCost(xlist, v) + Mat2.quadForm(R, 0, ulis, v);
+        }
+        return cost + stateCost(xlist, 2*H);
+    }
 
-        double[][] rarr = {{0},{0}};
-        SimpleMatrix r = new SimpleMatrix(rarr);
+    private double stateCost(double[] x, int v){
+        sub(end, 0, x, v, tmpv, 0, 2);
+        return Mat2.quadForm(Q, 0, tmpv, 0) + costField.ObstacleCost(x[v], x[v+1]);
+    }
 
-        int horizon = (int)(seconds/timestep);
+    /**
+     * Computes l_x and l_xx at every state of the current trajectory
+     */
+    private void computeCostDerivatives(int H){
+        for(int t = 0; t <= H; t++){
+            int m = 4*t;
+            int v = 2*t;
+
+            // Obstacle Gradient and Hessian in One Pass
+            costField.ObstacleCostDerivatives(xlist[v], xlist[v+1], lxlis, v, lxxlis, m);
+
+            // l_x = 2Q(x - xf) + obstacle gradient
+            sub(xlist, v, end, 0, tmpv, 0, 2);
+            multVec(Q, 0, tmpv, 0, tmpv, 0);
+            scale(tmpv, 0, 2, 2);
+            add(lxlis, v, tmpv, 0, lxlis, v, 2);
+
+            // l_xx = 2Q + obstacle Hessian
+            add(lxxlis, m, Q, 0, lxxlis, m, 4);
+            add(lxxlis, m, Q, 0, lxxlis, m, 4);
+        }
+    }
+
+    private void allocate(int H){
+        if(H == horizon){
+            return;
+        }
+        horizon = H;
+        lxxlis = new double[4*(H+1)];
+        lxlis = new double[2*(H+1)];
+        Klis = new double[4*H];
+        dlis = new double[2*H];
+        ulis = new double[2*H];
+        xlist = new double[2*(H+1)];
+        newulis = new double[2*H];
+        newxlist = new double[2*(H+1)];
+    }
 
-        SimpleMatrix [] Qlis = new SimpleMatrix[horizon];
-        SimpleMatrix [] Rlis = new SimpleMatrix[horizon];
-        SimpleMatrix [] qlis = new SimpleMatrix[horizon];
-        SimpleMatrix [] rlis = new SimpleMatrix[horizon];
+    public Object[] optimizePath(SimpleMatrix startPoint, SimpleMatrix endxPoint, double seconds){
+        int horizon = (int)(seconds/timestep);
+        solve(startPoint.get(0,0), startPoint.get(1,0), endxPoint.get(0,0), endxPoint.get(1,0), horizon, null);
 
+        // Copy Solution Out, dlis Returns the Nominal Controls
+        SimpleMatrix[] Kout = new SimpleMatrix[horizon];
+        SimpleMatrix[] dout = new SimpleMatrix[horizon];
+        SimpleMatrix[] xout = new SimpleMatrix[horizon+1];
         for (int i = 0; i < horizon; i++) {
-            Qlis[i] = new SimpleMatrix(Q);
-            Rlis[i] = new SimpleMatrix(R);
-            qlis[i] = new SimpleMatrix(q);
-            rlis[i] = new SimpleMatrix(r);
+            Kout[i] = new SimpleMatrix(2, 2, true, Arrays.copyOfRange(Klis, 4*i, 4*i+4));
+            dout[i] = new SimpleMatrix(2, 1, true, Arrays.copyOfRange(ulis, 2*i, 2*i+2));
         }
+        for (int i = 0; i <= horizon; i++) {
+            xout[i] = new SimpleMatrix(2, 1, true, Arrays.copyOfRange(xlist, 2*i, 2*i+2));
+        }
+        return new Object[]{Kout,dout,xout};
+    }
 
+    /**
+     * Solves for a trajectory of H steps without allocating once the horizon is fixed
+     * @param warmStart initial controls, 2 per step (at least 2H values), or null to start from zero controls
+     */
+    public void solve(double startX, double startY, double endX, double endY, int H, double[] warmStart){
+        long solveStart = System.nanoTime();
+        end[0] = endX;
+        end[1] = endY;
+        allocate(H);
 
-        SimpleMatrix[] Klis = new SimpleMatrix[horizon];
-        SimpleMatrix[] dlis = new SimpleMatrix[horizon];
+        // Initial Trajectory: Warm Start or Zero Controls From the Start Point
+        if(warmStart == null){
+            Arrays.fill(ulis, 0);
+        } else{
+            System.arraycopy(warmStart, 0, ulis, 0, 2*horizon);
+        }
+        xlist[0] = startX;
+        xlist[1] = startY;
+        double cost = rollout(horizon);
+        costHistory[0] = cost;
+        mu = 0;
+
+        iterations = 0;
+        while(iterations < maxIterations){
+            long iterationStart = System.nanoTime();
+            computeCostDerivatives(horizon);
+
+            // Backward Pass, Raising Regularization Until Q_uu is Positive Definite
+            boolean solved = backwardPass(horizon);
+            while(!solved && mu < muMax){
+                mu = Math.max(muMin, mu * muFactor);
+                solved = backwardPass(horizon);
+            }
+            if(!solved){
+                break;
+            }
 
-        SimpleMatrix[] xlist = new SimpleMatrix[horizon+1];
-        SimpleMatrix[] lastxlist = new SimpleMatrix[horizon+1];
+            // Line Search on the Feedforward Term
+            double newCost = cost;
+            boolean accepted = false;
+            for(double alpha : alphas){
+                newCost = forwardPass(horizon, alpha);
+                double expected = -(alpha * expectedLinear + alpha * alpha * expectedQuadratic);
+                if(expected > 0 ? (cost - newCost) >= armijoFactor * expected : newCost < cost){
+                    accepted = true;
+                    break;
+                }
+            }
 
-        SimpleMatrix[] ulis = new SimpleMatrix[horizon];
-        SimpleMatrix u = r;
-        SimpleMatrix x;
+            iterationTimesMs[iterations] = (System.nanoTime() - iterationStart) / 1e6;
+            iterations++;
 
+            if(accepted){
+                // Take the Step and Relax Regularization
+                double[] swap = xlist; xlist = newxlist; newxlist = swap;
+                swap = ulis; ulis = newulis; newulis = swap;
+                double decrease = cost - newCost;
+                cost = newCost;
+                costHistory[iterations] = cost;
+                mu = mu / muFactor < muMin ? 0 : mu / muFactor;
 
-        double cost = 0;
-        double lastcost = 1000000000;
-        int iterationCount = 0;
-        for(;iterationCount<100;){
-            System.out.println("Iteration: " + iterationCount);
-            lastcost = cost;
-            cost = 0;
-            x=startPoint;
-            lastxlist = xlist;
-            xlist[0] = startPoint;
-            Object[] a = solveForControls(A,B,Qlis,Rlis,qlis,rlis,Q,q);
-            Klis = (SimpleMatrix[]) a[0];
-            dlis = (SimpleMatrix[]) a[1];
-
-            for (int i = 0; i < horizon; i++) {
-                if(iterationCount == 0){
-                    u = ((Klis[i].mult(endxPoint.minus(x))).negative()).plus(dlis[i]);
-                    ulis[i] = new SimpleMatrix(u);
+                if(decrease <= costConvergence * Math.abs(cost)){
+                    break;
                 }
-                else{
-                    u = (Klis[i].mult(lastxlist[i].minus(x).negative())).plus(dlis[i].scale(1)).plus(ulis[i]);
-                    ulis[i] = new SimpleMatrix(u);
+            } else{
+                // No Improvement, Stiffen Regularization and Try Again
+                costHistory[iterations] = cost;
+                mu = Math.max(muMin, mu * muFactor);
+                if(mu >= muMax){
+                    break;
                 }
-                x = A.mult(x).plus(B.mult(u));
-                Point2D currentpoint = new Point2D(x.get(0,0),x.get(1,0)) ;
-                cost += field.ObstacleCost(currentpoint) + (endxPoint.minus(x)).transpose().mult(Q).mult(endxPoint.minus(x)).get(0,0);
-                qlis[i] = field.ObstacleCostGradient(currentpoint);
-                Qlis[i] = field.ObstacleCostHessian(currentpoint);
-
-                xlist[i+1] = x;
             }
-            iterationCount++;
-            System.out.println("Total Cost: " + cost);
-            q = Q.mult(x.minus(endxPoint)).scale(2);
-
         }
-        dlis = ulis;
-        return new Object[]{Klis,dlis,xlist};
+        solveTimeMs = (System.nanoTime() - solveStart) / 1e6;
+    }
+
+    /**
+     * Copies the last solution into primitive arrays
+     * @param K gains, 4 per step row-major
+     * @param u nominal controls, 2 per step
+     * @param x nominal states, 2 per step plus the final state
+     */
+    public void getSolution(double[] K, double[] u, double[] x){
+        System.arraycopy(Klis, 0, K, 0, 4*horizon);
+        System.arraycopy(ulis, 0, u, 0, 2*horizon);
+        System.arraycopy(xlist, 0, x, 0, 2*(horizon+1));
     }
 
+    /**
+     * Gets the timestep the system was discretized with (s)
+     */
+    public double getTimestep() {return timestep;}
+
+    /**
+     * Gets the number of iterations the last solve ran
+     */
+    public int getIterations() {return iterations;}
+
+    /**
+     * Gets the wall clock time of the last solve (ms)
+     */
+    public double getSolveTimeMs() {return solveTimeMs;}
+
+    /**
+     * Gets the trajectory cost before the first iteration and after each iteration of the last solve
+     */
+    public double[] getCostHistory() {return Arrays.copyOf(costHistory, iterations+1);}
 
+    /**
+     * Gets the time each iteration of the last solve took (ms)
+     */
+    public double[] getIterationTimesMs() {return Arrays.copyOf(iterationTimesMs, iterations);}
 }
@@ -0,0 +1,212 @@
+package org.firstinspires.ftc.teamcode.iLQR;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Receding horizon (MPC) wrapper around {@linkplain Optimizer}
+ * <p>A worker thread repeatedly re-solves a short horizon from the latest odometry pose, warm
+ * started from the previous solution shifted by the time that has passed. Each solve is copied
+ * into a new plan that is never written again, and handed to the control loop through a volatile
+ * reference, so a reader always sees one whole plan.
+ * <p>The control loop only calls {@link #setPose} and {@link #getControls}/{@link #getTargetPoint},
+ * none of which lock or allocate, so replanning never stalls Robot.update().
+ */
+public class RecedingHorizonController {
+
+    private final Optimizer optimizer;
+    private final double timestep;
+    private final int horizon;
+    private final long replanPeriodNanos;
+
+    // Latest Plan, Written Once by the Worker Then Published
+    private volatile Plan published = null;
+
+    // Latest Pose, Written by the Control Loop
+    private volatile int poseSequence = 0;
+    private volatile double poseX;
+    private volatile double poseY;
+
+    // Target
+    private volatile double targetX;
+    private volatile double targetY;
+
+    // Worker State
+    private final double[] warmStart;
+    private volatile boolean running = false;
+    private volatile int replans = 0;
+    private volatile double lastSolveTimeMs = 0;
+    private Thread worker;
+
+    private static class Plan {
+        private final double[] K;
+        private final double[] u;
+        private final double[] x;
+        private final long startNanos;
+
+        private Plan(int horizon, long startNanos) {
+            K = new double[4*horizon];
+            u = new double[2*horizon];
+            x = new double[2*(horizon+1)];
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * @param optimizer optimizer owned by this controller, must not be used elsewhere while running
+     * @param horizonSeconds length of each re-solved horizon (s)
+     * @param replanPeriod minimum time between solves (s)
+     */
+    public RecedingHorizonController(Optimizer optimizer, double horizonSeconds, double replanPeriod) {
+        this.optimizer = optimizer;
+        timestep = optimizer.getTimestep();
+        horizon = (int) (horizonSeconds / timestep);
+        replanPeriodNanos = (long) (replanPeriod * 1e9);
+        warmStart = new double[2*horizon];
+    }
+
+    /**
+     * Starts replanning from a pose towards a target point
+     */
+    public void start(double x, double y, double targetX, double targetY) {
+        if (running) stop();
+        setPose(x, y);
+        setTarget(targetX, targetY);
+        published = null;
+        replans = 0;
+        running = true;
+        worker = new Thread(this::run, "RecedingHorizon");
+        worker.setPriority(Thread.NORM_PRIORITY - 1);
+        worker.start();
+    }
+
+    /**
+     * Stops the worker thread and waits for the current solve to finish
+     */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    /**
+     * Sets the odometry pose the next solve starts from, call once per control loop
+     * Only one thread may call this
+     */
+    public void setPose(double x, double y) {
+        int seq = poseSequence;
+        poseSequence = seq + 1;
+        poseX = x;
+        poseY = y;
+        poseSequence = seq + 2;
+    }
+
+    /**
+     * Changes the point the plan drives towards, used from the next solve on
+     */
+    public void setTarget(double x, double y) {
+        targetX = x;
+        targetY = y;
+    }
+
+    /**
+     * Computes the feedback control u = u_nominal + K(x - x_nominal) of the current plan step
+     * @param out control (x velocity, y velocity)
+     * @return false if no plan has been published yet
+     */
+    public boolean getControls(double x, double y, double[] out) {
+        Plan plan = published;
+        if (plan == null) return false;
+        int i = step(plan, horizon - 1);
+        double ex = x - plan.x[2*i];
+        double ey = y - plan.x[2*i+1];
+        out[0] = plan.u[2*i] + plan.K[4*i] * ex + plan.K[4*i+1] * ey;
+        out[1] = plan.u[2*i+1] + plan.K[4*i+2] * ex + plan.K[4*i+3] * ey;
+        return true;
+    }
+
+    /**
+     * Gets the nominal state of the current plan one step ahead, for use with setTargetPoint
+     * @param out point (x, y)
+     * @return false if no plan has been published yet
+     */
+    public boolean getTargetPoint(double[] out) {
+        Plan plan = published;
+        if (plan == null) return false;
+        int i = step(plan, horizon - 1) + 1;
+        out[0] = plan.x[2*i];
+        out[1] = plan.x[2*i+1];
+        return true;
+    }
+
+    /**
+     * Gets the number of plans published since start
+     */
+    public int getReplans() {return replans;}
+
+    /**
+     * Gets the wall clock time of the last solve (ms)
+     */
+    public double getLastSolveTimeMs() {return lastSolveTimeMs;}
+
+    /**
+     * Index of the plan step for the current time, clamped to [0, max]
+     */
+    private int step(Plan plan, int max) {
+        long i = (long) ((System.nanoTime() - plan.startNanos) / (timestep * 1e9));
+        return (int) Math.max(0, Math.min(i, max));
+    }
+
+    private void run() {
+        while (running) {
+            long loopStart = System.nanoTime();
+
+            // Read Pose
+            double x, y;
+            int seq;
+            do {
+                seq = poseSequence;
+                x = poseX;
+                y = poseY;
+            } while ((seq & 1) == 1 || seq != poseSequence);
+
+            // Warm Start From Previous Plan Shifted to Now, Holding the Last Control
+            Plan previous = published;
+            boolean warm = previous != null;
+            if (warm) {
+                int shift = (int) Math.min(horizon, (loopStart - previous.startNanos) / (timestep * 1e9));
+                int kept = horizon - shift;
+                if (kept > 0) {
+                    System.arraycopy(previous.u, 2*shift, warmStart, 0, 2*kept);
+                } else {
+                    warmStart[0] = previous.u[2*horizon-2];
+                    warmStart[1] = previous.u[2*horizon-1];
+                    kept = 1;
+                }
+                for (int i = kept; i < horizon; i++) {
+                    warmStart[2*i] = warmStart[2*i-2];
+                    warmStart[2*i+1] = warmStart[2*i-1];
+                }
+            }
+
+            try {
+                optimizer.solve(x, y, targetX, targetY, horizon, warm ? warmStart : null);
+            } catch (Exception e) {e.printStackTrace(); break;}
+
+            // Fill a New Plan, Then Publish It (the Volatile Write Makes its Contents Visible)
+            Plan next = new Plan(horizon, loopStart);
+            optimizer.getSolution(next.K, next.u, next.x);
+            published = next;
+            lastSolveTimeMs = optimizer.getSolveTimeMs();
+            replans++;
+
+            long wait = replanPeriodNanos - (System.nanoTime() - loopStart);
+            if (wait > 0) LockSupport.parkNanos(this, wait);
+        }
+    }
+}